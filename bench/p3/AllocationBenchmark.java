@@ -0,0 +1,101 @@
+package p3;
+
+import java.lang.management.*;
+
+/**
+ * Measures the memory allocated per processed event by complete headless
+ * simulations. Every workload is simulated twice, for a short and a long
+ * simulation length, and the difference in allocated bytes is divided by
+ * the difference in processed events. Setup costs such as the statistics
+ * and the first growth of the queues cancel out, leaving the allocation of
+ * the steady state.
+ *
+ * Every new process is one Process object, so arrivals always allocate;
+ * the bytes per arrival are printed as well, and the bytes per event
+ * beyond those show what the event loop itself allocates.
+ *
+ * Usage: java p3.AllocationBenchmark [short length] [long length]
+ */
+public class AllocationBenchmark
+{
+	/** The memory size of the simulated machine */
+	private static final long MEMORY_SIZE = 2048;
+
+	/**
+	 * Returns the number of bytes allocated by the current thread so far.
+	 * @return	The allocated bytes, or -1 if the JVM can not tell.
+	 */
+	private static long allocatedBytes() {
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if(threads instanceof com.sun.management.ThreadMXBean) {
+			return ((com.sun.management.ThreadMXBean)threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return -1;
+	}
+
+	/**
+	 * Runs one simulation and returns what it allocated.
+	 * @param config	The configuration of the simulation.
+	 * @return			The allocated bytes, the processed events and the created processes.
+	 */
+	private static long[] run(SimulationConfig config) {
+		long before = allocatedBytes();
+		Simulator simulator = new Simulator(config, new HeadlessGui());
+		Statistics statistics = simulator.run();
+		long allocated = allocatedBytes()-before;
+		return new long[] {allocated, simulator.getNofProcessedEvents(), statistics.nofCreatedProcesses};
+	}
+
+	/**
+	 * Measures the steady state allocation of a workload and prints it.
+	 * @param name			The name of the workload.
+	 * @param config		The configuration of the workload.
+	 * @param shortLength	The shorter simulation length.
+	 * @param longLength	The longer simulation length.
+	 */
+	private static void measure(String name, SimulationConfig config, long shortLength, long longLength) {
+		config.simulationLength = shortLength;
+		long[] first = run(config);
+		config.simulationLength = longLength;
+		long[] second = run(config);
+		long bytes = second[0]-first[0];
+		long events = second[1]-first[1];
+		long processes = second[2]-first[2];
+		System.out.printf("%-28s %,12d events %,10d processes %10.1f bytes/event %10.1f bytes/process%n",
+			name, events, processes, (double)bytes/events, processes > 0 ? (double)bytes/processes : 0.0);
+	}
+
+	/**
+	 * Creates the configuration of a workload.
+	 * @param scheduler				The scheduling policy.
+	 * @param avgArrivalInterval	The average time between process arrivals.
+	 * @return						The configuration.
+	 */
+	private static SimulationConfig workload(String scheduler, long avgArrivalInterval) {
+		SimulationConfig config = new SimulationConfig();
+		config.memorySize = MEMORY_SIZE;
+		config.maxCpuTime = 500;
+		config.avgIoTime = 225;
+		config.avgArrivalInterval = avgArrivalInterval;
+		config.scheduler = scheduler;
+		config.seed = 1;
+		return config;
+	}
+
+	/**
+	 * Runs the workloads twice, the first round warming up the JIT.
+	 * @param args	The short and the long simulation length.
+	 */
+	public static void main(String[] args) {
+		long shortLength = args.length > 0 ? Long.parseLong(args[0]) : 1000000;
+		long longLength = args.length > 1 ? Long.parseLong(args[1]) : 10000000;
+		String[] schedulers = {"rr", "priority", "mlfq", "cfs"};
+		for(int round = 0; round < 2; round++) {
+			System.out.println(round == 0 ? "Warm-up:" : "Measured:");
+			for(String scheduler : schedulers) {
+				measure(scheduler+" balanced (2000 ms)", workload(scheduler, 2000), shortLength, longLength);
+			}
+			measure("rr light (5000 ms)", workload("rr", 5000), shortLength, longLength);
+		}
+	}
+}
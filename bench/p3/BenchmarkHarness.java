@@ -0,0 +1,136 @@
+package p3;
+
+import java.io.*;
+
+/**
+ * A simple timing loop for rough benchmarks. Every benchmark is run for a
+ * number of warm-up iterations, letting the JIT compile the hot paths,
+ * followed by a number of measured iterations of fixed wall clock length.
+ * The throughput of each measured iteration is recorded, and the mean and
+ * standard deviation over the iterations are reported.
+ *
+ * All benchmarks run in one JVM, with no forking and no guard against
+ * dead code elimination beyond consume(), so one benchmark can change the
+ * profile of the next. The numbers are only good for comparing two builds
+ * on the same machine, not as absolute costs.
+ */
+public class BenchmarkHarness
+{
+	/**
+	 * A benchmark that can be run by the harness.
+	 */
+	public static abstract class Benchmark
+	{
+		/** The name shown in the report */
+		private String name;
+
+		/**
+		 * Creates a benchmark.
+		 * @param name	The name shown in the report.
+		 */
+		protected Benchmark(String name) {
+			this.name = name;
+		}
+
+		/**
+		 * Returns the name of the benchmark.
+		 * @return	The name shown in the report.
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * Prepares the state used by the benchmark. Called before every iteration
+		 * and not included in the measured time.
+		 */
+		public void setUp() {
+		}
+
+		/**
+		 * Runs a batch of operations. Results that could otherwise be optimized
+		 * away should be passed to consume().
+		 * @return	The number of operations performed.
+		 */
+		public abstract long invoke();
+	}
+
+	/** Values consumed by benchmarks, read after every iteration so the JIT can not remove the work */
+	private static long sink;
+
+	/** The number of warm-up iterations */
+	private int warmupIterations;
+	/** The number of measured iterations */
+	private int measurementIterations;
+	/** The length of each iteration, in nanoseconds */
+	private long iterationNanos;
+	/** Where the report is written */
+	private PrintStream out;
+
+	/**
+	 * Creates a harness.
+	 * @param warmupIterations		The number of warm-up iterations.
+	 * @param measurementIterations	The number of measured iterations.
+	 * @param iterationMillis		The length of each iteration, in milliseconds.
+	 */
+	public BenchmarkHarness(int warmupIterations, int measurementIterations, long iterationMillis) {
+		this.warmupIterations = warmupIterations;
+		this.measurementIterations = measurementIterations;
+		this.iterationNanos = iterationMillis*1000000;
+		this.out = System.out;
+	}
+
+	/**
+	 * Keeps a value from being optimized away.
+	 * @param value	The value to consume.
+	 */
+	public static void consume(long value) {
+		sink += value;
+	}
+
+	/**
+	 * Runs a benchmark and prints its throughput.
+	 * @param benchmark	The benchmark to run.
+	 * @param unit		The name of one operation in the report, for example "events".
+	 */
+	public void run(Benchmark benchmark, String unit) {
+		double[] rates = new double[measurementIterations];
+		for(int i = 0; i < warmupIterations; i++) {
+			iteration(benchmark);
+		}
+		for(int i = 0; i < measurementIterations; i++) {
+			rates[i] = iteration(benchmark);
+		}
+		double mean = 0;
+		for(double rate : rates) {
+			mean += rate;
+		}
+		mean /= rates.length;
+		double variance = 0;
+		for(double rate : rates) {
+			variance += (rate-mean)*(rate-mean);
+		}
+		double deviation = rates.length > 1 ? Math.sqrt(variance/(rates.length-1)) : 0;
+		out.printf("%-52s %,16.0f +- %,12.0f %s/s %10.1f ns/op%n", benchmark.getName(), mean, deviation, unit, 1e9/mean);
+		if(sink == 42) {
+			out.println();
+		}
+	}
+
+	/**
+	 * Runs one iteration of a benchmark.
+	 * @param benchmark	The benchmark to run.
+	 * @return			The number of operations per second during the iteration.
+	 */
+	private double iteration(Benchmark benchmark) {
+		benchmark.setUp();
+		long operations = 0;
+		long start = System.nanoTime();
+		long elapsed;
+		do {
+			operations += benchmark.invoke();
+			elapsed = System.nanoTime()-start;
+		} while(elapsed < iterationNanos);
+		return operations/(elapsed/1e9);
+	}
+}
@@ -0,0 +1,81 @@
+package p3;
+
+import java.util.SplittableRandom;
+
+/**
+ * Measures the throughput of the EventQueue using the classic hold model:
+ * the queue is filled with a given number of pending events, after which
+ * every operation removes the earliest event and inserts a new one a random
+ * time into the future, keeping the queue size constant.
+ *
+ * Usage: java -Xmx2g p3.EventQueueBenchmark [pending sizes...]
+ * The default sizes are 10 000, 1 000 000 and 10 000 000 pending events.
+ */
+public class EventQueueBenchmark implements Constants
+{
+	/** The number of hold operations measured per queue size */
+	private static final int OPERATIONS = 5000000;
+	/** The number of hold operations run before measuring */
+	private static final int WARMUP_OPERATIONS = 1000000;
+	/** The largest time increment of a new event */
+	private static final int MAX_INCREMENT = 10000;
+
+	/**
+	 * Fills a queue with the given number of events and runs the hold model on it.
+	 * @param pending	The number of pending events in the queue.
+	 * @param random	The random generator used to draw event times.
+	 * @return			The number of hold operations per second.
+	 */
+	private static double run(int pending, SplittableRandom random) {
+		EventQueue queue = new EventQueue();
+		for(int i = 0; i < pending; i++) {
+			queue.insertEvent(new Event(NEW_PROCESS, random.nextInt(MAX_INCREMENT), 0));
+		}
+		hold(queue, WARMUP_OPERATIONS, random);
+		long start = System.nanoTime();
+		long checksum = hold(queue, OPERATIONS, random);
+		long elapsed = System.nanoTime()-start;
+		if(checksum == 42) {
+			System.out.println();
+		}
+		return OPERATIONS/(elapsed/1e9);
+	}
+
+	/**
+	 * Performs a number of hold operations on a queue.
+	 * @param queue			The queue to operate on.
+	 * @param operations	The number of events to remove and reinsert.
+	 * @param random		The random generator used to draw event times.
+	 * @return				A checksum of the removed event times, to keep the work from being optimized away.
+	 */
+	private static long hold(EventQueue queue, int operations, SplittableRandom random) {
+		long checksum = 0;
+		for(int i = 0; i < operations; i++) {
+			Event event = queue.getNextEvent();
+			long time = event.getTime();
+			checksum += time;
+			queue.recycle(event);
+			queue.insertEvent(event.getType(), time+1+random.nextInt(MAX_INCREMENT), time, 0);
+		}
+		return checksum;
+	}
+
+	/**
+	 * Runs the benchmark for each requested queue size and prints events per second.
+	 * @param args	The pending queue sizes to measure.
+	 */
+	public static void main(String[] args) {
+		int[] sizes = {10000, 1000000, 10000000};
+		if(args.length > 0) {
+			sizes = new int[args.length];
+			for(int i = 0; i < args.length; i++) {
+				sizes[i] = Integer.parseInt(args[i]);
+			}
+		}
+		SplittableRandom random = new SplittableRandom(1);
+		for(int pending : sizes) {
+			double rate = run(pending, random);
+			System.out.printf("%,12d pending events: %,14.0f events/s%n", pending, rate);
+		}
+	}
+}
@@ -0,0 +1,140 @@
+package p3;
+
+import java.lang.management.*;
+
+/**
+ * Compares the two process stores on an overload run: processes arrive
+ * faster than they complete, so the memory queue grows to about a million
+ * processes. The same configuration is simulated with both stores: with
+ * objects the waiting processes are Process objects in a Queue, with the
+ * table they are rows of a ProcessTable and their slots are in an IntQueue.
+ * Both give the same statistics, which the benchmark checks.
+ *
+ * For each store the benchmark prints the run time, the bytes allocated by the
+ * benchmark thread, the garbage collections and their total time, and the heap
+ * retained by the simulator after a full collection.
+ *
+ * Usage: java -Xmx2g p3.ProcessStoreBenchmark [simulation length (ms)] [average arrival interval (ms)]
+ */
+public class ProcessStoreBenchmark
+{
+	/** Keeps the simulator reachable while the heap is measured */
+	private static Object liveSet;
+
+	/**
+	 * Creates the configuration of the overload run.
+	 * @param store					The process store, objects or table.
+	 * @param simulationLength		The length of the simulation (ms).
+	 * @param avgArrivalInterval	The average time between process arrivals (ms).
+	 * @return						The configuration.
+	 */
+	private static SimulationConfig createConfig(String store, long simulationLength, long avgArrivalInterval) {
+		SimulationConfig config = new SimulationConfig();
+		config.seed = 1;
+		config.simulationLength = simulationLength;
+		config.avgArrivalInterval = avgArrivalInterval;
+		config.cpuCores = 4;
+		config.ioDevices = "uniform+uniform";
+		config.processStore = store;
+		config.validate();
+		return config;
+	}
+
+	/**
+	 * Runs the overload simulation with one of the stores.
+	 * @param config	The configuration.
+	 * @return			The statistics of the run, as CSV.
+	 */
+	private static String runSimulation(SimulationConfig config) {
+		Simulator simulator = new Simulator(config, new HeadlessGui());
+		String result = simulator.run().toCsvRow();
+		liveSet = simulator;
+		return result;
+	}
+
+	/**
+	 * Returns the total number of collections over all garbage collectors.
+	 * @return	The number of collections so far.
+	 */
+	private static long gcCount() {
+		long count = 0;
+		for(GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			count += Math.max(0, gc.getCollectionCount());
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the total collection time over all garbage collectors.
+	 * @return	The collection time so far, in milliseconds.
+	 */
+	private static long gcTime() {
+		long time = 0;
+		for(GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			time += Math.max(0, gc.getCollectionTime());
+		}
+		return time;
+	}
+
+	/**
+	 * Returns the number of bytes allocated by the current thread so far.
+	 * @return	The allocated bytes, or -1 if the JVM can not tell.
+	 */
+	private static long allocatedBytes() {
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if(threads instanceof com.sun.management.ThreadMXBean) {
+			return ((com.sun.management.ThreadMXBean)threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the heap in use after a full garbage collection.
+	 * @return	The used heap, in bytes.
+	 */
+	private static long retainedHeap() {
+		System.gc();
+		System.gc();
+		return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+	}
+
+	/**
+	 * Runs one store and prints its measurements.
+	 * @param config	The configuration, naming the store.
+	 * @return			The statistics of the run, as CSV.
+	 */
+	private static String measure(SimulationConfig config) {
+		liveSet = null;
+		long baseHeap = retainedHeap();
+		long gcCount = gcCount();
+		long gcTime = gcTime();
+		long allocated = allocatedBytes();
+		long start = System.nanoTime();
+		String result = runSimulation(config);
+		long elapsed = System.nanoTime()-start;
+		long allocatedDelta = allocatedBytes()-allocated;
+		long gcCountDelta = gcCount()-gcCount;
+		long gcTimeDelta = gcTime()-gcTime;
+		long heap = retainedHeap()-baseHeap;
+		System.out.printf("%-8s %8.2f s  %,16d bytes allocated  %6d GCs  %7d ms GC  %,14d bytes live%n",
+			config.processStore, elapsed/1e9, allocatedDelta, gcCountDelta, gcTimeDelta, heap);
+		return result;
+	}
+
+	/**
+	 * Runs both stores twice, the first round warming up the JIT.
+	 * @param args	The simulation length and the average arrival interval.
+	 */
+	public static void main(String[] args) {
+		long simulationLength = args.length > 0 ? Long.parseLong(args[0]) : 100000000;
+		long avgArrivalInterval = args.length > 1 ? Long.parseLong(args[1]) : 50;
+		for(int round = 0; round < 2; round++) {
+			System.out.println(round == 0 ? "Warm-up:" : "Measured:");
+			String objects = measure(createConfig("objects", simulationLength, avgArrivalInterval));
+			String table = measure(createConfig("table", simulationLength, avgArrivalInterval));
+			if(!objects.equals(table)) {
+				System.out.println("The stores gave different statistics");
+			}
+		}
+	}
+}
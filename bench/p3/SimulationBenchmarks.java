@@ -0,0 +1,443 @@
+package p3;
+
+import java.util.*;
+
+/**
+ * Rough timing of the hot paths of the simulator with BenchmarkHarness:
+ * event insertion and removal, queue insertion and removal, process
+ * dispatch with each scheduling policy, memory admission and allocation,
+ * page replacement, and complete headless simulations of a few standard
+ * workloads.
+ *
+ * Usage: java p3.SimulationBenchmarks [name filter]
+ * Only benchmarks whose name contains the filter are run.
+ */
+public class SimulationBenchmarks implements Constants
+{
+	/** The number of operations performed per invocation of the microbenchmarks */
+	private static final int BATCH = 1000;
+	/** The memory size used when creating processes */
+	private static final long MEMORY_SIZE = 2048;
+
+	/**
+	 * Creates a list of processes.
+	 * @param n			The number of processes.
+	 * @param random	The random streams used for the process parameters.
+	 * @return			The processes.
+	 */
+	private static Process[] createProcesses(int n, RandomStreams random) {
+		Process[] processes = new Process[n];
+		for(int i = 0; i < n; i++) {
+			processes[i] = new Process(i+1, MEMORY_SIZE, 0, random);
+		}
+		return processes;
+	}
+
+	/**
+	 * Hold model on the event queue: remove the earliest event and insert a later one.
+	 */
+	private static class EventHoldBenchmark extends BenchmarkHarness.Benchmark {
+		private int pending;
+		private EventQueue queue;
+		private SplittableRandom random;
+
+		EventHoldBenchmark(int pending) {
+			super("EventQueue insert+poll (pending="+pending+")");
+			this.pending = pending;
+		}
+
+		public void setUp() {
+			random = new SplittableRandom(1);
+			queue = new EventQueue();
+			for(int i = 0; i < pending; i++) {
+				queue.insertEvent(new Event(NEW_PROCESS, random.nextInt(10000), 0));
+			}
+		}
+
+		public long invoke() {
+			for(int i = 0; i < BATCH; i++) {
+				Event event = queue.getNextEvent();
+				long time = event.getTime();
+				queue.recycle(event);
+				queue.insertEvent(event.getType(), time+1+random.nextInt(10000), time, 0);
+			}
+			BenchmarkHarness.consume(queue.peekNextEvent().getTime());
+			return BATCH;
+		}
+	}
+
+	/**
+	 * Moves processes from the head to the tail of a queue.
+	 */
+	private static class QueueBenchmark extends BenchmarkHarness.Benchmark {
+		private int length;
+		private Queue<Process> queue;
+
+		QueueBenchmark(int length) {
+			super("Queue insert+removeNext (length="+length+")");
+			this.length = length;
+		}
+
+		public void setUp() {
+			queue = new Queue<Process>();
+			for(Process p : createProcesses(length, new RandomStreams(1))) {
+				queue.insert(p);
+			}
+		}
+
+		public long invoke() {
+			for(int i = 0; i < BATCH; i++) {
+				queue.insert(queue.removeNext());
+			}
+			BenchmarkHarness.consume(queue.getNext().getProcessId());
+			return BATCH;
+		}
+	}
+
+	/**
+	 * Dispatches processes with a scheduling policy, keeping the number of ready processes constant.
+	 * The mlfq-boost policy is mlfq with a priority boost before every batch of dispatches.
+	 */
+	private static class DispatchBenchmark extends BenchmarkHarness.Benchmark {
+		private int length;
+		private String scheduler;
+		private CPU cpu;
+		private long clock;
+
+		DispatchBenchmark(int length, String scheduler) {
+			super("CPU.switchProcess ("+scheduler+", ready="+length+")");
+			this.length = length;
+			this.scheduler = scheduler;
+		}
+
+		public void setUp() {
+			Process[] processes = createProcesses(length+1, new RandomStreams(1));
+			Queue<Process> readyQueue = new Queue<Process>();
+			Statistics statistics = new Statistics();
+			Scheduler policy;
+			if(scheduler.equals("priority")) {
+				policy = new PriorityRoundRobinScheduler(500);
+			} else if(scheduler.equals("cfs")) {
+				policy = new FairScheduler(200, 20, 5, new RandomStreams(1));
+			} else if(scheduler.equals("mlfq")) {
+				policy = new MultilevelFeedbackScheduler(new long[] {50, 200, 800}, 0, statistics);
+			} else if(scheduler.equals("mlfq-boost")) {
+				policy = new MultilevelFeedbackScheduler(new long[] {50, 200, 800}, 1, statistics);
+			} else {
+				policy = new RoundRobinScheduler(readyQueue, 500);
+			}
+			cpu = new CPU(policy, 1, statistics, null);
+			clock = 0;
+			for(Process p : processes) {
+				cpu.insertProcess(p, clock);
+			}
+			cpu.activateProcess(0, clock);
+		}
+
+		public long invoke() {
+			// The clock only moves for boosts, so processes never run out of cpu time
+			if(scheduler.equals("mlfq-boost")) {
+				clock++;
+			}
+			for(int i = 0; i < BATCH; i++) {
+				cpu.switchProcess(0, clock);
+			}
+			BenchmarkHarness.consume(cpu.getActiveProcess(0).getProcessId());
+			return BATCH;
+		}
+	}
+
+	/**
+	 * Admits processes from a long memory queue, freeing their memory right away.
+	 */
+	private static class AdmissionBenchmark extends BenchmarkHarness.Benchmark {
+		private int length;
+		private Memory memory;
+		private Process[] processes;
+		private int next;
+		private long clock;
+
+		AdmissionBenchmark(int length) {
+			super("Memory.checkMemory admission (queue="+length+")");
+			this.length = length;
+		}
+
+		public void setUp() {
+			processes = createProcesses(length+BATCH, new RandomStreams(1));
+			memory = new Memory(new Queue<Process>(), MEMORY_SIZE, new Statistics(), null);
+			for(int i = 0; i < length; i++) {
+				memory.insertProcess(processes[i]);
+			}
+			next = length;
+			clock = 0;
+		}
+
+		public long invoke() {
+			for(int i = 0; i < BATCH; i++) {
+				clock++;
+				memory.insertProcess(processes[next]);
+				next = (next+1)%processes.length;
+				Process p = memory.checkMemory(clock);
+				memory.processCompleted(p);
+			}
+			return BATCH;
+		}
+	}
+
+	/**
+	 * Admits processes from behind a memory queue head that never fits,
+	 * putting every admitted process back at the tail of the queue.
+	 */
+	private static class BackfillBenchmark extends BenchmarkHarness.Benchmark {
+		private int length;
+		private Memory memory;
+		private long clock;
+
+		BackfillBenchmark(int length) {
+			super("Memory.checkMemory first fit in queue (queue="+length+")");
+			this.length = length;
+		}
+
+		public void setUp() {
+			// Only 300 KB is free, so about half of the processes fit
+			MemoryAllocator allocator = new CompactingAllocator(MEMORY_SIZE);
+			allocator.allocate(MEMORY_SIZE-300);
+			memory = new Memory(new Queue<Process>(), MEMORY_SIZE, allocator, Memory.ADMIT_FIRST_FIT, 0, new Statistics(), null);
+			Process[] processes = createProcesses(length, new RandomStreams(1));
+			for(Process p : processes) {
+				memory.insertProcess(p);
+			}
+			clock = 0;
+		}
+
+		public long invoke() {
+			for(int i = 0; i < BATCH; i++) {
+				clock++;
+				Process p = memory.checkMemory(clock);
+				memory.processCompleted(p);
+				memory.insertProcess(p);
+			}
+			return BATCH;
+		}
+	}
+
+	/**
+	 * Allocates and frees blocks with one memory allocator, keeping a
+	 * window of live blocks so that the free memory stays fragmented.
+	 */
+	private static class AllocatorBenchmark extends BenchmarkHarness.Benchmark {
+		private String allocatorName;
+		private MemoryAllocator allocator;
+		private long[] sizes;
+		private long[] addresses;
+		private int next;
+
+		AllocatorBenchmark(String allocatorName) {
+			super("MemoryAllocator allocate+free ("+allocatorName+")");
+			this.allocatorName = allocatorName;
+		}
+
+		public void setUp() {
+			if(allocatorName.equals("firstfit")) {
+				allocator = new FreeListAllocator(MEMORY_SIZE*64, FreeListAllocator.FIRST_FIT);
+			} else if(allocatorName.equals("bestfit")) {
+				allocator = new FreeListAllocator(MEMORY_SIZE*64, FreeListAllocator.BEST_FIT);
+			} else if(allocatorName.equals("nextfit")) {
+				allocator = new FreeListAllocator(MEMORY_SIZE*64, FreeListAllocator.NEXT_FIT);
+			} else {
+				allocator = new BuddyAllocator(MEMORY_SIZE*64);
+			}
+			Process[] processes = createProcesses(BATCH, new RandomStreams(1));
+			sizes = new long[processes.length];
+			addresses = new long[processes.length];
+			for(int i = 0; i < processes.length; i++) {
+				sizes[i] = processes[i].getMemoryNeeded()/4;
+				addresses[i] = -1;
+			}
+			next = 0;
+		}
+
+		public long invoke() {
+			for(int i = 0; i < BATCH; i++) {
+				// Free the oldest block of the window and allocate a new one in its slot
+				if(addresses[next] >= 0) {
+					allocator.free(addresses[next], sizes[next]);
+				}
+				addresses[next] = allocator.allocate(sizes[next]);
+				next = (next+1)%sizes.length;
+			}
+			BenchmarkHarness.consume(allocator.getSteps());
+			return BATCH;
+		}
+	}
+
+	/**
+	 * Allocates and frees a block with a free-list allocator whose free
+	 * memory is split into many 1 KB holes at low addresses, all too small
+	 * for the block, in front of one large free block.
+	 */
+	private static class HoleBenchmark extends BenchmarkHarness.Benchmark {
+		private int nofHoles;
+		private int fit;
+		private MemoryAllocator allocator;
+
+		HoleBenchmark(int nofHoles, int fit, String fitName) {
+			super("FreeListAllocator past "+nofHoles+" holes ("+fitName+")");
+			this.nofHoles = nofHoles;
+			this.fit = fit;
+		}
+
+		public void setUp() {
+			allocator = new FreeListAllocator(4L*nofHoles, fit);
+			for(int i = 0; i < 2*nofHoles; i++) {
+				allocator.allocate(1);
+			}
+			for(int i = 0; i < nofHoles; i++) {
+				allocator.free(2*i, 1);
+			}
+		}
+
+		public long invoke() {
+			for(int i = 0; i < BATCH; i++) {
+				allocator.free(allocator.allocate(2), 2);
+			}
+			BenchmarkHarness.consume(allocator.getSteps());
+			return BATCH;
+		}
+	}
+
+	/**
+	 * Replaces pages in a full memory of a million frames: every operation
+	 * references a few random frames, then evicts a page and loads another.
+	 */
+	private static class ReplacementBenchmark extends BenchmarkHarness.Benchmark {
+		private static final int FRAMES = 1 << 20;
+		private String policyName;
+		private PageReplacement replacement;
+		private SplittableRandom random;
+		private long clock;
+
+		ReplacementBenchmark(String policyName) {
+			super("PageReplacement reference+evict ("+policyName+", frames="+FRAMES+")");
+			this.policyName = policyName;
+		}
+
+		public void setUp() {
+			if(policyName.equals("fifo")) {
+				replacement = new FifoReplacement(FRAMES);
+			} else if(policyName.equals("clock")) {
+				replacement = new ClockReplacement(FRAMES);
+			} else if(policyName.equals("wsclock")) {
+				replacement = new WsClockReplacement(FRAMES, 1000);
+			} else {
+				replacement = new LruReplacement(FRAMES);
+			}
+			for(int frame = 0; frame < FRAMES; frame++) {
+				replacement.loaded(frame, 0);
+			}
+			random = new SplittableRandom(1);
+			clock = 0;
+		}
+
+		public long invoke() {
+			for(int i = 0; i < BATCH; i++) {
+				clock += 10;
+				for(int j = 0; j < 4; j++) {
+					replacement.referenced(random.nextInt(FRAMES), clock);
+				}
+				replacement.loaded(replacement.selectVictim(clock), clock);
+			}
+			BenchmarkHarness.consume(replacement.getSteps());
+			return BATCH;
+		}
+	}
+
+	/**
+	 * Runs complete headless simulations and counts the processed events.
+	 */
+	private static class SimulationBenchmark extends BenchmarkHarness.Benchmark {
+		private SimulationConfig config;
+
+		SimulationBenchmark(String name, SimulationConfig config) {
+			super("Simulator.run "+name);
+			this.config = config;
+		}
+
+		public long invoke() {
+			Simulator simulator = new Simulator(config, new HeadlessGui());
+			Statistics statistics = simulator.run();
+			BenchmarkHarness.consume(statistics.nofCompletedProcesses);
+			return simulator.getNofProcessedEvents();
+		}
+	}
+
+	/**
+	 * Creates the configuration of a standard workload.
+	 * @param avgArrivalInterval	The average time between process arrivals.
+	 * @return						The configuration.
+	 */
+	private static SimulationConfig workload(long avgArrivalInterval) {
+		SimulationConfig config = new SimulationConfig();
+		config.memorySize = MEMORY_SIZE;
+		config.maxCpuTime = 500;
+		config.avgIoTime = 225;
+		config.simulationLength = 1000000;
+		config.avgArrivalInterval = avgArrivalInterval;
+		config.seed = 1;
+		return config;
+	}
+
+	/**
+	 * Runs the benchmarks matching the filter.
+	 * @param args	An optional filter on benchmark names.
+	 */
+	public static void main(String[] args) {
+		String filter = args.length > 0 ? args[0] : "";
+		BenchmarkHarness harness = new BenchmarkHarness(3, 5, 1000);
+		BenchmarkHarness.Benchmark[] operations = {
+			new EventHoldBenchmark(10000),
+			new QueueBenchmark(10000),
+			new DispatchBenchmark(100, "rr"),
+			new DispatchBenchmark(10000, "rr"),
+			new DispatchBenchmark(100, "priority"),
+			new DispatchBenchmark(10000, "priority"),
+			new DispatchBenchmark(100000, "priority"),
+			new DispatchBenchmark(100, "mlfq"),
+			new DispatchBenchmark(10000, "mlfq"),
+			new DispatchBenchmark(10000, "mlfq-boost"),
+			new DispatchBenchmark(100000, "mlfq-boost"),
+			new DispatchBenchmark(100, "cfs"),
+			new DispatchBenchmark(10000, "cfs"),
+			new AdmissionBenchmark(10000),
+			new BackfillBenchmark(10000),
+			new BackfillBenchmark(100000),
+			new BackfillBenchmark(1000000),
+			new AllocatorBenchmark("firstfit"),
+			new AllocatorBenchmark("bestfit"),
+			new AllocatorBenchmark("nextfit"),
+			new AllocatorBenchmark("buddy"),
+			new HoleBenchmark(1000, FreeListAllocator.FIRST_FIT, "firstfit"),
+			new HoleBenchmark(100000, FreeListAllocator.FIRST_FIT, "firstfit"),
+			new HoleBenchmark(100000, FreeListAllocator.NEXT_FIT, "nextfit"),
+			new ReplacementBenchmark("fifo"),
+			new ReplacementBenchmark("lru"),
+			new ReplacementBenchmark("clock"),
+			new ReplacementBenchmark("wsclock"),
+		};
+		for(BenchmarkHarness.Benchmark benchmark : operations) {
+			if(benchmark.getName().contains(filter)) {
+				harness.run(benchmark, "ops");
+			}
+		}
+		BenchmarkHarness.Benchmark[] simulations = {
+			new SimulationBenchmark("light (arrival 5000 ms)", workload(5000)),
+			new SimulationBenchmark("balanced (arrival 2000 ms)", workload(2000)),
+			new SimulationBenchmark("overloaded (arrival 500 ms)", workload(500)),
+		};
+		for(BenchmarkHarness.Benchmark benchmark : simulations) {
+			if(benchmark.getName().contains(filter)) {
+				harness.run(benchmark, "events");
+			}
+		}
+	}
+}
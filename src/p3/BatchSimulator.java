@@ -0,0 +1,157 @@
+package p3;
+
+import java.io.*;
+
+/**
+ * Entry point for running a single simulation without a GUI. All
+ * parameters are given on the command line or in a configuration file,
+ * see SimulationConfig for the available parameters.
+ *
+ * Example: java p3.BatchSimulator --memorySize=2048 --maxCpuTime=500 --scheduler=rr
+ *
+ * A simulation saved with --checkpoint=file is continued with
+ * --resume=file, optionally with a longer simulationLength, a new seed
+ * to fork the simulation, or a new checkpoint to save to.
+ */
+public class BatchSimulator
+{
+	/**
+	 * Parses the parameters, runs the simulation and prints the report.
+	 * @param args	Parameters on the form --name=value, or --config=file.
+	 */
+	public static void main(String args[]) {
+		for(String arg : args) {
+			if(arg.startsWith("--resume=")) {
+				resume(args);
+				return;
+			}
+		}
+		SimulationConfig config;
+		try {
+			config = SimulationConfig.fromArguments(args);
+		} catch (IllegalArgumentException iae) {
+			System.err.println(iae.getMessage());
+			printUsage();
+			System.exit(1);
+			return;
+		} catch (IOException ioe) {
+			System.err.println("Could not read configuration: "+ioe.getMessage());
+			System.exit(1);
+			return;
+		}
+		Simulator simulator;
+		try {
+			simulator = new Simulator(config, new HeadlessGui());
+		} catch (IllegalArgumentException iae) {
+			System.err.println(iae.getMessage());
+			System.exit(1);
+			return;
+		}
+		simulator.simulate();
+	}
+
+	/**
+	 * Restores a simulation from a checkpoint and continues it. Only the
+	 * parameters that do not change the simulated system can be given.
+	 * @param args	Parameters on the form --name=value, including --resume=file.
+	 */
+	private static void resume(String args[]) {
+		File file = null;
+		File checkpoint = null;
+		long checkpointInterval = 0;
+		long simulationLength = -1;
+		Long seed = null;
+		try {
+			for(String arg : args) {
+				int separator = arg.indexOf('=');
+				if(!arg.startsWith("--") || separator < 0) {
+					throw new IllegalArgumentException("Expected --name=value, got "+arg);
+				}
+				String name = arg.substring(2, separator);
+				String value = arg.substring(separator+1);
+				try {
+					if(name.equals("resume")) {
+						file = new File(value);
+					} else if(name.equals("checkpoint")) {
+						checkpoint = value.length() > 0 ? new File(value) : null;
+					} else if(name.equals("checkpointInterval")) {
+						checkpointInterval = Long.parseLong(value);
+					} else if(name.equals("simulationLength")) {
+						simulationLength = Long.parseLong(value);
+					} else if(name.equals("seed")) {
+						seed = Long.parseLong(value);
+					} else {
+						throw new IllegalArgumentException("Parameter "+name+" can not be changed when resuming");
+					}
+				} catch (NumberFormatException nfe) {
+					throw new IllegalArgumentException("Invalid value for "+name+": "+value);
+				}
+			}
+			if(checkpointInterval < 0) {
+				throw new IllegalArgumentException("The checkpoint interval can not be negative");
+			}
+		} catch (IllegalArgumentException iae) {
+			System.err.println(iae.getMessage());
+			printUsage();
+			System.exit(1);
+			return;
+		}
+		Simulator simulator;
+		try {
+			simulator = Simulator.restoreCheckpoint(file, new HeadlessGui());
+		} catch (IOException ioe) {
+			System.err.println("Could not restore checkpoint "+file+": "+ioe.getMessage());
+			System.exit(1);
+			return;
+		}
+		if(simulationLength >= 0) {
+			simulator.setSimulationLength(simulationLength);
+		}
+		if(seed != null) {
+			simulator.reseed(seed);
+		}
+		simulator.setCheckpoint(checkpoint, checkpointInterval);
+		simulator.simulate();
+	}
+
+	/**
+	 * Prints the available parameters to standard error.
+	 */
+	private static void printUsage() {
+		System.err.println("Usage: java p3.BatchSimulator [--config=file] [--name=value ...]");
+		System.err.println("Parameters:");
+		System.err.println("  memorySize          Size of the memory (KB), at least 400");
+		System.err.println("  memoryAllocator     compact (perfect compaction), firstfit, bestfit, nextfit or buddy");
+		System.err.println("  memoryAdmission     fifo, firstfit (admit the first queued process that fits) or backfill");
+		System.err.println("  backfillStarvationLimit  How long backfill may pass the memory queue head (ms)");
+		System.err.println("  pageSize            Page size (KB) for paged memory, 0 (the default) for no paging");
+		System.err.println("  pageReplacement     fifo, lru, clock or wsclock");
+		System.err.println("  pageReferenceInterval  Cpu time between two page references of a process (ms)");
+		System.err.println("  wsclockTau          Working set window of wsclock (ms)");
+		System.err.println("  maxCpuTime          Maximum uninterrupted cpu time for a process (ms)");
+		System.err.println("  avgIoTime           Average I/O operation time (ms)");
+		System.err.println("  simulationLength    Simulation length (ms)");
+		System.err.println("  avgArrivalInterval  Average time between process arrivals (ms)");
+		System.err.println("  cpuCores            Number of CPU cores");
+		System.err.println("  ioDevices           I/O devices separated by +, each uniform, exponential or constant,");
+		System.err.println("                      optionally followed by :average time (ms), e.g. uniform+exponential:80");
+		System.err.println("  ioRouting           random, shortest (join the shortest queue) or affinity");
+		System.err.println("  scheduler           rr, priority, mlfq or cfs");
+		System.err.println("  mlfqQuanta          Time quant of each mlfq level (ms), separated by +, e.g. 50+200+800");
+		System.err.println("  mlfqBoostInterval   Time between mlfq priority boosts (ms), 0 for none");
+		System.err.println("  cfsTargetLatency    Period in which cfs runs every runnable process once (ms)");
+		System.err.println("  cfsMinGranularity   Shortest cfs time slice (ms)");
+		System.err.println("  cfsMaxNice          Nice values are drawn from -cfsMaxNice to cfsMaxNice");
+		System.err.println("  workload            Binary workload file to replay instead of synthetic arrivals,");
+		System.err.println("                      see WorkloadConverter");
+		System.err.println("  warmupInterval      Simulated time between warm-up observations (ms), 0 to keep the warm-up");
+		System.err.println("  seed                Seed of the random number streams");
+		System.err.println("  processStore        objects, or table to keep processes waiting for memory in primitive");
+		System.err.println("                      arrays (fifo admission without paging or workload only)");
+		System.err.println("  trace               File to write a binary trace of process state transitions to");
+		System.err.println("  checkpoint          File to save the state of the simulation to");
+		System.err.println("  checkpointInterval  Simulated time between checkpoints (ms), 0 to only save one at the end");
+		System.err.println("  resume              Checkpoint to continue, only simulationLength, seed, checkpoint");
+		System.err.println("                      and checkpointInterval can be given with it");
+	}
+}
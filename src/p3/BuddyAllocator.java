@@ -0,0 +1,236 @@
+package p3;
+
+import java.io.Serializable;
+
+/**
+ * A buddy system allocator. Every request is rounded up to a power of two
+ * KB, and served from a free block of that size, splitting larger blocks
+ * in halves as needed. When a block is freed it is merged with its buddy,
+ * the other half of the block it was split from, as long as the buddy is
+ * free as well. The memory that rounding adds to an allocation is internal
+ * fragmentation.
+ *
+ * The free blocks of each size are kept in a bitmap with one bit per block
+ * position, so that the buddy of a block can be looked up in constant time.
+ * Each bitmap has summary levels marking its non-empty 64-bit words, so the
+ * lowest free block is found with one bit scan per level, in O(log64 n)
+ * time. An allocation or free splits or merges at most log2(memory size)
+ * blocks. A memory size that is not a power of two is
+ * covered by one block of each of the powers of two it consists of.
+ */
+public class BuddyAllocator implements MemoryAllocator
+{
+	/** The version of the serialized form */
+	private static final long serialVersionUID = 1L;
+
+	/** The largest block order, blocks of order k are 2^k KB */
+	private int maxOrder;
+	/** The free blocks of each order, bit i is set if the block at address i*2^order is free */
+	private SummaryBitmap[] freeBlocks;
+	/** The number of free blocks of each order */
+	private int[] nofFreeBlocks;
+	/** The amount of free memory */
+	private long freeMemory;
+	/** The number of steps taken so far */
+	private long steps;
+
+	/**
+	 * Creates an allocator for a memory that is all free.
+	 * @param memorySize	The size of the memory (KB), less than 2^31.
+	 */
+	public BuddyAllocator(long memorySize) {
+		maxOrder = 63-Long.numberOfLeadingZeros(memorySize);
+		freeBlocks = new SummaryBitmap[maxOrder+1];
+		nofFreeBlocks = new int[maxOrder+1];
+		for(int order = 0; order <= maxOrder; order++) {
+			freeBlocks[order] = new SummaryBitmap((int)(memorySize >> order)+1);
+		}
+		long address = 0;
+		for(int order = maxOrder; order >= 0; order--) {
+			if(memorySize-address >= 1L << order) {
+				setFree(order, address, true);
+				address += 1L << order;
+			}
+		}
+		freeMemory = memorySize;
+	}
+
+	/**
+	 * Returns the order of the smallest block that can hold a request.
+	 * @param size	The amount of memory needed.
+	 * @return		The order.
+	 */
+	private static int orderOf(long size) {
+		return size <= 1 ? 0 : 64-Long.numberOfLeadingZeros(size-1);
+	}
+
+	public long allocate(long size) {
+		int order = orderOf(size);
+		int from = order;
+		steps++;
+		while(from <= maxOrder && nofFreeBlocks[from] == 0) {
+			from++;
+			steps++;
+		}
+		if(from > maxOrder) {
+			return -1;
+		}
+		long address = (long)freeBlocks[from].first() << from;
+		steps += freeBlocks[from].getNofLevels();
+		setFree(from, address, false);
+		while(from > order) {
+			// Split the block, keeping the lower half and freeing the upper one
+			from--;
+			setFree(from, address+(1L << from), true);
+			steps++;
+		}
+		freeMemory -= 1L << order;
+		return address;
+	}
+
+	public void free(long address, long size) {
+		int order = orderOf(size);
+		steps++;
+		freeMemory += 1L << order;
+		while(order < maxOrder) {
+			long buddy = address ^ (1L << order);
+			if(!freeBlocks[order].get((int)(buddy >> order))) {
+				break;
+			}
+			// Merge with the buddy
+			setFree(order, buddy, false);
+			address = Math.min(address, buddy);
+			order++;
+			steps++;
+		}
+		setFree(order, address, true);
+	}
+
+	/**
+	 * Marks a block as free or taken.
+	 * @param order		The order of the block.
+	 * @param address	The address of the block.
+	 * @param free		true if the block becomes free, false if it is taken.
+	 */
+	private void setFree(int order, long address, boolean free) {
+		if(free) {
+			freeBlocks[order].set((int)(address >> order));
+		} else {
+			freeBlocks[order].clear((int)(address >> order));
+		}
+		nofFreeBlocks[order] += free ? 1 : -1;
+	}
+
+	public long getFreeMemory() {
+		return freeMemory;
+	}
+
+	public long getLargestFreeBlock() {
+		for(int order = maxOrder; order >= 0; order--) {
+			if(nofFreeBlocks[order] > 0) {
+				return 1L << order;
+			}
+		}
+		return 0;
+	}
+
+	public long getSteps() {
+		return steps;
+	}
+
+	/**
+	 * A bitmap with summary levels above it. Bit i of a summary level is set
+	 * if word i of the level below is not zero, and the top level is a
+	 * single word, so the lowest set bit is found by following the lowest
+	 * set bit of one word per level.
+	 */
+	private static class SummaryBitmap implements Serializable
+	{
+		/** The version of the serialized form */
+		private static final long serialVersionUID = 1L;
+
+		/** The words of each level, the bits themselves first and the single top word last */
+		private long[][] levels;
+
+		/**
+		 * Creates a bitmap with no bits set.
+		 * @param nofBits	The number of bits.
+		 */
+		public SummaryBitmap(int nofBits) {
+			int nofLevels = 1;
+			for(int words = (nofBits+63) >>> 6; words > 1; words = (words+63) >>> 6) {
+				nofLevels++;
+			}
+			levels = new long[nofLevels][];
+			int words = (nofBits+63) >>> 6;
+			for(int level = 0; level < nofLevels; level++) {
+				levels[level] = new long[Math.max(1, words)];
+				words = (words+63) >>> 6;
+			}
+		}
+
+		/**
+		 * Returns the number of levels, which is the number of words read to find a set bit.
+		 * @return	The number of levels.
+		 */
+		public int getNofLevels() {
+			return levels.length;
+		}
+
+		/**
+		 * Checks whether a bit is set.
+		 * @param index	The index of the bit.
+		 * @return		Whether the bit is set.
+		 */
+		public boolean get(int index) {
+			return (levels[0][index >>> 6] & (1L << index)) != 0;
+		}
+
+		/**
+		 * Sets a bit, and marks its word in the levels above where it was empty.
+		 * @param index	The index of the bit.
+		 */
+		public void set(int index) {
+			for(int level = 0; level < levels.length; level++) {
+				long[] words = levels[level];
+				boolean wasEmpty = words[index >>> 6] == 0;
+				words[index >>> 6] |= 1L << index;
+				if(!wasEmpty) {
+					break;
+				}
+				index >>>= 6;
+			}
+		}
+
+		/**
+		 * Clears a bit, and unmarks its word in the levels above if it became empty.
+		 * @param index	The index of the bit.
+		 */
+		public void clear(int index) {
+			for(int level = 0; level < levels.length; level++) {
+				long[] words = levels[level];
+				words[index >>> 6] &= ~(1L << index);
+				if(words[index >>> 6] != 0) {
+					break;
+				}
+				index >>>= 6;
+			}
+		}
+
+		/**
+		 * Returns the lowest set bit.
+		 * @return	The index of the bit, or -1 if no bit is set.
+		 */
+		public int first() {
+			int top = levels.length-1;
+			if(levels[top][0] == 0) {
+				return -1;
+			}
+			int index = 0;
+			for(int level = top; level >= 0; level--) {
+				index = (index << 6) | Long.numberOfTrailingZeros(levels[level][index]);
+			}
+			return index;
+		}
+	}
+}
@@ -1,167 +1,147 @@
 package p3;
 
-import java.util.ArrayList;
-import java.util.PriorityQueue;
+import java.io.Serializable;
 
 /**
  * This class implements the CPU for the simulated
- * system.
+ * system. The CPU has a number of cores sharing one
+ * scheduler, each running one process at a time.
  * 
  * @author Are
  *
  */
 
-public class CPU {
+public class CPU implements Constants, Serializable {
+	/** The version of the serialized form */
+	private static final long serialVersionUID = 1L;
 	
-	private Queue readyQueue;
-	private PriorityQueue<Process> pQ;
+	/** The scheduling policy, holding the ready processes */
+	private Scheduler scheduler;
 	
 	private Statistics statistics;
 	
-	private Process activeProcess;
+	/** The process running on each core, null if the core is idle */
+	private Process[] activeProcesses;
+	
+	private transient TraceRecorder trace;
 
-	public CPU(Queue readyQueue, long maxCpuTime, Statistics statistics) {
-		this.readyQueue = readyQueue;
-		this.pQ = new PriorityQueue<Process>();
+	public CPU(Scheduler scheduler, int nofCores, Statistics statistics, TraceRecorder trace) {
+		this.scheduler = scheduler;
+		this.activeProcesses = new Process[nofCores];
 		this.statistics = statistics;
+		this.trace = trace;
+		statistics.nofCpuCores = nofCores;
+		statistics.coreActiveCpuTime = new long[nofCores];
 	}
 	
-	public void insertProcess(Process p) {
-		readyQueue.insert(p);
-	}
-	
-	public void insertPqProcess(Process p) {
-		pQ.add(p);
-	}
-	
-	public Process switchProcess(long clock) {
-		if (activeProcess != null) {
-			statistics.nofProcessSwitches++;
-			activeProcess.leftCPU(clock);
-			readyQueue.insert(activeProcess);
-			activeProcess = null;
-			Process p = (Process)readyQueue.getNext();
-			p.leftReadyQueue(clock);
-			activeProcess = (Process)readyQueue.removeNext();
-			if (activeProcess == null) {
-				System.err.println("Did not activate swapped away process");
-			}
-			return activeProcess;
-		}
-		return null;
+	public int getNofCores() {
+		return activeProcesses.length;
 	}
 	
-	public Process switchProcessPrioritized(long clock) {
-		System.out.println("Ran prioritized version of sp");
-		if (activeProcess != null) {
-			statistics.nofProcessSwitches++;
-			activeProcess.leftCPU(clock);
-			readyQueue.insert(activeProcess);
-			activeProcess = null;
-			Process p = (Process)pQ.poll();
-			p.leftReadyQueue(clock);
-			activeProcess = (Process)readyQueue.removeSpecified(p);
-			if (activeProcess == null) {
-				System.err.println("Did not activate swapped away process");
+	/**
+	 * Finds a core that is not running any process.
+	 * @return	The lowest numbered idle core, or -1 if all cores are busy.
+	 */
+	public int getIdleCore() {
+		for (int core = 0; core < activeProcesses.length; core++) {
+			if (activeProcesses[core] == null) {
+				return core;
 			}
-			return activeProcess;
 		}
-		return null;
+		return -1;
 	}
 	
-	public void endProcess(long clock) {
-		activeProcess.leftCPU(clock);
+	public void insertProcess(Process p, long clock) {
+		scheduler.enqueue(p, clock, false);
 	}
 	
-	public Process activateNext(long clock) {
-		if (activeProcess != null) {
-			activeProcess.leftCPU(clock);
-			activeProcess = null;
-		}
-		if (!readyQueue.isEmpty()) {
-			Process p = (Process)readyQueue.getNext();
-			p.leftReadyQueue(clock);
-			activeProcess = (Process)readyQueue.removeNext();
-			return activeProcess;
-		}
-		return null;
-	}
-	
-	public Process activateNextPrioritized(long clock) {
-		System.out.println("Ran prioritized version of an");
-		if (activeProcess != null) {
-			activeProcess.leftCPU(clock);
-			activeProcess = null;
-		}
-		if (!readyQueue.isEmpty() && !pQ.isEmpty()) {
-			Process p = (Process)pQ.poll();
-			p.leftReadyQueue(clock);
-			activeProcess = (Process)readyQueue.removeSpecified(p);
-			return activeProcess;
+	/**
+	 * Moves the process running on a core back to the ready processes,
+	 * and runs the process picked by the scheduler instead.
+	 * @param core	The core.
+	 * @param clock	The time of the switch.
+	 * @return		The process now running on the core, or null if the core was idle.
+	 */
+	public Process switchProcess(int core, long clock) {
+		if (activeProcesses[core] != null) {
+			statistics.nofProcessSwitches++;
+			Process p = removeActiveProcess(core, clock);
+			trace(clock, p, STATE_CPU, STATE_READY_QUEUE);
+			scheduler.enqueue(p, clock, true);
+			return activateProcess(core, clock);
 		}
 		return null;
 	}
 	
-	public Process activateProcess(long clock) {
-		activeProcess = null;
-		if (!readyQueue.isEmpty()) {
-			Process p = (Process)readyQueue.getNext();
-			p.leftReadyQueue(clock);
-			activeProcess = (Process)readyQueue.removeNext();
+	/**
+	 * Takes the process running on a core off the core, leaving it idle.
+	 * @param core	The core.
+	 * @param clock	The current time.
+	 * @return		The process that was running, or null if the core was idle.
+	 */
+	public Process removeActiveProcess(int core, long clock) {
+		Process p = activeProcesses[core];
+		if (p != null) {
+			p.leftCPU(clock);
+			activeProcesses[core] = null;
 		}
-		return activeProcess;
+		return p;
 	}
 	
-	public Process activateProcessPrioritized(long clock) {
-		System.out.println("Ran prioritized version of ap");
-		activeProcess = null;
-		if (!readyQueue.isEmpty() && !pQ.isEmpty()) {
-			Process p = (Process)pQ.poll();
+	/**
+	 * Runs the process picked by the scheduler on an idle core.
+	 * @param core	The core.
+	 * @param clock	The time of the dispatch.
+	 * @return		The process now running on the core, or null if no process was ready.
+	 */
+	public Process activateProcess(int core, long clock) {
+		Process p = scheduler.pickNext(clock);
+		if (p != null) {
 			p.leftReadyQueue(clock);
-			activeProcess = (Process)readyQueue.removeSpecified(p);
+			trace(clock, p, STATE_READY_QUEUE, STATE_CPU);
 		}
-		return activeProcess;
+		activeProcesses[core] = p;
+		return p;
 	}
 	
-	public Process getActiveProcess() {
-		return activeProcess;
+	/**
+	 * Returns how long a process just activated on a core may run before it is switched out.
+	 * @param p	The process.
+	 * @return	The time quant given by the scheduler.
+	 */
+	public long getQuantum(Process p) {
+		return scheduler.quantumFor(p);
 	}
 	
-	public void setActiveProcess(Process p) {
-		this.activeProcess = p;
+	public Process getActiveProcess(int core) {
+		return activeProcesses[core];
 	}
 	
 	public boolean readyQueueIsEmpty() {
-		return readyQueue.isEmpty();
+		return scheduler.size() == 0;
 	}
 	
-	/**
-	 * 
-	 * @return nof items added
-	 */
-	
-	public int addReadyQueueToPq() {
-		System.out.println("Called addReadyQueue to pq");
-		for (Object o : readyQueue.getContent()) {
-			Process p = (Process)o; 
-			pQ.add(p);
+	private void trace(long clock, Process p, int from, int to) {
+		if (trace != null) {
+			trace.record(clock, p.getProcessId(), from, to);
 		}
-		return pQ.size();
 	}
 	
-	
 	public void timePassed(long timePassed) {
-		statistics.readyQueueLengthTime += readyQueue.getQueueLength()*timePassed;
-		if (readyQueue.getQueueLength() > statistics.readyQueueLargestLength) {
-			statistics.readyQueueLargestLength = readyQueue.getQueueLength(); 
+		int readyQueueLength = scheduler.size();
+		statistics.readyQueueLengthTime += readyQueueLength*timePassed;
+		if (readyQueueLength > statistics.readyQueueLargestLength) {
+			statistics.readyQueueLargestLength = readyQueueLength; 
 		}
-		if (activeProcess == null) {
-			statistics.totIdleCpuTime += timePassed;
-		} else {
-			statistics.totActiveCpuTime += timePassed;
+		for (int core = 0; core < activeProcesses.length; core++) {
+			if (activeProcesses[core] == null) {
+				statistics.totIdleCpuTime += timePassed;
+			} else {
+				statistics.totActiveCpuTime += timePassed;
+				statistics.coreActiveCpuTime[core] += timePassed;
+			}
 		}
-		statistics.totCpuTime += timePassed;
+		statistics.totCpuTime += timePassed*activeProcesses.length;
 	}
 	
 }
-
@@ -0,0 +1,87 @@
+package p3;
+
+/**
+ * CLOCK (second chance) page replacement. The frames form a circle that a
+ * hand sweeps over. A frame whose reference bit is set gets a second chance:
+ * the bit is cleared and the hand moves on. The first loaded frame found
+ * with a cleared bit is evicted. The bits are kept in bitmaps of one bit
+ * per frame.
+ */
+public class ClockReplacement implements PageReplacement
+{
+	/** The version of the serialized form */
+	private static final long serialVersionUID = 1L;
+
+	/** The number of frames */
+	protected int nofFrames;
+	/** One bit per frame, set if the frame holds a page */
+	protected long[] loadedBits;
+	/** One bit per frame, set if the page in the frame has been referenced since the hand last passed */
+	protected long[] referencedBits;
+	/** The frame the hand points at */
+	protected int hand;
+	/** The number of frames examined so far */
+	protected long steps;
+
+	/**
+	 * Creates the policy for a number of frames, none of which hold pages.
+	 * @param nofFrames	The number of frames.
+	 */
+	public ClockReplacement(int nofFrames) {
+		this.nofFrames = nofFrames;
+		loadedBits = new long[(nofFrames+63)/64];
+		referencedBits = new long[(nofFrames+63)/64];
+	}
+
+	public void loaded(int frame, long clock) {
+		loadedBits[frame >>> 6] |= 1L << frame;
+		referencedBits[frame >>> 6] |= 1L << frame;
+	}
+
+	public void referenced(int frame, long clock) {
+		referencedBits[frame >>> 6] |= 1L << frame;
+	}
+
+	public void freed(int frame) {
+		loadedBits[frame >>> 6] &= ~(1L << frame);
+		referencedBits[frame >>> 6] &= ~(1L << frame);
+	}
+
+	public int selectVictim(long clock) {
+		while(true) {
+			int frame = advance();
+			if(isSet(loadedBits, frame)) {
+				if(!isSet(referencedBits, frame)) {
+					freed(frame);
+					return frame;
+				}
+				referencedBits[frame >>> 6] &= ~(1L << frame);
+			}
+		}
+	}
+
+	public long getSteps() {
+		return steps;
+	}
+
+	/**
+	 * Moves the hand one frame forward, counting the frame it leaves as examined.
+	 * @return	The frame the hand pointed at before moving.
+	 */
+	protected int advance() {
+		int frame = hand;
+		hand = hand+1 == nofFrames ? 0 : hand+1;
+		steps++;
+		return frame;
+	}
+
+	/**
+	 * Returns the bit of a frame in a bitmap.
+	 * @param bits	The bitmap.
+	 * @param frame	The frame.
+	 * @return		true if the bit is set.
+	 */
+	protected static boolean isSet(long[] bits, int frame) {
+		return (bits[frame >>> 6] & (1L << frame)) != 0;
+	}
+}
@@ -0,0 +1,52 @@
+package p3;
+
+/**
+ * An allocator that assumes perfect compaction: any request that is not
+ * larger than the total free memory succeeds, as if the allocated blocks
+ * were always moved together. This is the behaviour of the original memory
+ * model, and gives no external fragmentation. Addresses have no meaning.
+ */
+public class CompactingAllocator implements MemoryAllocator
+{
+	/** The version of the serialized form */
+	private static final long serialVersionUID = 1L;
+
+	/** The amount of free memory */
+	private long freeMemory;
+	/** The number of steps taken so far */
+	private long steps;
+
+	/**
+	 * Creates an allocator for a memory that is all free.
+	 * @param memorySize	The size of the memory (KB).
+	 */
+	public CompactingAllocator(long memorySize) {
+		freeMemory = memorySize;
+	}
+
+	public long allocate(long size) {
+		steps++;
+		if(size > freeMemory) {
+			return -1;
+		}
+		freeMemory -= size;
+		return 0;
+	}
+
+	public void free(long address, long size) {
+		steps++;
+		freeMemory += size;
+	}
+
+	public long getFreeMemory() {
+		return freeMemory;
+	}
+
+	public long getLargestFreeBlock() {
+		return freeMemory;
+	}
+
+	public long getSteps() {
+		return steps;
+	}
+}
@@ -16,6 +16,26 @@ public interface Constants
     public static final int RUN_PROCESS_CPU = 6;
     /** Event type describing new process in ioQueue to be run (used if ioQueue was empty at last attempt) */
     public static final int RUN_PROCESS_IO = 7;
+	/** Event type describing a reference of the active process to a page that is not in memory */
+	public static final int PAGE_FAULT = 8;
+	/** Process state used in traces: outside the system, before creation or after completion */
+	public static final int STATE_NONE = 0;
+	/** Process state used in traces: waiting in the memory queue */
+	public static final int STATE_MEMORY_QUEUE = 1;
+	/** Process state used in traces: waiting in the ready queue */
+	public static final int STATE_READY_QUEUE = 2;
+	/** Process state used in traces: running on the CPU */
+	public static final int STATE_CPU = 3;
+	/** Process state used in traces: waiting in the I/O queue */
+	public static final int STATE_IO_QUEUE = 4;
+	/** Process state used in traces: performing I/O */
+	public static final int STATE_IO = 5;
+	/** I/O routing policy: send each request to a random device */
+	public static final int ROUTE_RANDOM = 0;
+	/** I/O routing policy: send each request to the device with the fewest waiting and active processes */
+	public static final int ROUTE_SHORTEST_QUEUE = 1;
+	/** I/O routing policy: always send the requests of a process to the same device */
+	public static final int ROUTE_AFFINITY = 2;
 	/** The orientation SOUTH */
 	public final static int SOUTH = 0;
 	/** The orientation WEST */
@@ -1,31 +1,66 @@
 package p3;
 
+import java.io.Serializable;
+
 /**
  * This class contains information about an event. The different
  * types of events are described in the Constants interface.
  * @see EventQueue
  * @see Constants
  */
-public class Event implements Comparable
+public class Event implements Comparable<Event>, Serializable
 {
+	/** The version of the serialized form */
+	private static final long serialVersionUID = 1L;
+
 	/** The sort of event */
 	private int type;
 	/** The time at which the event will occur */
 	private long time;
+	/** The insertion order of this event in the event queue, used to break ties */
+	private long sequence;
+	/** The CPU core or I/O device that the event concerns, 0 for events that concern neither */
+	private int unit;
 
 	/**
 	 * Creates a new event with the given parameters.
 	 * @param type	The type of event, as defined in the Constants interface.
 	 * @param time	The time at which the event will occur.
+	 * @param clock	The current time.
+	 * @throws IllegalStateException	If the event would occur before the current time.
 	 */
 	public Event(int type, long time, long clock) {
-		this.type = type;
-		this.time = time;
-		
+		this(type, time, clock, 0);
+	}
+
+	/**
+	 * Creates a new event concerning a given CPU core or I/O device.
+	 * @param type	The type of event, as defined in the Constants interface.
+	 * @param time	The time at which the event will occur.
+	 * @param clock	The current time.
+	 * @param unit	The CPU core, or for END_IO events the I/O device, that the event concerns.
+	 * @throws IllegalStateException	If the event would occur before the current time.
+	 */
+	public Event(int type, long time, long clock, int unit) {
+		set(type, time, clock, unit);
+	}
+
+	/**
+	 * Gives this event new parameters, used when the EventQueue reuses a
+	 * processed event instead of allocating a new one.
+	 * @param type	The type of event, as defined in the Constants interface.
+	 * @param time	The time at which the event will occur.
+	 * @param clock	The current time.
+	 * @param unit	The CPU core, or for END_IO events the I/O device, that the event concerns.
+	 * @throws IllegalStateException	If the event would occur before the current time.
+	 */
+	void set(int type, long time, long clock, int unit) {
 		if (time < clock) {
-			System.out.println("Added event before clock");
-			System.out.println(type);
+			throw new IllegalStateException("Event of type "+type+" at "+time+" added before the clock "+clock);
 		}
+		this.type = type;
+		this.unit = unit;
+		this.time = time;
 	}
 
 	/**
@@ -45,16 +80,43 @@ public class Event implements Comparable
 	}
 
 	/**
-	 * Compares the time of two events. This method is used when sorting
-	 * the list of events maintained by the EventQueue class.
-	 * @param o	The event to compare this event with.
+	 * Gets the CPU core or I/O device that this event concerns.
+	 * @return	The index of the core or device.
+	 */
+	public int getUnit() {
+		return unit;
+	}
+
+	/**
+	 * Sets the insertion order of this event. Called by the EventQueue
+	 * when the event is inserted.
+	 * @param sequence	The insertion sequence number.
+	 */
+	void setSequence(long sequence) {
+		this.sequence = sequence;
+	}
+
+	/**
+	 * Checks whether this event should be processed after another event.
+	 * Events are ordered on time, and events occurring at the same time
+	 * are ordered on insertion order.
+	 * @param e	The event to compare this event with.
+	 * @return	Whether or not this event comes after the other event.
+	 */
+	boolean isAfter(Event e) {
+		return time > e.time || (time == e.time && sequence > e.sequence);
+	}
+
+	/**
+	 * Compares the time of two events, using insertion order to break ties.
+	 * @param e	The event to compare this event with.
 	 * @return	A negative number if this event occurs before the other event,
-	 *			0 if they occur at the same time, and a positive number if the other
+	 *			0 if they are the same event, and a positive number if the other
 	 *			event occurs before this event.
 	 * @see	java.lang.Comparable
 	 */
-	public int compareTo(Object o) {
-		Event e = (Event)o;
-		return (int)(time-e.time);
+	public int compareTo(Event e) {
+		int result = Long.compare(time, e.time);
+		return result != 0 ? result : Long.compare(sequence, e.sequence);
 	}
 }
@@ -1,60 +1,206 @@
 package p3;
 
-import java.util.*;
+import java.io.Serializable;
+import java.util.Arrays;
 
 /**
  * This class maintains a queue of events used for
  * simulating the behaviour of the system. Events are
- * kept in a cronologically sorted list. This class is
- * an example of a priority queue (event time being the
- * priority in this case).
+ * kept in a binary min-heap ordered on event time, so
+ * both insertion and removal take O(log n) time. This
+ * class is an example of a priority queue (event time
+ * being the priority in this case).
+ *
+ * Events with equal time values are returned in the order
+ * they were inserted.
+ *
+ * Processed events can be handed back to the queue with recycle, and
+ * are then reused by the next insertions, so a simulation in steady
+ * state creates no Event objects at all.
  */
-public class EventQueue
+public class EventQueue implements Serializable
 {
-	/** The list of events */
-	private ArrayList events;
+	/** The version of the serialized form */
+	private static final long serialVersionUID = 1L;
+
+	/** The initial capacity of the heap array */
+	private static final int INITIAL_CAPACITY = 64;
+
+	/** The heap of events, the earliest event is stored at index 0 */
+	private Event[] heap;
+	/** The number of events in the heap */
+	private int size;
+	/** The sequence number given to the next inserted event, used to break ties */
+	private long nextSequence;
+	/** Processed events waiting to be reused */
+	private Event[] pool;
+	/** The number of events in the pool */
+	private int poolSize;
 
 	/**
 	 * Creates a new Event Queue.
 	 */
 	public EventQueue() {
-		events = new ArrayList();
+		heap = new Event[INITIAL_CAPACITY];
+		size = 0;
+		nextSequence = 0;
+		pool = new Event[INITIAL_CAPACITY];
+		poolSize = 0;
+	}
+
+	/**
+	 * Inserts an event with the given parameters in the queue, reusing a
+	 * recycled event if there is one.
+	 * @param type	The type of event, as defined in the Constants interface.
+	 * @param time	The time at which the event will occur.
+	 * @param clock	The current time.
+	 * @param unit	The CPU core, or for END_IO events the I/O device, that the event concerns.
+	 */
+	public void insertEvent(int type, long time, long clock, int unit) {
+		Event event;
+		if(poolSize > 0) {
+			event = pool[--poolSize];
+			pool[poolSize] = null;
+			event.set(type, time, clock, unit);
+		} else {
+			event = new Event(type, time, clock, unit);
+		}
+		insertEvent(event);
+	}
+
+	/**
+	 * Hands back an event taken from the queue, to be reused by a later
+	 * insertion. The caller must not use the event afterwards.
+	 * @param event	The processed event.
+	 */
+	public void recycle(Event event) {
+		if(poolSize == pool.length) {
+			pool = Arrays.copyOf(pool, pool.length*2);
+		}
+		pool[poolSize++] = event;
 	}
 
 	/**
 	 * Inserts an event in the queue.
-	 * The event is added to the event list, which
-	 * is then resorted.
+	 * The event is placed at the bottom of the heap and
+	 * sifted up to its correct position.
 	 * @param event	The event to be inserted.
 	 */
     public void insertEvent(Event event) {
 		if(event != null) {
-			events.add(event);
-			Collections.sort(events);
+			if(size == heap.length) {
+				grow();
+			}
+			event.setSequence(nextSequence++);
+			siftUp(size++, event);
 		}
     }
 
+	/**
+	 * Puts back an event that was taken from the queue but not processed.
+	 * The event keeps the sequence number it was given when first inserted,
+	 * so it is returned in the same order relative to events with equal time.
+	 * @param event	The event to put back.
+	 */
+	public void putBack(Event event) {
+		if(size == heap.length) {
+			grow();
+		}
+		siftUp(size++, event);
+	}
+
 	/**
 	 * Removes and returns the earliest event (the event
 	 * with the lowest time value) from the queue.
-	 * @return	The event with the lowest time value in the queue.
+	 * @return	The event with the lowest time value in the queue,
+	 *			or null if the queue is empty.
 	 */
     public Event getNextEvent() {
-		  return (Event)events.remove(0);
+		if(size == 0) {
+			return null;
+		}
+		Event result = heap[0];
+		Event last = heap[--size];
+		heap[size] = null;
+		if(size > 0) {
+			siftDown(0, last);
+		}
+		return result;
     }
 
+	/**
+	 * Returns the earliest event without removing it from the queue.
+	 * @return	The event with the lowest time value in the queue,
+	 *			or null if the queue is empty.
+	 */
+	public Event peekNextEvent() {
+		return size == 0 ? null : heap[0];
+	}
+
     /**
      * Checks whether or not the event queue is empty.
      * @return	Whether or not the event queue is empty.
      */
     public boolean isEmpty() {
-		return events.size() == 0;
+		return size == 0;
 	}
-}
-
-
-
 
+	/**
+	 * Returns the number of events currently in the queue.
+	 * @return	The number of pending events.
+	 */
+	public int size() {
+		return size;
+	}
 
+	/**
+	 * Moves an event up from the given position until its parent is not later than it.
+	 * @param index	The position of the hole to fill.
+	 * @param event	The event to place.
+	 */
+	private void siftUp(int index, Event event) {
+		while(index > 0) {
+			int parent = (index-1) >>> 1;
+			Event p = heap[parent];
+			if(!p.isAfter(event)) {
+				break;
+			}
+			heap[index] = p;
+			index = parent;
+		}
+		heap[index] = event;
+	}
 
+	/**
+	 * Moves an event down from the given position until none of its children are earlier than it.
+	 * @param index	The position of the hole to fill.
+	 * @param event	The event to place.
+	 */
+	private void siftDown(int index, Event event) {
+		int half = size >>> 1;
+		while(index < half) {
+			int child = 2*index+1;
+			Event c = heap[child];
+			int right = child+1;
+			if(right < size && c.isAfter(heap[right])) {
+				child = right;
+				c = heap[child];
+			}
+			if(!event.isAfter(c)) {
+				break;
+			}
+			heap[index] = c;
+			index = child;
+		}
+		heap[index] = event;
+	}
 
+	/**
+	 * Doubles the capacity of the heap array.
+	 */
+	private void grow() {
+		Event[] larger = new Event[heap.length*2];
+		System.arraycopy(heap, 0, larger, 0, size);
+		heap = larger;
+	}
+}
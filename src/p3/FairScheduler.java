@@ -0,0 +1,103 @@
+package p3;
+
+/**
+ * Fair scheduling in the style of the Linux CFS scheduler. Every process
+ * has a weight given by its nice value, and accumulates virtual runtime:
+ * the cpu time it has used, scaled down by its weight. The process with the
+ * least virtual runtime runs next. The time slice of a process is its share
+ * of the target latency, in proportion to its weight among the runnable
+ * processes, but never less than the minimum granularity.
+ *
+ * Processes that have been waiting for I/O are placed at most half a target
+ * latency behind the smallest virtual runtime, so they get the cpu soon
+ * without being able to monopolize it. New processes start at the smallest
+ * virtual runtime.
+ */
+public class FairScheduler implements Scheduler
+{
+	/** The version of the serialized form */
+	private static final long serialVersionUID = 1L;
+
+	/** The weight of each nice value from -20 to 19, the same as in Linux */
+	private static final int[] NICE_TO_WEIGHT = {
+		88761, 71755, 56483, 46273, 36291, 29154, 23254, 18705, 14949, 11916,
+		9548, 7620, 6100, 4904, 3906, 3121, 2501, 1991, 1586, 1277,
+		1024, 820, 655, 526, 423, 335, 272, 215, 172, 137,
+		110, 87, 70, 56, 45, 36, 29, 23, 18, 15};
+	/** The weight of nice value 0 */
+	private static final long NICE_0_WEIGHT = 1024;
+	/** The virtual runtime is kept in 1/VRUNTIME_SCALE ms, so heavy processes do not round to 0 */
+	private static final long VRUNTIME_SCALE = 1024;
+	/** The largest nice value that can be given */
+	public static final int MAX_NICE = 19;
+
+	/** The ready processes, ordered on virtual runtime */
+	private ProcessHeap tree;
+	/** The sum of the weights of the ready processes */
+	private long totalWeight;
+	/** The smallest virtual runtime seen, which never decreases */
+	private long minVruntime;
+	/** The period in which every runnable process should get to run once (ms) */
+	private long targetLatency;
+	/** The shortest time slice (ms) */
+	private long minGranularity;
+	/** Nice values are drawn uniformly from -maxNice to maxNice */
+	private int maxNice;
+	/** The random streams used to draw nice values */
+	private RandomStreams random;
+
+	/**
+	 * Creates a fair scheduler.
+	 * @param targetLatency		The period in which every runnable process should get to run once (ms).
+	 * @param minGranularity	The shortest time slice (ms).
+	 * @param maxNice			Nice values are drawn uniformly from -maxNice to maxNice, 0 gives all processes the same weight.
+	 * @param random			The random streams of the simulation.
+	 */
+	public FairScheduler(long targetLatency, long minGranularity, int maxNice, RandomStreams random) {
+		this.tree = new ProcessHeap();
+		this.targetLatency = targetLatency;
+		this.minGranularity = minGranularity;
+		this.maxNice = Math.min(maxNice, MAX_NICE);
+		this.random = random;
+	}
+
+	public void enqueue(Process p, long clock, boolean preempted) {
+		if (p.getWeight() == 0) {
+			int nice = 0;
+			if (maxNice > 0) {
+				nice = -maxNice+(int)(random.nextDouble(RandomStreams.NICE)*(2*maxNice+1));
+			}
+			p.setWeight(NICE_TO_WEIGHT[nice+20]);
+			p.setVruntime(minVruntime, p.getTimeSpentInCpu());
+		} else {
+			long ran = p.getTimeSpentInCpu()-p.getVruntimeCpuTime();
+			long vruntime = p.getVruntime()+ran*NICE_0_WEIGHT*VRUNTIME_SCALE/p.getWeight();
+			if (!preempted) {
+				vruntime = Math.max(vruntime, minVruntime-targetLatency*VRUNTIME_SCALE/2);
+			}
+			p.setVruntime(vruntime, p.getTimeSpentInCpu());
+		}
+		tree.add(p, p.getVruntime());
+		totalWeight += p.getWeight();
+	}
+
+	public Process pickNext(long clock) {
+		Process p = tree.poll();
+		if (p != null) {
+			totalWeight -= p.getWeight();
+			minVruntime = Math.max(minVruntime, p.getVruntime());
+		}
+		return p;
+	}
+
+	public long quantumFor(Process p) {
+		long runnable = tree.size()+1;
+		long period = Math.max(targetLatency, runnable*minGranularity);
+		long slice = period*p.getWeight()/(totalWeight+p.getWeight());
+		return Math.max(slice, minGranularity);
+	}
+
+	public int size() {
+		return tree.size();
+	}
+}
@@ -0,0 +1,92 @@
+package p3;
+
+import java.util.Arrays;
+
+/**
+ * First in, first out page replacement: the page that was loaded first is
+ * evicted, no matter how often it is used. The loaded frames are kept in a
+ * doubly linked list in load order, stored as arrays of frame numbers.
+ */
+public class FifoReplacement implements PageReplacement
+{
+	/** The version of the serialized form */
+	private static final long serialVersionUID = 1L;
+
+	/** The frame after each frame in the list, or -1 */
+	protected int[] next;
+	/** The frame before each frame in the list, or -1 */
+	protected int[] previous;
+	/** The first frame in the list, the next victim, or -1 */
+	protected int first = -1;
+	/** The last frame in the list, or -1 */
+	protected int last = -1;
+	/** The number of frames examined so far */
+	protected long steps;
+
+	/**
+	 * Creates the policy for a number of frames, none of which hold pages.
+	 * @param nofFrames	The number of frames.
+	 */
+	public FifoReplacement(int nofFrames) {
+		next = new int[nofFrames];
+		previous = new int[nofFrames];
+		Arrays.fill(next, -1);
+		Arrays.fill(previous, -1);
+	}
+
+	public void loaded(int frame, long clock) {
+		append(frame);
+	}
+
+	public void referenced(int frame, long clock) {
+	}
+
+	public void freed(int frame) {
+		unlink(frame);
+	}
+
+	public int selectVictim(long clock) {
+		int frame = first;
+		unlink(frame);
+		steps++;
+		return frame;
+	}
+
+	public long getSteps() {
+		return steps;
+	}
+
+	/**
+	 * Adds a frame to the end of the list.
+	 * @param frame	The frame, which is not in the list.
+	 */
+	protected void append(int frame) {
+		previous[frame] = last;
+		next[frame] = -1;
+		if(last >= 0) {
+			next[last] = frame;
+		} else {
+			first = frame;
+		}
+		last = frame;
+	}
+
+	/**
+	 * Removes a frame from the list.
+	 * @param frame	The frame, which is in the list.
+	 */
+	protected void unlink(int frame) {
+		if(previous[frame] >= 0) {
+			next[previous[frame]] = next[frame];
+		} else {
+			first = next[frame];
+		}
+		if(next[frame] >= 0) {
+			previous[next[frame]] = previous[frame];
+		} else {
+			last = previous[frame];
+		}
+		next[frame] = -1;
+		previous[frame] = -1;
+	}
+}
@@ -0,0 +1,341 @@
+package p3;
+
+import java.io.Serializable;
+import java.util.*;
+
+/**
+ * An allocator keeping the free memory as a list of blocks, implementing
+ * the first-fit, best-fit and next-fit policies. The free blocks are held
+ * in two trees: one ordered by address, where freed blocks are merged with
+ * their free neighbours, and one ordered by size. Best-fit finds its block
+ * with a single lookup in the size tree.
+ *
+ * The address tree is a treap where every block also holds the size of
+ * the largest block below it. First-fit and next-fit walk down from the
+ * root, skipping every subtree whose largest block is too small, so they
+ * find the first large enough block at or after an address in O(log n)
+ * expected time instead of examining the blocks one by one. The treap
+ * priorities are a hash of the block address, so the shape of the tree,
+ * and with it the step counts, is the same in every run.
+ */
+public class FreeListAllocator implements MemoryAllocator
+{
+	/** The version of the serialized form */
+	private static final long serialVersionUID = 1L;
+
+	/** Use the free block with the lowest address that is large enough */
+	public static final int FIRST_FIT = 0;
+	/** Use the smallest free block that is large enough */
+	public static final int BEST_FIT = 1;
+	/** Use the first large enough free block after the previously allocated block */
+	public static final int NEXT_FIT = 2;
+
+	/**
+	 * A free block, which is also a node of the address treap. Blocks are
+	 * ordered by size, and by address among blocks of the same size.
+	 */
+	private static class Block implements Comparable<Block>, Serializable
+	{
+		/** The version of the serialized form */
+		private static final long serialVersionUID = 1L;
+
+		/** The address of the first KB of the block */
+		long address;
+		/** The size of the block (KB) */
+		long size;
+		/** The treap priority, a parent has a higher priority than its children */
+		long priority;
+		/** The size of the largest block in the subtree of this block */
+		long largest;
+		/** The subtrees with lower and higher addresses */
+		Block left, right;
+
+		Block(long address, long size) {
+			this.address = address;
+			this.size = size;
+		}
+
+		public int compareTo(Block other) {
+			if(size != other.size) {
+				return size < other.size ? -1 : 1;
+			}
+			return Long.compare(address, other.address);
+		}
+	}
+
+	/** The policy, FIRST_FIT, BEST_FIT or NEXT_FIT */
+	private int fit;
+	/** The root of the address treap of the free blocks, or null */
+	private Block root;
+	/** The free blocks, ordered by size */
+	private TreeSet<Block> blocksBySize;
+	/** The block used to search the size tree */
+	private Block probe;
+	/** The address where next-fit starts searching */
+	private long rover;
+	/** The amount of free memory */
+	private long freeMemory;
+	/** The number of steps taken so far */
+	private long steps;
+
+	/**
+	 * Creates an allocator for a memory that is all free.
+	 * @param memorySize	The size of the memory (KB).
+	 * @param fit			The policy, FIRST_FIT, BEST_FIT or NEXT_FIT.
+	 */
+	public FreeListAllocator(long memorySize, int fit) {
+		this.fit = fit;
+		blocksBySize = new TreeSet<Block>();
+		probe = new Block(0, 0);
+		addBlock(new Block(0, memorySize));
+		freeMemory = memorySize;
+	}
+
+	public long allocate(long size) {
+		steps++;
+		if(root == null || root.largest < size) {
+			return -1;
+		}
+		Block block;
+		if(fit == BEST_FIT) {
+			probe.size = size;
+			probe.address = -1;
+			block = blocksBySize.ceiling(probe);
+		} else if(fit == NEXT_FIT) {
+			// Start with the block holding the rover, if it is free
+			Block current = floor(rover);
+			long start = current != null && current.address+current.size > rover ? current.address : rover;
+			block = firstFit(root, start, size);
+			if(block == null) {
+				// Wrap around, the first block that fits is then before start
+				block = firstFit(root, Long.MIN_VALUE, size);
+			}
+		} else {
+			block = firstFit(root, Long.MIN_VALUE, size);
+		}
+		long address = block.address;
+		removeBlock(block);
+		if(block.size > size) {
+			// Split the block, the rest stays free
+			block.address += size;
+			block.size -= size;
+			addBlock(block);
+			steps++;
+		}
+		rover = address+size;
+		freeMemory -= size;
+		return address;
+	}
+
+	/**
+	 * Finds the first block at or after an address that is large enough,
+	 * counting every visited node as a step.
+	 * @param node	The root of the subtree to search.
+	 * @param start	The lowest acceptable address.
+	 * @param size	The amount of memory needed.
+	 * @return		The block with the lowest address that qualifies, or null if there is none.
+	 */
+	private Block firstFit(Block node, long start, long size) {
+		while(node != null && node.largest >= size) {
+			steps++;
+			if(node.address < start) {
+				node = node.right;
+				continue;
+			}
+			Block found = firstFit(node.left, start, size);
+			if(found != null) {
+				return found;
+			}
+			if(node.size >= size) {
+				return node;
+			}
+			node = node.right;
+		}
+		return null;
+	}
+
+	public void free(long address, long size) {
+		steps++;
+		freeMemory += size;
+		long end = address+size;
+		Block before = floor(address-1);
+		if(before != null && before.address+before.size == address) {
+			// Merge with the free block before
+			removeBlock(before);
+			address = before.address;
+			steps++;
+		}
+		Block after = floor(end);
+		if(after != null && after.address == end) {
+			// Merge with the free block after
+			removeBlock(after);
+			end += after.size;
+			steps++;
+		}
+		addBlock(new Block(address, end-address));
+	}
+
+	/**
+	 * Finds the free block with the highest address that is not above a given address.
+	 * @param address	The address.
+	 * @return			The block, or null if all free blocks start above the address.
+	 */
+	private Block floor(long address) {
+		Block result = null;
+		for(Block node = root; node != null; ) {
+			if(node.address <= address) {
+				result = node;
+				node = node.right;
+			} else {
+				node = node.left;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Adds a free block to both trees.
+	 * @param block	The block, which is in neither tree.
+	 */
+	private void addBlock(Block block) {
+		// The finalizer of SplitMix64, spreading neighbouring addresses over all priorities
+		long z = block.address*0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30))*0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27))*0x94D049BB133111EBL;
+		block.priority = z ^ (z >>> 31);
+		block.left = null;
+		block.right = null;
+		block.largest = block.size;
+		root = insert(root, block);
+		blocksBySize.add(block);
+	}
+
+	/**
+	 * Removes a free block from both trees.
+	 * @param block	The block.
+	 */
+	private void removeBlock(Block block) {
+		root = remove(root, block.address);
+		blocksBySize.remove(block);
+	}
+
+	/**
+	 * Inserts a block in a subtree of the address treap.
+	 * @param node	The root of the subtree, or null.
+	 * @param block	The block.
+	 * @return		The new root of the subtree.
+	 */
+	private static Block insert(Block node, Block block) {
+		if(node == null) {
+			return block;
+		}
+		if(block.address < node.address) {
+			node.left = insert(node.left, block);
+			if(node.left.priority > node.priority) {
+				node = rotateRight(node);
+			}
+		} else {
+			node.right = insert(node.right, block);
+			if(node.right.priority > node.priority) {
+				node = rotateLeft(node);
+			}
+		}
+		update(node);
+		return node;
+	}
+
+	/**
+	 * Removes the block with a given address from a subtree of the address treap.
+	 * @param node		The root of the subtree.
+	 * @param address	The address of the block, which must be in the subtree.
+	 * @return			The new root of the subtree.
+	 */
+	private static Block remove(Block node, long address) {
+		if(node.address == address) {
+			return merge(node.left, node.right);
+		}
+		if(address < node.address) {
+			node.left = remove(node.left, address);
+		} else {
+			node.right = remove(node.right, address);
+		}
+		update(node);
+		return node;
+	}
+
+	/**
+	 * Joins two subtrees, where every address in the first is below every address in the second.
+	 * @param low	The subtree with the lower addresses, or null.
+	 * @param high	The subtree with the higher addresses, or null.
+	 * @return		The root of the joined tree.
+	 */
+	private static Block merge(Block low, Block high) {
+		if(low == null) {
+			return high;
+		}
+		if(high == null) {
+			return low;
+		}
+		if(low.priority > high.priority) {
+			low.right = merge(low.right, high);
+			update(low);
+			return low;
+		}
+		high.left = merge(low, high.left);
+		update(high);
+		return high;
+	}
+
+	/**
+	 * Lifts the left child of a node above it.
+	 * @param node	The node.
+	 * @return		The new root of the subtree.
+	 */
+	private static Block rotateRight(Block node) {
+		Block child = node.left;
+		node.left = child.right;
+		child.right = node;
+		update(node);
+		return child;
+	}
+
+	/**
+	 * Lifts the right child of a node above it.
+	 * @param node	The node.
+	 * @return		The new root of the subtree.
+	 */
+	private static Block rotateLeft(Block node) {
+		Block child = node.right;
+		node.right = child.left;
+		child.left = node;
+		update(node);
+		return child;
+	}
+
+	/**
+	 * Recomputes the largest block in the subtree of a node from its children.
+	 * @param node	The node.
+	 */
+	private static void update(Block node) {
+		long largest = node.size;
+		if(node.left != null && node.left.largest > largest) {
+			largest = node.left.largest;
+		}
+		if(node.right != null && node.right.largest > largest) {
+			largest = node.right.largest;
+		}
+		node.largest = largest;
+	}
+
+	public long getFreeMemory() {
+		return freeMemory;
+	}
+
+	public long getLargestFreeBlock() {
+		return root == null ? 0 : root.largest;
+	}
+
+	public long getSteps() {
+		return steps;
+	}
+}
@@ -2,20 +2,24 @@ package p3;
 
 /**
  * The GUI methods that are publicly available to other parts of the program.
+ * The methods are called by the thread running the simulation, once or more
+ * per event, so implementations must be cheap and must not call Swing.
  */
 public interface Gui 
 {
 	/**
-	 * Controls which process is being shown as the process active in the CPU.
-	 * @param p		The process that is currently active, or null if the CPU is idle.
+	 * Controls which process is being shown as the process active in a CPU core.
+	 * @param core	The core.
+	 * @param p		The process that is currently active, or null if the core is idle.
 	 */
-	public void setCpuActive(Process p);
+	public void setCpuActive(int core, Process p);
 
 	/**
-	 * Controls which process is being shown as the process active in the I/O device.
-	 * @param p		The process that is currently active, or null if the I/O device is idle.
+	 * Controls which process is being shown as the process active in an I/O device.
+	 * @param device	The I/O device.
+	 * @param p			The process that is currently active, or null if the I/O device is idle.
 	 */
-	public void setIoActive(Process p);
+	public void setIoActive(int device, Process p);
 
 	/**
 	 * Lets the GUI know that a discrete amount of time has passed.
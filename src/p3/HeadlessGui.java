@@ -0,0 +1,31 @@
+package p3;
+
+/**
+ * A Gui implementation that displays nothing. Used when simulations
+ * are run without a display, so that the simulation runs at full speed.
+ */
+public class HeadlessGui implements Gui
+{
+	/**
+	 * Does nothing, there is no CPU to display.
+	 * @param core	The core.
+	 * @param p		The process that is currently active, or null if the core is idle.
+	 */
+	public void setCpuActive(int core, Process p) {
+	}
+
+	/**
+	 * Does nothing, there is no I/O device to display.
+	 * @param device	The I/O device.
+	 * @param p			The process that is currently active, or null if the I/O device is idle.
+	 */
+	public void setIoActive(int device, Process p) {
+	}
+
+	/**
+	 * Does nothing, the simulation is never slowed down.
+	 * @param time	The (simulated) time that has passed since the last call to this method.
+	 */
+	public void timePassed(long time) {
+	}
+}
@@ -1,28 +1,88 @@
 package p3;
 
+import java.io.Serializable;
+
 /**
- * This class implements the I/O device for the simulated system.
+ * This class implements an I/O device for the simulated system.
+ * A system can have several devices, each with its own queue and
+ * its own distribution of operation times.
  * 
  * @author Are
  *
  */
 
-public class IO {
+public class IO implements Constants, Serializable {
+	/** The version of the serialized form */
+	private static final long serialVersionUID = 1L;
+	
+	/** Operation times uniformly distributed between 1 and twice the average */
+	public static final int UNIFORM = 0;
+	/** Exponentially distributed operation times */
+	public static final int EXPONENTIAL = 1;
+	/** Every operation takes the average time */
+	public static final int CONSTANT = 2;
+	/** The names of the distributions, indexed by distribution */
+	private static final String[] DISTRIBUTION_NAMES = {"uniform", "exponential", "constant"};
 	
-	private Queue ioQueue;
+	private Queue<Process> ioQueue;
 	
 	private Statistics statistics;
 	
 	private Process activeProcess;
 	
+	/** The index of this device */
+	private int device;
+	
+	/** The distribution of operation times */
+	private int distribution;
+	
 	private long avgIoTime;
 	
 	private long nextIoTime;
+	
+	private RandomStreams random;
+	
+	private transient TraceRecorder trace;
 
-	public IO(Queue ioQueue, long avgIoTime, Statistics statistics) {
+	public IO(Queue<Process> ioQueue, int device, int distribution, long avgIoTime, Statistics statistics,
+			RandomStreams random, TraceRecorder trace) {
 		this.ioQueue = ioQueue;
+		this.device = device;
+		this.distribution = distribution;
 		this.statistics = statistics;
 		this.avgIoTime = avgIoTime;
+		this.random = random;
+		this.trace = trace;
+	}
+	
+	/**
+	 * Finds the distribution with the given name.
+	 * @param name	The name of the distribution: uniform, exponential or constant.
+	 * @return		The distribution, or -1 if there is no distribution with that name.
+	 */
+	public static int parseDistribution(String name) {
+		for (int i = 0; i < DISTRIBUTION_NAMES.length; i++) {
+			if (DISTRIBUTION_NAMES[i].equals(name)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+	
+	public int getDevice() {
+		return device;
+	}
+	
+	public Queue<Process> getQueue() {
+		return ioQueue;
+	}
+	
+	/**
+	 * Returns the number of processes waiting for or using this device.
+	 * @return	The length of the queue, plus one if the device is busy.
+	 */
+	public int getLoad() {
+		return ioQueue.getQueueLength()+(activeProcess == null ? 0 : 1);
 	}
 	
 	public void insertProcess(Process p) {
@@ -35,12 +95,14 @@ public class IO {
 	
 	public Process activateNext(long clock) {
 		if (activeProcess != null) {
-			activeProcess.leftIO(clock);	
+			activeProcess.leftIO(clock);
+			trace(clock, activeProcess, STATE_IO, STATE_READY_QUEUE);
 			activeProcess = null;
 		}
 		if (!ioQueue.isEmpty()) {
-			activeProcess = (Process)ioQueue.removeNext();
+			activeProcess = ioQueue.removeNext();
 			activeProcess.leftIoQueue(clock);
+			trace(clock, activeProcess, STATE_IO_QUEUE, STATE_IO);
 			return activeProcess;
 		}
 		return null;
@@ -49,8 +111,9 @@ public class IO {
 	public Process activateProcess(long clock) {
 		activeProcess = null;
 		if (!ioQueue.isEmpty()) {
-			activeProcess = (Process)ioQueue.removeNext();
+			activeProcess = ioQueue.removeNext();
 			activeProcess.leftIoQueue(clock);
+			trace(clock, activeProcess, STATE_IO_QUEUE, STATE_IO);
 		}
 		return activeProcess;
 	}
@@ -64,9 +127,14 @@ public class IO {
 	}
 	
 	public void updateNextIoTime(long clock) {
-		nextIoTime = clock + 1 + (long)(2*Math.random()*avgIoTime);
-		System.out.println("Printing next IO time");
-		System.out.println(nextIoTime);
+		double u = random.nextDouble(RandomStreams.IO_DURATION);
+		if (distribution == EXPONENTIAL) {
+			nextIoTime = clock + 1 + (long)(-Math.log(1-u)*avgIoTime);
+		} else if (distribution == CONSTANT) {
+			nextIoTime = clock + Math.max(1, avgIoTime);
+		} else {
+			nextIoTime = clock + 1 + (long)(2*u*avgIoTime);
+		}
 	}
 	
 	public boolean ioQueueIsEmpty() {
@@ -75,11 +143,21 @@ public class IO {
 	
 	
 	
+	private void trace(long clock, Process p, int from, int to) {
+		if (trace != null) {
+			trace.record(clock, p.getProcessId(), from, to);
+		}
+	}
+	
 	public void timePassed(long timePassed) {
 		statistics.ioQueueLengthTime += ioQueue.getQueueLength()*timePassed;
+		statistics.ioDeviceQueueLengthTime[device] += ioQueue.getQueueLength()*timePassed;
 		if (ioQueue.getQueueLength() > statistics.ioQueueLargestLength) {
 			statistics.ioQueueLargestLength = ioQueue.getQueueLength(); 
 		}
+		if (activeProcess != null) {
+			statistics.ioDeviceActiveTime[device] += timePassed;
+		}
     }
 
 
@@ -0,0 +1,125 @@
+package p3;
+
+import java.io.Serializable;
+import java.util.NoSuchElementException;
+
+/**
+ * A queue of int values, typically process slots in a ProcessTable. The
+ * values are stored in a ring buffer of primitive ints that grows when
+ * full, so the queue holds no object references at all and insertion and
+ * removal take constant time.
+ */
+public class IntQueue implements Serializable
+{
+	/** The version of the serialized form */
+	private static final long serialVersionUID = 1L;
+
+	/** The default initial capacity of a queue */
+	private static final int DEFAULT_CAPACITY = 16;
+
+	/** The ring buffer holding the content of the queue, its length is always a power of two */
+	private int[] content;
+	/** The index of the first element of the queue */
+	private int head;
+	/** The number of elements in the queue */
+	private int size;
+
+	/**
+	 * Creates a new, empty queue.
+	 */
+	public IntQueue() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates a new, empty queue with room for a given number of values
+	 * before the buffer has to grow.
+	 * @param initialCapacity	The number of values to allocate room for.
+	 */
+	public IntQueue(int initialCapacity) {
+		int capacity = DEFAULT_CAPACITY;
+		while(capacity < initialCapacity) {
+			capacity <<= 1;
+		}
+		content = new int[capacity];
+		head = 0;
+		size = 0;
+	}
+
+	/**
+	 * Inserts a value at the tail of the queue.
+	 * @param value	The value to be added to the queue.
+	 */
+	public void insert(int value) {
+		if(size == content.length) {
+			grow();
+		}
+		content[(head+size) & (content.length-1)] = value;
+		size++;
+	}
+
+	/**
+	 * Returns the first value in the queue, but does not remove it from the queue.
+	 * @return	The first value in the queue.
+	 * @throws NoSuchElementException	If the queue is empty.
+	 */
+	public int getNext() {
+		if(size == 0) {
+			throw new NoSuchElementException("Queue is empty");
+		}
+		return content[head];
+	}
+
+	/**
+	 * Returns the first value in the queue, and removes it from the queue.
+	 * @return	The value that was the first one in the queue.
+	 * @throws NoSuchElementException	If the queue is empty.
+	 */
+	public int removeNext() {
+		int result = getNext();
+		head = (head+1) & (content.length-1);
+		size--;
+		return result;
+	}
+
+	/**
+	 * Returns the value at a given position in the queue.
+	 * @param index	The position, 0 being the head of the queue.
+	 * @return		The value at the given position.
+	 * @throws IndexOutOfBoundsException	If there is no value at the given position.
+	 */
+	public int get(int index) {
+		if(index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index "+index+", size "+size);
+		}
+		return content[(head+index) & (content.length-1)];
+	}
+
+	/**
+	 * Checks whether the queue is empty or not.
+	 * @return	Whether or not the queue is empty.
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Returns the number of values in the queue.
+	 * @return	The length of the queue.
+	 */
+	public int getQueueLength() {
+		return size;
+	}
+
+	/**
+	 * Doubles the size of the ring buffer, moving the head of the queue to index 0.
+	 */
+	private void grow() {
+		int[] larger = new int[content.length*2];
+		int firstPart = content.length-head;
+		System.arraycopy(content, head, larger, 0, firstPart);
+		System.arraycopy(content, 0, larger, firstPart, head);
+		content = larger;
+		head = 0;
+	}
+}
@@ -0,0 +1,197 @@
+package p3;
+
+import java.io.*;
+import java.util.Arrays;
+
+/**
+ * A histogram of non-negative values with a fixed memory footprint, used
+ * to find percentiles of per-process times. The buckets are laid out
+ * log-linearly in the same way as in HdrHistogram: values below 128 get a
+ * bucket each, and every following power of two range is split into 64
+ * equally wide buckets. Any recorded value is therefore known to within
+ * 1/64 (about 1.6%) of its size, and the histogram covers the whole long
+ * range with 3712 buckets no matter how many values are recorded.
+ *
+ * Checkpoints store only the non-empty buckets, as pairs of bucket and
+ * count. A run fills a few hundred buckets at most, so this is a small
+ * fraction of the 29 KB the whole array would take.
+ */
+public class LatencyHistogram implements Serializable
+{
+	/** The version of the serialized form */
+	private static final long serialVersionUID = 1L;
+
+	/** The number of bits of precision kept for every value */
+	private static final int SUB_BUCKET_BITS = 7;
+	/** The number of buckets covering the values below 2^SUB_BUCKET_BITS */
+	private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+	/** The number of buckets in each following power of two range */
+	private static final int SUB_BUCKET_HALF = SUB_BUCKET_COUNT/2;
+	/** The total number of buckets needed to cover all long values */
+	private static final int NOF_BUCKETS = SUB_BUCKET_COUNT+(63-SUB_BUCKET_BITS)*SUB_BUCKET_HALF;
+
+	/** The number of recorded values in each bucket */
+	private transient long[] counts;
+	/** The number of recorded values */
+	private long totalCount;
+	/** The sum of all recorded values */
+	private long sum;
+	/** The largest recorded value */
+	private long max;
+
+	/**
+	 * Creates an empty histogram.
+	 */
+	public LatencyHistogram() {
+		counts = new long[NOF_BUCKETS];
+	}
+
+	/**
+	 * Records a value. Negative values are recorded as 0.
+	 * @param value	The value to record.
+	 */
+	public void record(long value) {
+		if(value < 0) {
+			value = 0;
+		}
+		counts[bucketOf(value)]++;
+		totalCount++;
+		sum += value;
+		if(value > max) {
+			max = value;
+		}
+	}
+
+	/**
+	 * Adds all values recorded in another histogram to this one.
+	 * @param other	The histogram to add.
+	 */
+	public void add(LatencyHistogram other) {
+		for(int i = 0; i < NOF_BUCKETS; i++) {
+			counts[i] += other.counts[i];
+		}
+		totalCount += other.totalCount;
+		sum += other.sum;
+		max = Math.max(max, other.max);
+	}
+
+	/**
+	 * Removes all recorded values.
+	 */
+	public void reset() {
+		Arrays.fill(counts, 0);
+		totalCount = 0;
+		sum = 0;
+		max = 0;
+	}
+
+	/**
+	 * Returns the number of recorded values.
+	 * @return	The number of recorded values.
+	 */
+	public long getCount() {
+		return totalCount;
+	}
+
+	/**
+	 * Returns the largest recorded value.
+	 * @return	The largest recorded value, or 0 if nothing has been recorded.
+	 */
+	public long getMax() {
+		return max;
+	}
+
+	/**
+	 * Returns the mean of the recorded values.
+	 * @return	The mean, or 0 if nothing has been recorded.
+	 */
+	public double getMean() {
+		return totalCount == 0 ? 0 : (double)sum/totalCount;
+	}
+
+	/**
+	 * Returns the value below which the given percentage of the recorded values fall.
+	 * The result is the upper end of the bucket holding that value, but never
+	 * more than the largest recorded value.
+	 * @param percentile	The percentile, between 0 and 100.
+	 * @return				The value at the percentile, or 0 if nothing has been recorded.
+	 */
+	public long getValueAtPercentile(double percentile) {
+		if(totalCount == 0) {
+			return 0;
+		}
+		long rank = (long)Math.ceil(Math.min(100, Math.max(0, percentile))/100*totalCount);
+		rank = Math.max(1, rank);
+		long seen = 0;
+		for(int i = 0; i < NOF_BUCKETS; i++) {
+			seen += counts[i];
+			if(seen >= rank) {
+				return Math.min(max, highestValueIn(i));
+			}
+		}
+		return max;
+	}
+
+	/**
+	 * Writes the histogram to a checkpoint.
+	 * @param out	The checkpoint stream.
+	 * @throws IOException	If writing failed.
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		int nonEmpty = 0;
+		for(long count : counts) {
+			if(count != 0) {
+				nonEmpty++;
+			}
+		}
+		out.writeInt(nonEmpty);
+		for(int i = 0; i < NOF_BUCKETS; i++) {
+			if(counts[i] != 0) {
+				out.writeShort(i);
+				out.writeLong(counts[i]);
+			}
+		}
+	}
+
+	/**
+	 * Reads the histogram from a checkpoint.
+	 * @param in	The checkpoint stream.
+	 * @throws IOException				If reading failed.
+	 * @throws ClassNotFoundException	If the checkpoint holds an unknown class.
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		counts = new long[NOF_BUCKETS];
+		for(int n = in.readInt(); n > 0; n--) {
+			counts[in.readShort()] = in.readLong();
+		}
+	}
+
+	/**
+	 * Returns the bucket that a value is counted in.
+	 * @param value	A non-negative value.
+	 * @return		The index of the bucket.
+	 */
+	private static int bucketOf(long value) {
+		if(value < SUB_BUCKET_COUNT) {
+			return (int)value;
+		}
+		int shift = 63-Long.numberOfLeadingZeros(value)-(SUB_BUCKET_BITS-1);
+		return SUB_BUCKET_COUNT+(shift-1)*SUB_BUCKET_HALF+(int)((value >>> shift)-SUB_BUCKET_HALF);
+	}
+
+	/**
+	 * Returns the largest value that is counted in a bucket.
+	 * @param bucket	The index of the bucket.
+	 * @return			The largest value of the bucket.
+	 */
+	private static long highestValueIn(int bucket) {
+		if(bucket < SUB_BUCKET_COUNT) {
+			return bucket;
+		}
+		int shift = (bucket-SUB_BUCKET_COUNT)/SUB_BUCKET_HALF+1;
+		long first = (long)((bucket-SUB_BUCKET_COUNT)%SUB_BUCKET_HALF+SUB_BUCKET_HALF) << shift;
+		return first+(1L << shift)-1;
+	}
+}
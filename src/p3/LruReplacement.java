@@ -0,0 +1,28 @@
+package p3;
+
+/**
+ * Least recently used page replacement: the page that has gone longest
+ * without a reference is evicted. This is the list of FifoReplacement,
+ * with every referenced frame moved to the end, so the first frame is
+ * always the least recently used one and every operation takes constant time.
+ */
+public class LruReplacement extends FifoReplacement
+{
+	/** The version of the serialized form */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Creates the policy for a number of frames, none of which hold pages.
+	 * @param nofFrames	The number of frames.
+	 */
+	public LruReplacement(int nofFrames) {
+		super(nofFrames);
+	}
+
+	public void referenced(int frame, long clock) {
+		if(frame != last) {
+			unlink(frame);
+			append(frame);
+		}
+	}
+}
@@ -1,31 +1,155 @@
 package p3;
 
+import java.io.Serializable;
+
 /**
  * This class implements functionality associated with
  * the memory device of the simulated system.
  */
-public class Memory {
-	/** The queue of processes waiting for free memory */
-	private Queue memoryQueue;
+public class Memory implements Constants, Serializable {
+	/** The version of the serialized form */
+	private static final long serialVersionUID = 1L;
+
+	/** Admit processes strictly in queue order */
+	public static final int ADMIT_FIFO = 0;
+	/** Admit the first process in the queue that fits, when the head does not */
+	public static final int ADMIT_FIRST_FIT = 1;
+	/** Like ADMIT_FIRST_FIT, until the head has waited longer than the starvation limit */
+	public static final int ADMIT_BACKFILL = 2;
+	/** The names of the admission policies, indexed by policy */
+	private static final String[] ADMISSION_NAMES = {"fifo", "firstfit", "backfill"};
+
+	/** The queue of processes waiting for free memory, left empty when the processes are kept in the index */
+	private Queue<Process> memoryQueue;
 	/** A reference to the statistics collector */
 	private Statistics statistics;
 	/** The amount of memory in the memory device */
 	private long memorySize;
-	/** The amount of free memory in the memory device */
-	private long freeMemory;
+	/** The allocator placing processes in the memory */
+	private MemoryAllocator allocator;
+	/** The amount of memory asked for by the processes in memory */
+	private long usedMemory;
+	/** The steps taken by the allocator that have been added to the statistics */
+	private long countedSteps;
+	/** The trace recorder, or null if tracing is off */
+	private transient TraceRecorder trace;
+	/** The admission policy, one of the ADMIT_ constants */
+	private int admission;
+	/** How long the head of the queue may wait before backfilling stops (ms) */
+	private long starvationLimit;
+	/** The ID of the process that was at the head of the queue and did not fit at the last check, 0 if none */
+	private long headId;
+	/** The time the current head was first found not to fit */
+	private long headSince;
+	/** Set when the current head has failed to fit although there was enough free memory */
+	private boolean headFragmented;
+	/** The queued processes in queue order indexed by memory need, or null when admitting in queue order */
+	private MemoryQueueIndex index;
+	/** The paged memory, or null if processes get contiguous memory from the allocator */
+	private PagedMemory pages;
+	/** The table holding the processes waiting for memory, or null if they are Process objects */
+	private ProcessTable table;
+	/** The slots in the table of the processes waiting for memory, in queue order, or null */
+	private IntQueue tableQueue;
+
+	/**
+	 * Creates a new memory device with the given parameters, assuming
+	 * perfect compaction of the allocated memory.
+	 * @param memoryQueue	The memory queue to be used.
+	 * @param memorySize	The amount of memory in the memory device.
+	 * @param statistics	A reference to the statistics collector.
+	 * @param trace			The trace recorder, or null if tracing is off.
+	 */
+    public Memory(Queue<Process> memoryQueue, long memorySize, Statistics statistics, TraceRecorder trace) {
+		this(memoryQueue, memorySize, new CompactingAllocator(memorySize), ADMIT_FIFO, 0, statistics, trace);
+    }
 
 	/**
 	 * Creates a new memory device with the given parameters.
 	 * @param memoryQueue	The memory queue to be used.
 	 * @param memorySize	The amount of memory in the memory device.
+	 * @param allocator		The allocator placing processes in the memory, managing memorySize KB.
+	 * @param admission		The admission policy, one of the ADMIT_ constants.
+	 * @param starvationLimit	How long the process at the head of the queue may be passed by
+	 *							others before backfilling stops (ms), used by ADMIT_BACKFILL.
 	 * @param statistics	A reference to the statistics collector.
+	 * @param trace			The trace recorder, or null if tracing is off.
 	 */
-    public Memory(Queue memoryQueue, long memorySize, Statistics statistics) {
+	public Memory(Queue<Process> memoryQueue, long memorySize, MemoryAllocator allocator,
+			int admission, long starvationLimit, Statistics statistics, TraceRecorder trace) {
 		this.memoryQueue = memoryQueue;
+		this.trace = trace;
 		this.memorySize = memorySize;
+		this.allocator = allocator;
+		this.admission = admission;
+		this.starvationLimit = starvationLimit;
 		this.statistics = statistics;
-		freeMemory = memorySize;
-    }
+		if(admission != ADMIT_FIFO) {
+			index = new MemoryQueueIndex();
+		}
+	}
+
+	/**
+	 * Creates a new memory device admitting processes in queue order, that
+	 * keeps the waiting processes in a process table rather than as Process
+	 * objects. A process gets its Process object when it is granted memory.
+	 * @param table			The table holding the waiting processes.
+	 * @param memorySize	The amount of memory in the memory device.
+	 * @param allocator		The allocator placing processes in the memory, managing memorySize KB.
+	 * @param statistics	A reference to the statistics collector.
+	 * @param trace			The trace recorder, or null if tracing is off.
+	 */
+	public Memory(ProcessTable table, long memorySize, MemoryAllocator allocator, Statistics statistics,
+			TraceRecorder trace) {
+		this.table = table;
+		this.trace = trace;
+		this.memorySize = memorySize;
+		this.allocator = allocator;
+		this.admission = ADMIT_FIFO;
+		this.statistics = statistics;
+		tableQueue = new IntQueue();
+	}
+
+	/**
+	 * Creates a new memory device with paged virtual memory. Processes are
+	 * admitted in queue order, without any of their pages in memory.
+	 * @param memoryQueue	The memory queue to be used.
+	 * @param memorySize	The amount of memory in the memory device.
+	 * @param pages			The paged memory, managing memorySize KB.
+	 * @param statistics	A reference to the statistics collector.
+	 * @param trace			The trace recorder, or null if tracing is off.
+	 */
+	public Memory(Queue<Process> memoryQueue, long memorySize, PagedMemory pages,
+			Statistics statistics, TraceRecorder trace) {
+		this.memoryQueue = memoryQueue;
+		this.trace = trace;
+		this.memorySize = memorySize;
+		this.pages = pages;
+		this.admission = ADMIT_FIFO;
+		this.statistics = statistics;
+	}
+
+	/**
+	 * Returns the paged memory.
+	 * @return	The paged memory, or null if memory is not paged.
+	 */
+	public PagedMemory getPages() {
+		return pages;
+	}
+
+	/**
+	 * Returns the admission policy with the given name.
+	 * @param name	The name of the policy: fifo, firstfit or backfill.
+	 * @return		The policy, or -1 if there is no policy with that name.
+	 */
+	public static int parseAdmission(String name) {
+		for(int i = 0; i < ADMISSION_NAMES.length; i++) {
+			if(ADMISSION_NAMES[i].equals(name)) {
+				return i;
+			}
+		}
+		return -1;
+	}
 
 	/**
 	 * Returns the amount of memory in the memory device.
@@ -40,39 +164,193 @@ public class Memory {
 	 * @param p	The process to be added.
 	 */
 	public void insertProcess(Process p) {
-		memoryQueue.insert(p);
+		if(index != null) {
+			index.add(p);
+		} else {
+			memoryQueue.insert(p);
+		}
+	}
+
+	/**
+	 * Adds a process kept in the process table to the memory queue.
+	 * @param slot	The slot of the process in the table.
+	 */
+	public void insertProcess(int slot) {
+		tableQueue.insert(slot);
+	}
+
+	/**
+	 * Returns the number of processes waiting for memory.
+	 * @return	The length of the memory queue.
+	 */
+	public int getQueueLength() {
+		if(index != null) {
+			return index.size();
+		}
+		return tableQueue != null ? tableQueue.getQueueLength() : memoryQueue.getQueueLength();
+	}
+
+	/**
+	 * Returns the ID of the process at a given position in the memory queue.
+	 * @param position	The position, 0 being the head of the queue.
+	 * @return			The ID of the process at the given position.
+	 * @throws IndexOutOfBoundsException	If there is no process at the given position.
+	 */
+	public long getQueuedProcessId(int position) {
+		if(index != null) {
+			return index.get(index.select(position)).getProcessId();
+		}
+		return tableQueue != null ? table.getProcessId(tableQueue.get(position)) : memoryQueue.get(position).getProcessId();
 	}
 
     /**
-     * Checks whether or not there is enough free memory to let
+     * Checks whether or not there is a free block large enough to let
 	 * the first process in the memory queue proceed to the cpu queue.
-	 * If there is, the process that was granted memory is returned,
-	 * otherwise null is returned.
+	 * If there is not, and the admission policy allows it, the first
+	 * process further back in the queue that fits is let through instead.
+	 * If a process was granted memory it is returned, otherwise null is returned.
+	 * The allocator is only asked for memory when its largest free block is
+	 * large enough, so a head that does not fit counts as one failed
+	 * allocation however many times it is checked.
      * @param clock The current time.
      */  
 	public Process checkMemory(long clock) {
-		if(!memoryQueue.isEmpty()) { 
-			Process nextProcess = (Process)memoryQueue.getNext();
-			if(nextProcess.getMemoryNeeded() <= freeMemory) {
-				// Allocate memory to this process
-				freeMemory -= nextProcess.getMemoryNeeded();
-				nextProcess.leftMemoryQueue(clock);
+		if(getQueueLength() > 0) { 
+			if(pages != null) {
+				Process nextProcess = memoryQueue.getNext();
+				if(!pages.admit(nextProcess)) {
+					return null;
+				}
 				memoryQueue.removeNext();
-				return nextProcess;
+				return admit(nextProcess, -1, clock);
+			}
+			if(table != null) {
+				return checkTable(clock);
+			}
+			int headLeaf = index != null ? index.findHead() : -1;
+			Process nextProcess = index != null ? index.get(headLeaf) : memoryQueue.getNext();
+			long largestFreeBlock = allocator.getLargestFreeBlock();
+			if(nextProcess.getMemoryNeeded() <= largestFreeBlock) {
+				// Memory is allocated to this process
+				long address = allocate(nextProcess.getMemoryNeeded());
+				if(index != null) {
+					index.remove(headLeaf);
+				} else {
+					memoryQueue.removeNext();
+				}
+				return admit(nextProcess, address, clock);
+			}
+			headFailed(nextProcess.getProcessId(), nextProcess.getMemoryNeeded(), clock);
+			if(admission == ADMIT_FIRST_FIT || (admission == ADMIT_BACKFILL && clock-headSince < starvationLimit)) {
+				// Every process that needs no more than the largest free block gets memory
+				int leaf = index.findFirst(largestFreeBlock);
+				if(leaf >= 0) {
+					Process p = index.remove(leaf);
+					long address = allocate(p.getMemoryNeeded());
+					statistics.nofBackfilledProcesses++;
+					return admit(p, address, clock);
+				}
 			}
 		}
 		return null;
 	}
 
+	/**
+	 * Lets the process at the head of the table queue through if there is a
+	 * large enough free block, creating its Process object.
+	 * @param clock	The current time.
+	 * @return		The process that was granted memory, or null.
+	 */
+	private Process checkTable(long clock) {
+		int slot = tableQueue.getNext();
+		long memoryNeeded = table.getMemoryNeeded(slot);
+		if(memoryNeeded > allocator.getLargestFreeBlock()) {
+			headFailed(table.getProcessId(slot), memoryNeeded, clock);
+			return null;
+		}
+		long address = allocate(memoryNeeded);
+		tableQueue.removeNext();
+		return admit(table.takeProcess(slot), address, clock);
+	}
+
+	/**
+	 * Counts that the process at the head of the queue found no large enough
+	 * free block, once for every process that reaches the head.
+	 * @param processId		The ID of the process at the head of the queue.
+	 * @param memoryNeeded	The amount of memory it needs.
+	 * @param clock			The current time.
+	 */
+	private void headFailed(long processId, long memoryNeeded, long clock) {
+		if(processId != headId) {
+			headId = processId;
+			headSince = clock;
+			headFragmented = false;
+			statistics.nofFailedAllocations++;
+		}
+		if(!headFragmented && memoryNeeded <= allocator.getFreeMemory()) {
+			// There is enough memory, but not in one piece
+			headFragmented = true;
+			statistics.nofFragmentationFailures++;
+		}
+	}
+
+	/**
+	 * Lets a process that was granted memory leave the memory queue.
+	 * @param p			The process, already removed from the memory queue.
+	 * @param address	The address of the memory allocated to the process.
+	 * @param clock		The current time.
+	 * @return			The process.
+	 */
+	private Process admit(Process p, long address, long clock) {
+		p.setMemoryAddress(address);
+		p.leftMemoryQueue(clock);
+		if(trace != null) {
+			trace.record(clock, p.getProcessId(), STATE_MEMORY_QUEUE, STATE_READY_QUEUE);
+		}
+		return p;
+	}
+
+	/**
+	 * Asks the allocator for a block that is known to fit.
+	 * @param size	The amount of memory needed, at most the largest free block.
+	 * @return		The address of the block.
+	 */
+	private long allocate(long size) {
+		long address = allocator.allocate(size);
+		statistics.nofAllocatorOperations++;
+		usedMemory += size;
+		countSteps();
+		return address;
+	}
+
+	/**
+	 * Adds the steps the allocator has taken since the last call to the
+	 * statistics. Adding rather than copying the allocator's total keeps
+	 * the counter consistent with the others when the warm-up is deleted.
+	 */
+	private void countSteps() {
+		long steps = allocator.getSteps();
+		statistics.allocatorSteps += steps-countedSteps;
+		countedSteps = steps;
+	}
+
 	/**
 	 * This method is called when a discrete amount of time has passed.
 	 * @param timePassed	The amount of time that has passed since the last call to this method.
 	 */
 	public void timePassed(long timePassed) {
-		statistics.memoryQueueLengthTime += memoryQueue.getQueueLength()*timePassed;
-		if (memoryQueue.getQueueLength() > statistics.memoryQueueLargestLength) {
-			statistics.memoryQueueLargestLength = memoryQueue.getQueueLength(); 
+		int queueLength = getQueueLength();
+		statistics.memoryQueueLengthTime += queueLength*timePassed;
+		if (queueLength > statistics.memoryQueueLargestLength) {
+			statistics.memoryQueueLargestLength = queueLength; 
 		}
+		if(pages != null) {
+			return;
+		}
+		long freeMemory = allocator.getFreeMemory();
+		statistics.freeMemoryTime += freeMemory*timePassed;
+		statistics.fragmentedMemoryTime += (freeMemory-allocator.getLargestFreeBlock())*timePassed;
+		statistics.roundingMemoryTime += (memorySize-freeMemory-usedMemory)*timePassed;
     }
     
 	/**
@@ -81,7 +359,14 @@ public class Memory {
 	 * @param p	The process that is leaving the system.
 	 */
     public void processCompleted(Process p) {
-		freeMemory += p.getMemoryNeeded();
+		if(pages != null) {
+			pages.release(p);
+			return;
+		}
+		allocator.free(p.getMemoryAddress(), p.getMemoryNeeded());
+		usedMemory -= p.getMemoryNeeded();
+		statistics.nofAllocatorOperations++;
+		countSteps();
     }
 }
 
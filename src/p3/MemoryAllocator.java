@@ -0,0 +1,51 @@
+package p3;
+
+import java.io.Serializable;
+
+/**
+ * A policy for placing processes in a contiguous memory. An allocator keeps
+ * track of which parts of the memory are free, and hands out a block of
+ * consecutive addresses to every admitted process. Free memory that is
+ * split into blocks too small for the next process is external
+ * fragmentation, which the Memory class measures using getFreeMemory and
+ * getLargestFreeBlock.
+ *
+ * Every allocator counts the steps its operations take, such as examined
+ * free blocks and split or merged blocks, so that the cost of the policies
+ * can be compared in the simulation report.
+ */
+public interface MemoryAllocator extends Serializable
+{
+	/**
+	 * Allocates a block of memory.
+	 * @param size	The amount of memory needed (KB).
+	 * @return		The address of the block, or -1 if no free block is large enough.
+	 */
+	public long allocate(long size);
+
+	/**
+	 * Frees a block returned by allocate.
+	 * @param address	The address of the block.
+	 * @param size		The amount of memory that was asked for when the block was allocated (KB).
+	 */
+	public void free(long address, long size);
+
+	/**
+	 * Returns the total amount of free memory.
+	 * @return	The free memory (KB).
+	 */
+	public long getFreeMemory();
+
+	/**
+	 * Returns the size of the largest free block, which is the most
+	 * memory a single allocation can currently get.
+	 * @return	The size of the largest free block (KB).
+	 */
+	public long getLargestFreeBlock();
+
+	/**
+	 * Returns the number of steps taken by all operations so far.
+	 * @return	The number of steps.
+	 */
+	public long getSteps();
+}
@@ -0,0 +1,193 @@
+package p3;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * The queue of processes waiting for memory, indexed so that the first
+ * process in queue order that needs no more than a given amount of memory
+ * can be found and removed without touching the rest of the queue.
+ *
+ * The processes are kept in arrival order in the leaves of a segment tree,
+ * where every inner node holds the smallest memory need and the number of
+ * processes below it. Finding the first process that fits is a single walk
+ * from the root, towards the left child whenever its smallest need fits,
+ * and the process at a given position is found by walking down the counts.
+ * Both take O(log n) time, and so does removing a process from anywhere in
+ * the queue. Removed processes leave empty leaves behind, which are
+ * squeezed out when the tree is rebuilt after running out of leaves at the
+ * tail.
+ */
+public class MemoryQueueIndex implements Serializable
+{
+	/** The version of the serialized form */
+	private static final long serialVersionUID = 1L;
+
+	/** The memory need of an empty leaf, larger than any real need */
+	private static final long EMPTY = Long.MAX_VALUE;
+
+	/** The number of leaves, a power of two */
+	private int capacity;
+	/** The process in each leaf, or null */
+	private Process[] processes;
+	/** The smallest memory need below each node, the root is node 1 and the leaves start at capacity */
+	private long[] smallestNeed;
+	/** The number of processes below each node */
+	private int[] count;
+	/** The leaf where the next process is added */
+	private int tail;
+
+	/**
+	 * Creates an empty index.
+	 */
+	public MemoryQueueIndex() {
+		allocate(16);
+	}
+
+	/**
+	 * Allocates an empty tree.
+	 * @param capacity	The number of leaves, a power of two.
+	 */
+	private void allocate(int capacity) {
+		this.capacity = capacity;
+		processes = new Process[capacity];
+		smallestNeed = new long[2*capacity];
+		count = new int[2*capacity];
+		Arrays.fill(smallestNeed, EMPTY);
+		tail = 0;
+	}
+
+	/**
+	 * Adds a process at the tail of the queue order.
+	 * @param p	The process.
+	 */
+	public void add(Process p) {
+		if(tail == capacity) {
+			rebuild();
+		}
+		setLeaf(tail++, p);
+	}
+
+	/**
+	 * Returns the number of indexed processes.
+	 * @return	The number of processes.
+	 */
+	public int size() {
+		return count[1];
+	}
+
+	/**
+	 * Finds the first process in queue order whose memory need is at most a limit.
+	 * @param limit	The largest acceptable memory need.
+	 * @return		The leaf holding the process, or -1 if no process fits.
+	 */
+	public int findFirst(long limit) {
+		if(smallestNeed[1] > limit) {
+			return -1;
+		}
+		int node = 1;
+		while(node < capacity) {
+			node = smallestNeed[2*node] <= limit ? 2*node : 2*node+1;
+		}
+		return node-capacity;
+	}
+
+	/**
+	 * Finds the first process in queue order.
+	 * @return	The leaf holding the process, or -1 if the index is empty.
+	 */
+	public int findHead() {
+		if(count[1] == 0) {
+			return -1;
+		}
+		int node = 1;
+		while(node < capacity) {
+			node = count[2*node] > 0 ? 2*node : 2*node+1;
+		}
+		return node-capacity;
+	}
+
+	/**
+	 * Returns the process in a leaf.
+	 * @param leaf	The leaf, as returned by findFirst or findHead.
+	 * @return		The process.
+	 */
+	public Process get(int leaf) {
+		return processes[leaf];
+	}
+
+	/**
+	 * Finds the process at a given position in queue order.
+	 * @param position	The number of processes ahead of it.
+	 * @return			The leaf holding the process.
+	 * @throws IndexOutOfBoundsException	If there is no process at the given position.
+	 */
+	public int select(int position) {
+		if(position < 0 || position >= count[1]) {
+			throw new IndexOutOfBoundsException("Position "+position+", size "+count[1]);
+		}
+		int node = 1;
+		while(node < capacity) {
+			if(count[2*node] > position) {
+				node = 2*node;
+			} else {
+				position -= count[2*node];
+				node = 2*node+1;
+			}
+		}
+		return node-capacity;
+	}
+
+	/**
+	 * Removes the process in a leaf.
+	 * @param leaf	The leaf.
+	 * @return		The removed process.
+	 */
+	public Process remove(int leaf) {
+		Process p = processes[leaf];
+		setLeaf(leaf, null);
+		return p;
+	}
+
+	/**
+	 * Stores a process in a leaf, updating the nodes above it.
+	 * @param leaf	The leaf.
+	 * @param p		The process, or null to empty the leaf.
+	 */
+	private void setLeaf(int leaf, Process p) {
+		processes[leaf] = p;
+		int node = leaf+capacity;
+		smallestNeed[node] = p != null ? p.getMemoryNeeded() : EMPTY;
+		count[node] = p != null ? 1 : 0;
+		for(node >>= 1; node > 0; node >>= 1) {
+			smallestNeed[node] = Math.min(smallestNeed[2*node], smallestNeed[2*node+1]);
+			count[node] = count[2*node]+count[2*node+1];
+		}
+	}
+
+	/**
+	 * Moves the processes to the first leaves of a new tree, with at least
+	 * as many free leaves as processes after them.
+	 */
+	private void rebuild() {
+		Process[] old = processes;
+		int oldTail = tail;
+		int newCapacity = 16;
+		while(newCapacity < 2*count[1]) {
+			newCapacity <<= 1;
+		}
+		allocate(newCapacity);
+		for(int leaf = 0; leaf < oldTail; leaf++) {
+			if(old[leaf] != null) {
+				processes[tail] = old[leaf];
+				smallestNeed[tail+capacity] = old[leaf].getMemoryNeeded();
+				count[tail+capacity] = 1;
+				tail++;
+			}
+		}
+		for(int node = capacity-1; node > 0; node--) {
+			smallestNeed[node] = Math.min(smallestNeed[2*node], smallestNeed[2*node+1]);
+			count[node] = count[2*node]+count[2*node+1];
+		}
+	}
+}
@@ -0,0 +1,147 @@
+package p3;
+
+/**
+ * Multi-level feedback queue scheduling. Every level has its own FIFO
+ * queue and time quant, level 0 having the highest priority. New processes
+ * start on level 0. A process that uses its whole time quant is moved one
+ * level down, and a process that gives up the CPU to do I/O is moved one
+ * level up. Every boostInterval ms all processes are moved back to level 0,
+ * so that long running processes are not starved.
+ *
+ * A bitmap keeps track of the non-empty levels, so picking the next process
+ * is a single bit scan no matter how many levels there are. A boost does
+ * not move any processes: the queues of all levels are handed over whole to
+ * level 0, in level order, and a process gets its new level when it is
+ * picked. A boost thus takes time in the number of levels, not processes.
+ */
+public class MultilevelFeedbackScheduler implements Scheduler
+{
+	/** The version of the serialized form */
+	private static final long serialVersionUID = 1L;
+
+	/** The largest number of levels, limited by the size of the bitmap */
+	public static final int MAX_LEVELS = 64;
+
+	/** The ready processes on each level, level 0 only holding those enqueued since the last boost */
+	private Queue<Process>[] levels;
+	/** The queues handed over to level 0 by boosts, in the order they come before levels[0] */
+	private Queue<Queue<Process>> boosted;
+	/** The time quant of each level */
+	private long[] quanta;
+	/** Bit i is set when level i has ready processes */
+	private long nonEmptyLevels;
+	/** The number of ready processes on all levels */
+	private int size;
+	/** The time between priority boosts, or 0 to never boost */
+	private long boostInterval;
+	/** The time of the next priority boost */
+	private long nextBoost;
+	/** The number of priority boosts done so far */
+	private long boostEpoch;
+
+	/**
+	 * Creates a multi-level feedback queue scheduler.
+	 * @param quanta		The time quant of each level, the highest priority level first.
+	 * @param boostInterval	The time between priority boosts (ms), or 0 to never boost.
+	 * @param statistics	The statistics, which get one entry per level.
+	 */
+	public MultilevelFeedbackScheduler(long[] quanta, long boostInterval, Statistics statistics) {
+		if (quanta.length < 1 || quanta.length > MAX_LEVELS) {
+			throw new IllegalArgumentException("The number of levels must be between 1 and "+MAX_LEVELS);
+		}
+		this.quanta = quanta.clone();
+		this.boostInterval = boostInterval;
+		this.nextBoost = boostInterval > 0 ? boostInterval : Long.MAX_VALUE;
+		levels = createLevels(quanta.length);
+		boosted = new Queue<Queue<Process>>();
+		statistics.nofSchedulerLevels = quanta.length;
+		statistics.levelCompletedProcesses = new long[quanta.length];
+		statistics.levelResponseTime = new long[quanta.length];
+		statistics.levelTimeSpentInSystem = new long[quanta.length];
+	}
+
+	/**
+	 * Creates the queues of the levels.
+	 * @param nofLevels	The number of levels.
+	 * @return			An empty queue for each level.
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private static Queue<Process>[] createLevels(int nofLevels) {
+		Queue<Process>[] levels = new Queue[nofLevels];
+		for (int level = 0; level < nofLevels; level++) {
+			levels[level] = new Queue<Process>();
+		}
+		return levels;
+	}
+
+	public void enqueue(Process p, long clock, boolean preempted) {
+		boostIfDue(clock);
+		int level = p.getPriorityLevel();
+		if (p.getBoostEpoch() != boostEpoch) {
+			// The process was running during a boost
+			level = 0;
+		} else if (preempted) {
+			level = Math.min(level+1, levels.length-1);
+		} else {
+			level = Math.max(level-1, 0);
+		}
+		p.setPriorityLevel(level, boostEpoch);
+		levels[level].insert(p);
+		nonEmptyLevels |= 1L << level;
+		size++;
+	}
+
+	public Process pickNext(long clock) {
+		boostIfDue(clock);
+		if (nonEmptyLevels == 0) {
+			return null;
+		}
+		int level = Long.numberOfTrailingZeros(nonEmptyLevels);
+		Process p;
+		if (level == 0 && !boosted.isEmpty()) {
+			Queue<Process> queue = boosted.getNext();
+			p = queue.removeNext();
+			if (queue.isEmpty()) {
+				boosted.removeNext();
+			}
+			p.setPriorityLevel(0, boostEpoch);
+		} else {
+			p = levels[level].removeNext();
+		}
+		if (levels[level].isEmpty() && (level > 0 || boosted.isEmpty())) {
+			nonEmptyLevels &= ~(1L << level);
+		}
+		size--;
+		return p;
+	}
+
+	public long quantumFor(Process p) {
+		return quanta[p.getPriorityLevel()];
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Moves all ready processes to level 0 if it is time for a priority boost,
+	 * by handing the queue of every level over to level 0. Ready processes
+	 * get level 0 when they are picked, running processes when they are
+	 * enqueued again.
+	 * @param clock	The current time.
+	 */
+	private void boostIfDue(long clock) {
+		if (clock < nextBoost) {
+			return;
+		}
+		boostEpoch++;
+		nextBoost = clock+boostInterval;
+		for (int level = 0; level < levels.length; level++) {
+			if (!levels[level].isEmpty()) {
+				boosted.insert(levels[level]);
+				levels[level] = new Queue<Process>();
+			}
+		}
+		nonEmptyLevels = size > 0 ? 1L : 0L;
+	}
+}
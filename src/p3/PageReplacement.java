@@ -0,0 +1,47 @@
+package p3;
+
+import java.io.Serializable;
+
+/**
+ * A page replacement policy. The policy keeps its own bookkeeping of the
+ * page frames that hold pages, in primitive arrays indexed by frame number,
+ * and chooses which frame to take from its page when a page fault finds
+ * no free frame. PagedMemory tells the policy whenever a frame is loaded,
+ * referenced or freed.
+ */
+public interface PageReplacement extends Serializable
+{
+	/**
+	 * Called when a page has been loaded into a frame.
+	 * @param frame	The frame.
+	 * @param clock	The time of the load.
+	 */
+	public void loaded(int frame, long clock);
+
+	/**
+	 * Called when the page in a frame is referenced.
+	 * @param frame	The frame.
+	 * @param clock	The time of the reference.
+	 */
+	public void referenced(int frame, long clock);
+
+	/**
+	 * Called when the process owning the page in a frame has exited.
+	 * @param frame	The frame, which no longer holds a page.
+	 */
+	public void freed(int frame);
+
+	/**
+	 * Chooses a frame whose page is evicted, and forgets the frame. Only
+	 * called when all frames hold pages.
+	 * @param clock	The time of the page fault.
+	 * @return		The frame.
+	 */
+	public int selectVictim(long clock);
+
+	/**
+	 * Returns the number of frames examined while choosing victims so far.
+	 * @return	The number of examined frames.
+	 */
+	public long getSteps();
+}
@@ -0,0 +1,237 @@
+package p3;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * A paged virtual memory. The memory is divided into page frames, and every
+ * admitted process has a page table mapping each of its pages to the frame
+ * holding it, or to -1 if the page is not in memory. Processes are admitted
+ * without any of their pages loaded, and reference pages while they run on
+ * the cpu. A reference to a page that is not in memory is a page fault: the
+ * process leaves the cpu and waits for an I/O operation that loads the page,
+ * evicting the page chosen by the replacement policy when no frame is free.
+ *
+ * The references of a process follow a simple locality model. Most of them
+ * go to a window of LOCALITY_PERCENT of its pages, and now and then the
+ * window moves to a random place. A process references one page every
+ * referenceInterval ms of cpu time.
+ *
+ * A process is only admitted if its window fits in the frames not yet
+ * promised to the windows of the admitted processes. This load control keeps
+ * the memory from thrashing, and bounds the memory used by page tables.
+ *
+ * The page tables and the frame table are primitive arrays, so that memories
+ * of millions of frames take a few bytes per frame.
+ */
+public class PagedMemory implements Serializable
+{
+	/** The version of the serialized form */
+	private static final long serialVersionUID = 1L;
+
+	/** The share of the pages of a process that most references go to (%) */
+	private static final int LOCALITY_PERCENT = 20;
+	/** The probability that a reference moves the locality window of its process */
+	private static final double LOCALITY_CHANGE = 0.02;
+
+	/** The size of a page and of a frame (KB) */
+	private int pageSize;
+	/** The cpu time between two page references of a process (ms) */
+	private long referenceInterval;
+	/** The replacement policy */
+	private PageReplacement replacement;
+	/** The number of frames */
+	private int nofFrames;
+	/** The resident slot of the process owning each frame, or -1 if the frame is free */
+	private int[] frameOwner;
+	/** The page held by each frame */
+	private int[] framePage;
+	/** Stack of free frames */
+	private int[] freeFrames;
+	/** The number of free frames on the stack */
+	private int nofFreeFrames;
+	/** The sum of the locality windows of the admitted processes, in frames */
+	private long committedFrames;
+	/** The admitted processes, indexed by resident slot */
+	private Process[] residents;
+	/** Stack of unused resident slots */
+	private int[] freeSlots;
+	/** The number of unused resident slots on the stack */
+	private int nofFreeSlots;
+	/** The steps taken by the replacement policy that have been added to the statistics */
+	private long countedSteps;
+	/** A reference to the statistics collector */
+	private Statistics statistics;
+	/** The random streams of the simulation */
+	private RandomStreams random;
+
+	/**
+	 * Creates a paged memory with all frames free.
+	 * @param memorySize		The size of the memory (KB).
+	 * @param pageSize			The size of a page (KB).
+	 * @param replacement		The replacement policy, created for memorySize/pageSize frames.
+	 * @param referenceInterval	The cpu time between two page references of a process (ms).
+	 * @param statistics		A reference to the statistics collector.
+	 * @param random			The random streams of the simulation.
+	 */
+	public PagedMemory(long memorySize, int pageSize, PageReplacement replacement, long referenceInterval,
+			Statistics statistics, RandomStreams random) {
+		this.pageSize = pageSize;
+		this.replacement = replacement;
+		this.referenceInterval = referenceInterval;
+		this.statistics = statistics;
+		this.random = random;
+		nofFrames = (int)(memorySize/pageSize);
+		frameOwner = new int[nofFrames];
+		framePage = new int[nofFrames];
+		Arrays.fill(frameOwner, -1);
+		freeFrames = new int[nofFrames];
+		for(int i = 0; i < nofFrames; i++) {
+			// The lowest frames are used first
+			freeFrames[i] = nofFrames-1-i;
+		}
+		nofFreeFrames = nofFrames;
+		residents = new Process[16];
+		freeSlots = new int[16];
+		for(int i = 0; i < residents.length; i++) {
+			freeSlots[i] = residents.length-1-i;
+		}
+		nofFreeSlots = residents.length;
+	}
+
+	/**
+	 * Returns the number of page frames.
+	 * @return	The number of frames.
+	 */
+	public int getNofFrames() {
+		return nofFrames;
+	}
+
+	/**
+	 * Returns the number of frames not holding any page.
+	 * @return	The number of free frames.
+	 */
+	public int getNofFreeFrames() {
+		return nofFreeFrames;
+	}
+
+	/**
+	 * Returns the number of pages in the locality window of a process.
+	 * @param nofPages	The number of pages of the process.
+	 * @return			The size of the window.
+	 */
+	private static int windowOf(int nofPages) {
+		return Math.max(1, nofPages*LOCALITY_PERCENT/100);
+	}
+
+	/**
+	 * Admits a process, giving it an empty page table. A process can be
+	 * admitted as long as its locality window fits in the uncommitted frames.
+	 * @param p	The process.
+	 * @return	true if the process was admitted.
+	 */
+	public boolean admit(Process p) {
+		int nofPages = (int)((p.getMemoryNeeded()+pageSize-1)/pageSize);
+		if(committedFrames+windowOf(nofPages) > nofFrames) {
+			return false;
+		}
+		if(nofFreeSlots == 0) {
+			growResidents();
+		}
+		committedFrames += windowOf(nofPages);
+		int slot = freeSlots[--nofFreeSlots];
+		residents[slot] = p;
+		int[] pageTable = new int[nofPages];
+		Arrays.fill(pageTable, -1);
+		p.setPageTable(pageTable, slot);
+		p.setLocalityBase((int)(random.nextDouble(RandomStreams.PAGE_REFERENCES)*pageTable.length));
+		return true;
+	}
+
+	/**
+	 * Frees the frames of a process that is leaving the system.
+	 * @param p	The process.
+	 */
+	public void release(Process p) {
+		int[] pageTable = p.getPageTable();
+		for(int page = 0; page < pageTable.length; page++) {
+			int frame = pageTable[page];
+			if(frame >= 0) {
+				replacement.freed(frame);
+				frameOwner[frame] = -1;
+				freeFrames[nofFreeFrames++] = frame;
+			}
+		}
+		committedFrames -= windowOf(pageTable.length);
+		residents[p.getResidentSlot()] = null;
+		freeSlots[nofFreeSlots++] = p.getResidentSlot();
+		p.setPageTable(null, -1);
+	}
+
+	/**
+	 * Makes the page references of a process during a cpu burst, up to the
+	 * first reference to a page that is not in memory. That page is remembered
+	 * as the fault page of the process.
+	 * @param p		The process, which has just been given the cpu.
+	 * @param clock	The time the burst starts.
+	 * @param burst	The length of the burst if there is no page fault (ms).
+	 * @return		The time into the burst of the page fault, or -1 if all referenced pages are in memory.
+	 */
+	public long runReferences(Process p, long clock, long burst) {
+		int[] pageTable = p.getPageTable();
+		int window = windowOf(pageTable.length);
+		for(long t = referenceInterval-p.getTimeSpentInCpu()%referenceInterval; t < burst; t += referenceInterval) {
+			if(random.nextDouble(RandomStreams.PAGE_REFERENCES) < LOCALITY_CHANGE) {
+				p.setLocalityBase((int)(random.nextDouble(RandomStreams.PAGE_REFERENCES)*pageTable.length));
+			}
+			int page = (p.getLocalityBase()+(int)(random.nextDouble(RandomStreams.PAGE_REFERENCES)*window))%pageTable.length;
+			statistics.nofPageReferences++;
+			if(pageTable[page] < 0) {
+				statistics.nofPageFaults++;
+				p.setFaultPage(page);
+				return t;
+			}
+			replacement.referenced(pageTable[page], clock+t);
+		}
+		return -1;
+	}
+
+	/**
+	 * Loads the fault page of a process into a frame, evicting another page
+	 * if no frame is free. Called when the I/O operation of the page fault is done.
+	 * @param p		The process.
+	 * @param clock	The current time.
+	 */
+	public void loadFaultPage(Process p, long clock) {
+		int frame;
+		if(nofFreeFrames > 0) {
+			frame = freeFrames[--nofFreeFrames];
+		} else {
+			frame = replacement.selectVictim(clock);
+			residents[frameOwner[frame]].getPageTable()[framePage[frame]] = -1;
+			statistics.nofPageEvictions++;
+			// Add the steps since the last eviction, so deleting the warm-up is not undone
+			long steps = replacement.getSteps();
+			statistics.replacementSteps += steps-countedSteps;
+			countedSteps = steps;
+		}
+		int page = p.getFaultPage();
+		p.getPageTable()[page] = frame;
+		frameOwner[frame] = p.getResidentSlot();
+		framePage[frame] = page;
+		replacement.loaded(frame, clock);
+		p.setFaultPage(-1);
+	}
+
+	/**
+	 * Doubles the number of resident slots.
+	 */
+	private void growResidents() {
+		int oldLength = residents.length;
+		residents = Arrays.copyOf(residents, 2*oldLength);
+		freeSlots = new int[residents.length];
+		for(int slot = residents.length-1; slot >= oldLength; slot--) {
+			freeSlots[nofFreeSlots++] = slot;
+		}
+	}
+}
@@ -0,0 +1,151 @@
+package p3;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Runs a simulation for every combination of a grid of parameter values,
+ * and writes one CSV row per combination with the parameters followed by
+ * the collected statistics. The simulations are independent and run on a
+ * fixed pool of threads, by default one per available processor.
+ *
+ * Parameters are given as for BatchSimulator. A parameter given with a
+ * comma separated list of values becomes an axis of the grid.
+ *
+ * Example: java p3.ParameterSweep --maxCpuTime=100,250,500 --memorySize=1024,2048 --output=sweep.csv
+ */
+public class ParameterSweep
+{
+	/** The base configuration, holding the parameters that are not swept */
+	private SimulationConfig base;
+	/** The names of the swept parameters */
+	private List<String> axisNames;
+	/** The values of each swept parameter */
+	private List<String[]> axisValues;
+
+	/**
+	 * Creates a sweep over a grid of parameter values.
+	 * @param base			The configuration holding the parameters that are not swept.
+	 * @param axisNames		The names of the swept parameters.
+	 * @param axisValues	The values of each swept parameter.
+	 */
+	public ParameterSweep(SimulationConfig base, List<String> axisNames, List<String[]> axisValues) {
+		this.base = base;
+		this.axisNames = axisNames;
+		this.axisValues = axisValues;
+	}
+
+	/**
+	 * Returns the configurations of all grid points, the last axis varying fastest.
+	 * @return	The configurations.
+	 * @throws IllegalArgumentException	If a grid point has invalid parameters.
+	 */
+	public List<SimulationConfig> getConfigurations() {
+		List<SimulationConfig> configs = new ArrayList<SimulationConfig>();
+		int[] index = new int[axisNames.size()];
+		while(true) {
+			SimulationConfig config = base.copy();
+			for(int i = 0; i < index.length; i++) {
+				config.set(axisNames.get(i), axisValues.get(i)[index[i]]);
+			}
+			config.validate();
+			configs.add(config);
+			int axis = index.length-1;
+			while(axis >= 0 && ++index[axis] == axisValues.get(axis).length) {
+				index[axis] = 0;
+				axis--;
+			}
+			if(axis < 0) {
+				return configs;
+			}
+		}
+	}
+
+	/**
+	 * Runs all configurations of the sweep in parallel and writes the results
+	 * as CSV, in grid order.
+	 * @param threads	The number of simulations to run at the same time.
+	 * @param out		Where to write the CSV lines.
+	 * @return			The number of configurations run.
+	 * @throws InterruptedException	If the thread is interrupted while waiting for results.
+	 * @throws ExecutionException	If a simulation failed.
+	 */
+	public int run(int threads, PrintWriter out) throws InterruptedException, ExecutionException {
+		List<SimulationConfig> configs = getConfigurations();
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<String>> rows = new ArrayList<Future<String>>();
+			for(final SimulationConfig config : configs) {
+				rows.add(pool.submit(new Callable<String>() {
+					public String call() {
+						Statistics statistics = config.runHeadless();
+						return config.toCsvRow()+","+statistics.toCsvRow();
+					}
+				}));
+			}
+			out.println(SimulationConfig.csvHeader()+","+Statistics.csvHeader());
+			for(Future<String> row : rows) {
+				out.println(row.get());
+			}
+			out.flush();
+			return configs.size();
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * Parses the grid, runs the sweep and writes the CSV file.
+	 * @param args	Parameters on the form --name=value or --name=value1,value2,...,
+	 *				and optionally --threads=n and --output=file.
+	 */
+	public static void main(String args[]) {
+		int threads = Runtime.getRuntime().availableProcessors();
+		String output = null;
+		List<String> baseArgs = new ArrayList<String>();
+		List<String> axisNames = new ArrayList<String>();
+		List<String[]> axisValues = new ArrayList<String[]>();
+		try {
+			for(String arg : args) {
+				int separator = arg.indexOf('=');
+				if(!arg.startsWith("--") || separator < 0) {
+					throw new IllegalArgumentException("Expected --name=value, got "+arg);
+				}
+				String name = arg.substring(2, separator);
+				String value = arg.substring(separator+1);
+				if(name.equals("threads")) {
+					threads = Integer.parseInt(value);
+				} else if(name.equals("output")) {
+					output = value;
+				} else if(value.indexOf(',') >= 0) {
+					axisNames.add(name);
+					axisValues.add(value.split(","));
+				} else {
+					baseArgs.add(arg);
+				}
+			}
+			SimulationConfig base = SimulationConfig.fromArguments(baseArgs.toArray(new String[0]));
+			ParameterSweep sweep = new ParameterSweep(base, axisNames, axisValues);
+			PrintWriter out = output == null ? new PrintWriter(System.out)
+				: new PrintWriter(new BufferedWriter(new FileWriter(output)));
+			long start = System.nanoTime();
+			int runs = sweep.run(threads, out);
+			if(output != null) {
+				out.close();
+			}
+			System.err.println("Ran "+runs+" configurations on "+threads+" threads in "
+				+(System.nanoTime()-start)/1000000+" ms");
+		} catch (IllegalArgumentException iae) {
+			System.err.println(iae.getMessage());
+			System.err.println("Usage: java p3.ParameterSweep [--threads=n] [--output=file] [--name=value[,value...] ...]");
+			System.exit(1);
+		} catch (IOException ioe) {
+			System.err.println("I/O error: "+ioe.getMessage());
+			System.exit(1);
+		} catch (Exception e) {
+			System.err.println("Sweep failed: "+e);
+			System.exit(1);
+		}
+	}
+}
@@ -0,0 +1,105 @@
+package p3;
+
+/**
+ * Two-phase priority round robin. The scheduler alternates between two
+ * phases, each lasting as many dispatches as there were ready processes
+ * when the phase started:
+ * in the RR phase processes run in the order they became ready, for at
+ * most maxCpuTime each; in the shortest job phase the processes that were
+ * ready when the phase started run in order of remaining cpu time, each
+ * until it is done or needs I/O. Processes becoming ready during the
+ * shortest job phase wait for the next phase.
+ *
+ * Every ready process is both in a list in FIFO order and in one of two
+ * heaps ordered on remaining cpu time, so either order can be served in
+ * O(log n) time, removing the process from the other structure through its
+ * handle. One heap holds the processes of the current shortest job phase,
+ * the other all processes that became ready since it started. When a
+ * shortest job phase starts the first heap is empty, so the two heaps are
+ * swapped instead of copying the ready processes.
+ */
+public class PriorityRoundRobinScheduler implements Scheduler
+{
+	/** The version of the serialized form */
+	private static final long serialVersionUID = 1L;
+
+	/** The phase where processes are picked in FIFO order */
+	private static final int RR_PHASE = 1;
+	/** The phase where processes are picked in order of remaining cpu time */
+	private static final int SHORTEST_PHASE = 2;
+
+	/** The ready processes, in the order they became ready */
+	private ProcessList readyList;
+	/** The processes left of those that were ready when the current shortest job phase started */
+	private ProcessHeap phaseShortestFirst;
+	/** The other ready processes, ordered on remaining cpu time */
+	private ProcessHeap shortestFirst;
+	/** The maximum time quant used in the RR phase */
+	private long maxCpuTime;
+	/** The current phase */
+	private int phase;
+	/** The number of dispatches left in the current phase */
+	private int itemsInPhase;
+
+	/**
+	 * Creates a priority round robin scheduler.
+	 * @param maxCpuTime	The maximum time quant used in the RR phase (ms).
+	 */
+	public PriorityRoundRobinScheduler(long maxCpuTime) {
+		this.readyList = new ProcessList();
+		this.phaseShortestFirst = new ProcessHeap();
+		this.shortestFirst = new ProcessHeap();
+		this.maxCpuTime = maxCpuTime;
+		this.phase = SHORTEST_PHASE;
+		this.itemsInPhase = 0;
+	}
+
+	public void enqueue(Process p, long clock, boolean preempted) {
+		readyList.addLast(p);
+		shortestFirst.add(p, p.getCpuTimeNeeded());
+	}
+
+	public Process pickNext(long clock) {
+		if (readyList.isEmpty()) {
+			return null;
+		}
+		if (itemsInPhase <= 0 || (phase == SHORTEST_PHASE && phaseShortestFirst.isEmpty())) {
+			startNextPhase();
+		}
+		itemsInPhase--;
+		Process p;
+		if (phase == RR_PHASE) {
+			// The phase heap is empty during the RR phase
+			p = readyList.removeFirst();
+			shortestFirst.remove(p);
+		} else {
+			p = phaseShortestFirst.poll();
+			readyList.remove(p);
+		}
+		return p;
+	}
+
+	/**
+	 * Switches to the other phase, which lasts as many dispatches as there are ready processes.
+	 */
+	private void startNextPhase() {
+		itemsInPhase = readyList.size();
+		if (phase == RR_PHASE) {
+			phase = SHORTEST_PHASE;
+			// Every ready process belongs to the new phase, and the emptied phase heap takes later arrivals
+			ProcessHeap ready = shortestFirst;
+			shortestFirst = phaseShortestFirst;
+			phaseShortestFirst = ready;
+		} else {
+			phase = RR_PHASE;
+		}
+	}
+
+	public long quantumFor(Process p) {
+		return phase == RR_PHASE ? maxCpuTime : p.getCpuTimeNeeded();
+	}
+
+	public int size() {
+		return readyList.size();
+	}
+}
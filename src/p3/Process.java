@@ -1,6 +1,6 @@
 package p3;
 
-import java.awt.*;
+import java.io.Serializable;
 import java.util.*;
 
 /**
@@ -10,16 +10,13 @@ import java.util.*;
  *
  * You will probably want to add more methods to this class.
  */
-public class Process implements Constants, Comparable<Process>
+public class Process implements Constants, Comparable<Process>, Serializable
 {
-	/** The ID of the next process to be created */
-	private static long nextProcessId = 1;
-	/** The font used by all processes */
-	private static Font font = new Font("Arial", Font.PLAIN, 10);
+	/** The version of the serialized form */
+	private static final long serialVersionUID = 1L;
+
 	/** The ID of this process */
 	private long processId;
-	/** The color of this process */
-	private Color color;
 	/** The amount of memory needed by this process */
     private long memoryNeeded;
 	/** The amount of cpu time still needed by this process */
@@ -47,47 +44,91 @@ public class Process implements Constants, Comparable<Process>
 
 	/** The global time of the last event involving this process */
 	private long timeOfLastEvent;
+	/** The global time when this process was created */
+	private long creationTime;
+	/** The time from creation until this process first got the CPU, or -1 if it has not run yet */
+	private long responseTime = -1;
+	/** The feedback queue level of this process, used by the MLFQ scheduler, 0 is the highest priority */
+	private int priorityLevel = 0;
+	/** The number of priority boosts the MLFQ scheduler had done when priorityLevel was last set */
+	private long boostEpoch = 0;
+	/** The virtual runtime of this process, used by the fair scheduler */
+	private long vruntime = 0;
+	/** The cpu time of this process that has been added to vruntime */
+	private long vruntimeCpuTime = 0;
+	/** The scheduling weight given by the nice value of this process, 0 until the fair scheduler has seen it */
+	private int weight = 0;
+	/** The address of the memory block allocated to this process */
+	private long memoryAddress = -1;
+	/** The frame holding each page of this process, or -1, when memory is paged */
+	private int[] pageTable;
+	/** The slot of this process among the processes admitted to paged memory */
+	private int residentSlot = -1;
+	/** The first page of the window that most page references of this process go to */
+	private int localityBase;
+	/** The page whose fault this process is waiting for, or -1 */
+	private int faultPage = -1;
+	/** The position of this process in the ProcessHeap holding it, or -1 if it is in no heap */
+	private int heapIndex = -1;
+	/** The process before this one in the ProcessList holding it, saved in checkpoints by the list */
+	private transient Process previousInList;
+	/** The process after this one in the ProcessList holding it, saved in checkpoints by the list */
+	private transient Process nextInList;
+
+	/** The random streams of the simulation this process belongs to */
+	private RandomStreams random;
 
 	/**
 	 * Creates a new process with given parameters. Other parameters are randomly
 	 * determined.
+	 * @param processId		The ID of this process, unique within its simulation.
 	 * @param memorySize	The size of the memory unit.
 	 * @param creationTime	The global time when this process is created.
+	 * @param random		The random streams of the simulation.
 	 */
-	public Process(long memorySize, long creationTime) {
+	public Process(long processId, long memorySize, long creationTime, RandomStreams random) {
+		this.random = random;
 		// Memory need varies from 100 kB to 25% of memory size
-		memoryNeeded = 100 + (long)(Math.random()*(memorySize/4-100));
+		memoryNeeded = 100 + (long)(random.nextDouble(RandomStreams.MEMORY_DEMAND)*(memorySize/4-100));
 		// CPU time needed varies from 100 to 10000 milliseconds
-		cpuTimeNeeded = 100 + (long)(Math.random()*9900);
+		cpuTimeNeeded = 100 + (long)(random.nextDouble(RandomStreams.CPU_DEMAND)*9900);
 		// Average interval between I/O requests varies from 1% to 25% of CPU time needed
-		avgIoInterval = (1 + (long)(Math.random()*25))*cpuTimeNeeded/100;
+		avgIoInterval = (1 + (long)(random.nextDouble(RandomStreams.IO_INTERVAL)*25))*cpuTimeNeeded/100;
 		// The first and latest event involving this process is its creation
 		timeOfLastEvent = creationTime;
-		// Assign a process ID
-		processId = nextProcessId++;
-		// Assign a pseudo-random color used by the GUI
-		int red = 64+(int)((processId*101)%128);
-		int green = 64+(int)((processId*47)%128);
-		int blue = 64+(int)((processId*53)%128);
-		color = new Color(red, green, blue);
+		this.creationTime = creationTime;
+		this.processId = processId;
 	}
 
 	/**
-	 * Draws this process as a colored box with a process ID inside.
-	 * @param g	The graphics context.
-	 * @param x	The leftmost x-coordinate of the box.
-	 * @param y	The topmost y-coordinate of the box.
-	 * @param w	The width of the box.
-	 * @param h	The height of the box.
+	 * Creates a new process with the given parameters, read from a workload
+	 * or kept in a ProcessTable while the process waited for memory.
+	 * @param processId		The ID of this process, unique within its simulation.
+	 * @param memoryNeeded	The amount of memory needed (KB).
+	 * @param cpuTimeNeeded	The cpu time needed (ms).
+	 * @param avgIoInterval	The average cpu time between I/O requests (ms), 0 or less for no I/O.
+	 * @param creationTime	The global time when this process is created.
+	 * @param random		The random streams of the simulation, used for the times of the I/O requests.
 	 */
-	public void draw(Graphics g, int x, int y, int w, int h) {
-		g.setColor(color);
-		g.fillRect(x, y, w, h);
-		g.setColor(Color.black);
-		g.drawRect(x, y, w, h);
-		g.setFont(font);
-		FontMetrics fm = g.getFontMetrics(font);
-		g.drawString(""+processId, x+w/2-fm.stringWidth(""+processId)/2, y+h/2+fm.getHeight()/2);
+	public Process(long processId, long memoryNeeded, long cpuTimeNeeded, long avgIoInterval, long creationTime,
+			RandomStreams random) {
+		this.random = random;
+		this.memoryNeeded = memoryNeeded;
+		this.cpuTimeNeeded = cpuTimeNeeded;
+		// Without I/O the next request is always further away than the cpu time needed
+		this.avgIoInterval = avgIoInterval > 0 ? avgIoInterval : Long.MAX_VALUE/4;
+		timeOfLastEvent = creationTime;
+		this.creationTime = creationTime;
+		this.processId = processId;
+	}
+
+	/**
+	 * Returns the ID of this process.
+	 * 
+	 * @return	The ID of this process.
+	 */
+	public long getProcessId() {
+		return processId;
 	}
 
 	/**
@@ -96,11 +137,9 @@ public class Process implements Constants, Comparable<Process>
      * @param clock The time when the process leaves the memory queue.
      */
     public void leftMemoryQueue(long clock) {
-    	System.out.println(processId);
-    	System.out.println("Left memory queue");
 		  timeSpentWaitingForMemory += clock - timeOfLastEvent;
 		  timeOfLastEvent = clock;
-		  timeToNextIoOperation = (long)20 + (long)(Math.random()*2*avgIoInterval);
+		  timeToNextIoOperation = (long)20 + (long)(random.nextDouble(RandomStreams.IO_INTERVAL)*2*avgIoInterval);
     }
     
     /**
@@ -111,11 +150,12 @@ public class Process implements Constants, Comparable<Process>
      */
     
     public void leftReadyQueue(long clock) {
-    	System.out.println(processId);
-    	System.out.println("Left ready queue");
     	timeSpentInReadyQueue += clock - timeOfLastEvent;
     	timeOfLastEvent = clock;
     	nofTimesInReadyQueue++;
+    	if (responseTime < 0) {
+    		responseTime = clock - creationTime;
+    	}
     }
     
     /**
@@ -126,19 +166,14 @@ public class Process implements Constants, Comparable<Process>
      */
     
     public void leftCPU(long clock) {
-    	System.out.println(processId);
-    	System.out.println("Left cpu");
     	timeSpentInCpu += (clock - timeOfLastEvent);
     	cpuTimeNeeded -= (clock - timeOfLastEvent);
     	if (cpuTimeNeeded < 0) {
     		System.err.println("Got negative cpuTimeNeeded");
-    		System.out.println(cpuTimeNeeded);
     		cpuTimeNeeded = 0;
     	}
     	timeToNextIoOperation -= (clock - timeOfLastEvent);
     	if (timeToNextIoOperation < 0) {
-    		System.out.println("Got negative time to next IO");
-    		System.out.println(timeToNextIoOperation);
     		timeToNextIoOperation = 0;
     	}
     	timeOfLastEvent = clock;
@@ -151,8 +186,6 @@ public class Process implements Constants, Comparable<Process>
      */
     
     public void leftIoQueue(long clock) {
-    	System.out.println(processId);
-    	System.out.println("Left io queue");
     	timeSpentWaitingForIo += (clock - timeOfLastEvent);
     	timeOfLastEvent = clock;
     	nofTimesInIoQueue++;
@@ -165,11 +198,12 @@ public class Process implements Constants, Comparable<Process>
      */
     
     public void leftIO(long clock) {
-    	System.out.println(processId);
-    	System.out.println("Left io");
     	timeSpentInIo += (clock - timeOfLastEvent);
     	timeOfLastEvent = clock;
-    	timeToNextIoOperation = (long)20 + (long)(Math.random()*2*avgIoInterval);
+    	if (faultPage < 0) {
+    		// Loading a page is not one of the process' own I/O operations
+    		timeToNextIoOperation = (long)20 + (long)(random.nextDouble(RandomStreams.IO_INTERVAL)*2*avgIoInterval);
+    	}
     }
 
     /**
@@ -201,6 +235,198 @@ public class Process implements Constants, Comparable<Process>
 		return timeToNextIoOperation;
 	}
 
+	/**
+	 * Returns the feedback queue level of this process.
+	 * @return	The level, 0 is the highest priority.
+	 */
+	public int getPriorityLevel() {
+		return priorityLevel;
+	}
+	
+	/**
+	 * Returns the number of priority boosts that had been done when the level was last set.
+	 * @return	The boost count.
+	 */
+	public long getBoostEpoch() {
+		return boostEpoch;
+	}
+	
+	/**
+	 * Sets the feedback queue level of this process.
+	 * @param priorityLevel	The level, 0 is the highest priority.
+	 * @param boostEpoch	The number of priority boosts done so far.
+	 */
+	public void setPriorityLevel(int priorityLevel, long boostEpoch) {
+		this.priorityLevel = priorityLevel;
+		this.boostEpoch = boostEpoch;
+	}
+
+	/**
+	 * Returns the time this process has spent processing so far.
+	 * @return	The cpu time used.
+	 */
+	public long getTimeSpentInCpu() {
+		return timeSpentInCpu;
+	}
+	
+	/**
+	 * Returns the virtual runtime of this process.
+	 * @return	The virtual runtime, in the units of the fair scheduler.
+	 */
+	public long getVruntime() {
+		return vruntime;
+	}
+	
+	/**
+	 * Returns the cpu time of this process that has been added to the virtual runtime.
+	 * @return	The cpu time counted in the virtual runtime.
+	 */
+	public long getVruntimeCpuTime() {
+		return vruntimeCpuTime;
+	}
+	
+	/**
+	 * Sets the virtual runtime of this process.
+	 * @param vruntime			The virtual runtime.
+	 * @param vruntimeCpuTime	The cpu time counted in the virtual runtime.
+	 */
+	public void setVruntime(long vruntime, long vruntimeCpuTime) {
+		this.vruntime = vruntime;
+		this.vruntimeCpuTime = vruntimeCpuTime;
+	}
+	
+	/**
+	 * Returns the scheduling weight of this process.
+	 * @return	The weight, or 0 if it has not been set.
+	 */
+	public int getWeight() {
+		return weight;
+	}
+	
+	/**
+	 * Sets the scheduling weight of this process.
+	 * @param weight	The weight, larger weights get more cpu time.
+	 */
+	public void setWeight(int weight) {
+		this.weight = weight;
+	}
+	
+	/**
+	 * Returns the address of the memory block allocated to this process.
+	 * @return	The address, or -1 if the process has not been given memory.
+	 */
+	long getMemoryAddress() {
+		return memoryAddress;
+	}
+	
+	/**
+	 * Sets the address of the memory block allocated to this process.
+	 * @param memoryAddress	The address returned by the memory allocator.
+	 */
+	void setMemoryAddress(long memoryAddress) {
+		this.memoryAddress = memoryAddress;
+	}
+	
+	/**
+	 * Returns the page table of this process.
+	 * @return	The frame holding each page, or -1 for pages not in memory, or null if memory is not paged.
+	 */
+	int[] getPageTable() {
+		return pageTable;
+	}
+	
+	/**
+	 * Returns the slot of this process among the processes admitted to paged memory.
+	 * @return	The slot, or -1 if the process is not in paged memory.
+	 */
+	int getResidentSlot() {
+		return residentSlot;
+	}
+	
+	/**
+	 * Sets the page table of this process.
+	 * @param pageTable		The page table, or null.
+	 * @param residentSlot	The slot of this process in paged memory, or -1.
+	 */
+	void setPageTable(int[] pageTable, int residentSlot) {
+		this.pageTable = pageTable;
+		this.residentSlot = residentSlot;
+	}
+	
+	/**
+	 * Returns the first page of the window that most page references of this process go to.
+	 * @return	The page.
+	 */
+	int getLocalityBase() {
+		return localityBase;
+	}
+	
+	/**
+	 * Moves the window that most page references of this process go to.
+	 * @param localityBase	The first page of the window.
+	 */
+	void setLocalityBase(int localityBase) {
+		this.localityBase = localityBase;
+	}
+	
+	/**
+	 * Returns the page whose fault this process is waiting for.
+	 * @return	The page, or -1 if the process is not waiting for a page.
+	 */
+	public int getFaultPage() {
+		return faultPage;
+	}
+	
+	/**
+	 * Sets the page whose fault this process is waiting for.
+	 * @param faultPage	The page, or -1.
+	 */
+	void setFaultPage(int faultPage) {
+		this.faultPage = faultPage;
+	}
+	
+	/**
+	 * Returns the position of this process in the ProcessHeap holding it.
+	 * @return	The position, or -1 if the process is in no heap.
+	 */
+	int getHeapIndex() {
+		return heapIndex;
+	}
+	
+	/**
+	 * Sets the position of this process in a ProcessHeap.
+	 * @param heapIndex	The position, or -1 if the process is in no heap.
+	 */
+	void setHeapIndex(int heapIndex) {
+		this.heapIndex = heapIndex;
+	}
+	
+	/**
+	 * Returns the process before this one in the ProcessList holding it.
+	 * @return	The previous process, or null if this process is first or in no list.
+	 */
+	Process getPreviousInList() {
+		return previousInList;
+	}
+	
+	/**
+	 * Returns the process after this one in the ProcessList holding it.
+	 * @return	The next process, or null if this process is last or in no list.
+	 */
+	Process getNextInList() {
+		return nextInList;
+	}
+	
+	/**
+	 * Sets the neighbours of this process in a ProcessList.
+	 * @param previous	The previous process, or null.
+	 * @param next		The next process, or null.
+	 */
+	void setListLinks(Process previous, Process next) {
+		this.previousInList = previous;
+		this.nextInList = next;
+	}
+
     /**
 	 * Updates the statistics collected by the given Statistic object, adding
 	 * data collected by this process. This method is called when the process
@@ -216,6 +442,22 @@ public class Process implements Constants, Comparable<Process>
 		statistics.totalNofTimesPlacedInIoQueue += nofTimesInIoQueue;
 		statistics.totalNofTimesPlacedInReadyQueue += nofTimesInReadyQueue;
 		statistics.nofCompletedProcesses++;
+		long timeInSystem = timeSpentInIo+timeSpentInCpu+timeSpentInReadyQueue
+			+timeSpentWaitingForIo+timeSpentWaitingForMemory;
+		statistics.timeInSystemHistogram.record(timeInSystem);
+		if (priorityLevel < statistics.nofSchedulerLevels) {
+			statistics.levelCompletedProcesses[priorityLevel]++;
+			statistics.levelTimeSpentInSystem[priorityLevel] += timeInSystem;
+			if (responseTime >= 0) {
+				statistics.levelResponseTime[priorityLevel] += responseTime;
+			}
+		}
+		statistics.waitingForMemoryHistogram.record(timeSpentWaitingForMemory);
+		statistics.waitingForCpuHistogram.record(timeSpentInReadyQueue);
+		statistics.waitingForIoHistogram.record(timeSpentWaitingForIo);
+		if (responseTime >= 0) {
+			statistics.responseTimeHistogram.record(responseTime);
+		}
 	}
 
 	@Override
@@ -0,0 +1,214 @@
+package p3;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * A binary min-heap of processes, each with a long key. Processes with
+ * equal keys come out in the order they were added. Every process in the
+ * heap remembers its position, so any process can be removed in O(log n)
+ * time without searching for it. A process can be in at most one heap at
+ * a time.
+ *
+ * The heap is kept in arrays that only grow, so adding and removing
+ * processes does not allocate memory once the heap has reached its
+ * largest size.
+ */
+public class ProcessHeap implements Serializable
+{
+	/** The version of the serialized form */
+	private static final long serialVersionUID = 1L;
+
+	/** The processes, in heap order */
+	private Process[] processes;
+	/** The key of the process at the same position */
+	private long[] keys;
+	/** The insertion number of the process at the same position, used to break ties */
+	private long[] order;
+	/** The number of processes in the heap */
+	private int size;
+	/** The insertion number given to the next added process */
+	private long nextOrder;
+
+	/**
+	 * Creates an empty heap.
+	 */
+	public ProcessHeap() {
+		processes = new Process[16];
+		keys = new long[16];
+		order = new long[16];
+	}
+
+	/**
+	 * Adds a process to the heap.
+	 * @param p		The process, which must not be in any heap.
+	 * @param key	The key of the process, smaller keys come out first.
+	 */
+	public void add(Process p, long key) {
+		if (p.getHeapIndex() >= 0) {
+			throw new IllegalStateException("Process "+p.getProcessId()+" is already in a heap");
+		}
+		if (size == processes.length) {
+			processes = Arrays.copyOf(processes, size*2);
+			keys = Arrays.copyOf(keys, size*2);
+			order = Arrays.copyOf(order, size*2);
+		}
+		set(size, p, key, nextOrder++);
+		size++;
+		siftUp(size-1);
+	}
+
+	/**
+	 * Returns the process with the smallest key without removing it.
+	 * @return	The process, or null if the heap is empty.
+	 */
+	public Process peek() {
+		return size == 0 ? null : processes[0];
+	}
+
+	/**
+	 * Returns the smallest key in the heap.
+	 * @return	The key of the first process.
+	 * @throws IllegalStateException	If the heap is empty.
+	 */
+	public long peekKey() {
+		if (size == 0) {
+			throw new IllegalStateException("The heap is empty");
+		}
+		return keys[0];
+	}
+
+	/**
+	 * Removes the process with the smallest key.
+	 * @return	The process, or null if the heap is empty.
+	 */
+	public Process poll() {
+		if (size == 0) {
+			return null;
+		}
+		Process first = processes[0];
+		removeAt(0);
+		return first;
+	}
+
+	/**
+	 * Removes a process from the heap.
+	 * @param p	The process.
+	 * @return	true if the process was in this heap.
+	 */
+	public boolean remove(Process p) {
+		int index = p.getHeapIndex();
+		if (index < 0 || index >= size || processes[index] != p) {
+			return false;
+		}
+		removeAt(index);
+		return true;
+	}
+
+	/**
+	 * Returns the number of processes in the heap.
+	 * @return	The size of the heap.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Checks whether the heap is empty.
+	 * @return	true if there are no processes in the heap.
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Removes the process at a position, moving the last process into its place.
+	 * @param index	The position.
+	 */
+	private void removeAt(int index) {
+		processes[index].setHeapIndex(-1);
+		size--;
+		if (index < size) {
+			set(index, processes[size], keys[size], order[size]);
+			processes[size] = null;
+			if (!siftUp(index)) {
+				siftDown(index);
+			}
+		} else {
+			processes[size] = null;
+		}
+	}
+
+	/**
+	 * Moves the process at a position up until its parent comes before it.
+	 * @param index	The position.
+	 * @return		true if the process was moved.
+	 */
+	private boolean siftUp(int index) {
+		Process p = processes[index];
+		long key = keys[index];
+		long rank = order[index];
+		int start = index;
+		while (index > 0) {
+			int parent = (index-1) >>> 1;
+			if (!before(key, rank, keys[parent], order[parent])) {
+				break;
+			}
+			set(index, processes[parent], keys[parent], order[parent]);
+			index = parent;
+		}
+		set(index, p, key, rank);
+		return index != start;
+	}
+
+	/**
+	 * Moves the process at a position down until it comes before its children.
+	 * @param index	The position.
+	 */
+	private void siftDown(int index) {
+		Process p = processes[index];
+		long key = keys[index];
+		long rank = order[index];
+		while (true) {
+			int child = 2*index+1;
+			if (child >= size) {
+				break;
+			}
+			if (child+1 < size && before(keys[child+1], order[child+1], keys[child], order[child])) {
+				child++;
+			}
+			if (!before(keys[child], order[child], key, rank)) {
+				break;
+			}
+			set(index, processes[child], keys[child], order[child]);
+			index = child;
+		}
+		set(index, p, key, rank);
+	}
+
+	/**
+	 * Checks whether an entry comes before another one.
+	 * @param key		The key of the entry.
+	 * @param rank		The insertion number of the entry.
+	 * @param otherKey	The key of the other entry.
+	 * @param otherRank	The insertion number of the other entry.
+	 * @return			true if the entry has the smaller key, or the same key and was added first.
+	 */
+	private static boolean before(long key, long rank, long otherKey, long otherRank) {
+		return key < otherKey || (key == otherKey && rank < otherRank);
+	}
+
+	/**
+	 * Stores an entry at a position and tells the process where it is.
+	 * @param index	The position.
+	 * @param p		The process.
+	 * @param key	The key of the process.
+	 * @param rank	The insertion number of the process.
+	 */
+	private void set(int index, Process p, long key, long rank) {
+		processes[index] = p;
+		keys[index] = key;
+		order[index] = rank;
+		p.setHeapIndex(index);
+	}
+}
@@ -0,0 +1,125 @@
+package p3;
+
+import java.io.*;
+
+/**
+ * A doubly linked list of processes where the links are stored in the
+ * processes themselves, so adding and removing processes never allocates
+ * memory, and any process can be removed in constant time. A process can
+ * be in at most one list at a time.
+ *
+ * Checkpoints store the processes of the list in order instead of the
+ * chain of links, which serialization would follow one stack frame per
+ * process.
+ */
+public class ProcessList implements Serializable
+{
+	/** The version of the serialized form */
+	private static final long serialVersionUID = 1L;
+
+	/** The first process in the list */
+	private transient Process first;
+	/** The last process in the list */
+	private transient Process last;
+	/** The number of processes in the list */
+	private transient int size;
+
+	/**
+	 * Adds a process to the end of the list.
+	 * @param p	The process, which must not be in any list.
+	 */
+	public void addLast(Process p) {
+		p.setListLinks(last, null);
+		if (last == null) {
+			first = p;
+		} else {
+			last.setListLinks(last.getPreviousInList(), p);
+		}
+		last = p;
+		size++;
+	}
+
+	/**
+	 * Returns the first process without removing it.
+	 * @return	The process, or null if the list is empty.
+	 */
+	public Process getFirst() {
+		return first;
+	}
+
+	/**
+	 * Removes the first process.
+	 * @return	The process, or null if the list is empty.
+	 */
+	public Process removeFirst() {
+		Process p = first;
+		if (p != null) {
+			remove(p);
+		}
+		return p;
+	}
+
+	/**
+	 * Removes a process from the list.
+	 * @param p	The process, which must be in this list.
+	 */
+	public void remove(Process p) {
+		Process previous = p.getPreviousInList();
+		Process next = p.getNextInList();
+		if (previous == null) {
+			first = next;
+		} else {
+			previous.setListLinks(previous.getPreviousInList(), next);
+		}
+		if (next == null) {
+			last = previous;
+		} else {
+			next.setListLinks(previous, next.getNextInList());
+		}
+		p.setListLinks(null, null);
+		size--;
+	}
+
+	/**
+	 * Returns the number of processes in the list.
+	 * @return	The size of the list.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Checks whether the list is empty.
+	 * @return	true if there are no processes in the list.
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Writes the list to a checkpoint.
+	 * @param out	The checkpoint stream.
+	 * @throws IOException	If writing failed.
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		out.writeInt(size);
+		for (Process p = first; p != null; p = p.getNextInList()) {
+			out.writeObject(p);
+		}
+	}
+
+	/**
+	 * Reads the list from a checkpoint, linking its processes again.
+	 * @param in	The checkpoint stream.
+	 * @throws IOException				If reading failed.
+	 * @throws ClassNotFoundException	If the checkpoint holds an unknown class.
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		int n = in.readInt();
+		for (int i = 0; i < n; i++) {
+			addLast((Process)in.readObject());
+		}
+	}
+}
@@ -0,0 +1,58 @@
+package p3;
+
+import java.awt.*;
+
+/**
+ * Draws processes in the GUI. Kept apart from the Process class so that
+ * simulations can run without loading any graphics classes.
+ */
+public class ProcessPainter
+{
+	/** The font used by all processes */
+	private static Font font = new Font("Arial", Font.PLAIN, 10);
+
+	/**
+	 * Draws a process as a colored box with a process ID inside. The color
+	 * is derived from the process ID, so a process keeps its color.
+	 * @param g	The graphics context.
+	 * @param p	The process to draw.
+	 * @param x	The leftmost x-coordinate of the box.
+	 * @param y	The topmost y-coordinate of the box.
+	 * @param w	The width of the box.
+	 * @param h	The height of the box.
+	 */
+	public static void draw(Graphics g, Process p, int x, int y, int w, int h) {
+		draw(g, p.getProcessId(), x, y, w, h);
+	}
+
+	/**
+	 * Draws a process, given by its ID, as a colored box with the ID inside.
+	 * @param g			The graphics context.
+	 * @param processId	The ID of the process to draw.
+	 * @param x			The leftmost x-coordinate of the box.
+	 * @param y			The topmost y-coordinate of the box.
+	 * @param w			The width of the box.
+	 * @param h			The height of the box.
+	 */
+	public static void draw(Graphics g, long processId, int x, int y, int w, int h) {
+		g.setColor(getColor(processId));
+		g.fillRect(x, y, w, h);
+		g.setColor(Color.black);
+		g.drawRect(x, y, w, h);
+		g.setFont(font);
+		FontMetrics fm = g.getFontMetrics(font);
+		g.drawString(""+processId, x+w/2-fm.stringWidth(""+processId)/2, y+h/2+fm.getHeight()/2);
+	}
+
+	/**
+	 * Returns the pseudo-random color used to display a process.
+	 * @param processId	The ID of the process.
+	 * @return			The color of the process.
+	 */
+	public static Color getColor(long processId) {
+		int red = 64+(int)((processId*101)%128);
+		int green = 64+(int)((processId*47)%128);
+		int blue = 64+(int)((processId*53)%128);
+		return new Color(red, green, blue);
+	}
+}
@@ -0,0 +1,178 @@
+package p3;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * A compact store for processes waiting for memory, used instead of
+ * Process objects when processStore=table is configured. In an overload
+ * run the memory queue grows to millions of processes, while the processes
+ * that hold memory are few. A waiting process only needs its ID, its
+ * demands and its creation time, which are kept in primitive arrays indexed
+ * by a slot number, so it costs no object allocation. Its Process object is
+ * created when it is granted memory, and its slot is then recycled through
+ * a free list, so the table only grows to the longest memory queue.
+ *
+ * The slots are stored in chunks of CHUNK_SIZE, each chunk holding one
+ * array per process field. Growing the table adds a chunk and never
+ * copies the slots already in use.
+ */
+public class ProcessTable implements Serializable
+{
+	/** The version of the serialized form */
+	private static final long serialVersionUID = 1L;
+
+	/** The number of bits of a slot that give its index within its chunk */
+	private static final int CHUNK_BITS = 12;
+	/** The number of slots in a chunk */
+	private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+	/** The mask giving the index of a slot within its chunk */
+	private static final int CHUNK_MASK = CHUNK_SIZE-1;
+
+	/**
+	 * The state of CHUNK_SIZE waiting processes, one array per field.
+	 */
+	private static class Chunk implements Serializable
+	{
+		/** The version of the serialized form */
+		private static final long serialVersionUID = 1L;
+
+		/** The ID of the process in each slot */
+		final long[] processId = new long[CHUNK_SIZE];
+		/** The amount of memory needed by each process */
+		final long[] memoryNeeded = new long[CHUNK_SIZE];
+		/** The amount of cpu time needed by each process */
+		final long[] cpuTimeNeeded = new long[CHUNK_SIZE];
+		/** The average time between the need for I/O operations for each process */
+		final long[] avgIoInterval = new long[CHUNK_SIZE];
+		/** The global time when each process was created */
+		final long[] creationTime = new long[CHUNK_SIZE];
+	}
+
+	/** The random streams used to determine process parameters */
+	private RandomStreams random;
+	/** The chunks holding the slots, only the first nofChunks are in use */
+	private Chunk[] chunks;
+	/** The number of chunks allocated */
+	private int nofChunks;
+	/** The number of slots ever taken into use */
+	private int used;
+	/** Stack of recycled slots */
+	private int[] freeSlots;
+	/** The number of recycled slots on the stack */
+	private int nofFreeSlots;
+	/** The number of processes currently in the table */
+	private int nofProcesses;
+
+	/**
+	 * Creates a new, empty process table.
+	 * @param random	The random streams of the simulation.
+	 */
+	public ProcessTable(RandomStreams random) {
+		this.random = random;
+		chunks = new Chunk[] {new Chunk()};
+		nofChunks = 1;
+		used = 0;
+		freeSlots = new int[CHUNK_SIZE];
+		nofFreeSlots = 0;
+		nofProcesses = 0;
+	}
+
+	/**
+	 * Creates a new process with the same randomly determined parameters as
+	 * the Process constructor, drawn in the same order, and returns the slot
+	 * holding it.
+	 * @param processId		The ID of the process, unique within its simulation.
+	 * @param memorySize	The size of the memory unit.
+	 * @param creationTime	The global time when this process is created.
+	 * @return				The slot of the new process.
+	 */
+	public int create(long processId, long memorySize, long creationTime) {
+		int slot;
+		if(nofFreeSlots > 0) {
+			slot = freeSlots[--nofFreeSlots];
+		} else {
+			if(used == getCapacity()) {
+				addChunk();
+			}
+			slot = used++;
+		}
+		nofProcesses++;
+		Chunk c = chunks[slot >>> CHUNK_BITS];
+		int i = slot & CHUNK_MASK;
+		// Memory need varies from 100 kB to 25% of memory size
+		c.memoryNeeded[i] = 100 + (long)(random.nextDouble(RandomStreams.MEMORY_DEMAND)*(memorySize/4-100));
+		// CPU time needed varies from 100 to 10000 milliseconds
+		c.cpuTimeNeeded[i] = 100 + (long)(random.nextDouble(RandomStreams.CPU_DEMAND)*9900);
+		// Average interval between I/O requests varies from 1% to 25% of CPU time needed
+		c.avgIoInterval[i] = (1 + (long)(random.nextDouble(RandomStreams.IO_INTERVAL)*25))*c.cpuTimeNeeded[i]/100;
+		c.creationTime[i] = creationTime;
+		c.processId[i] = processId;
+		return slot;
+	}
+
+	/**
+	 * Creates the Process object of a process in the table and releases its
+	 * slot, so that it can be reused by a later process. No random numbers
+	 * are drawn, so the process behaves exactly as if it had been created as
+	 * an object.
+	 * @param slot	The slot of the process.
+	 * @return		The process.
+	 */
+	public Process takeProcess(int slot) {
+		Chunk c = chunks[slot >>> CHUNK_BITS];
+		int i = slot & CHUNK_MASK;
+		Process p = new Process(c.processId[i], c.memoryNeeded[i], c.cpuTimeNeeded[i], c.avgIoInterval[i],
+				c.creationTime[i], random);
+		if(nofFreeSlots == freeSlots.length) {
+			freeSlots = Arrays.copyOf(freeSlots, freeSlots.length*2);
+		}
+		freeSlots[nofFreeSlots++] = slot;
+		nofProcesses--;
+		return p;
+	}
+
+	/**
+	 * Returns the number of processes currently held by the table.
+	 * @return	The number of processes.
+	 */
+	public int getNofProcesses() {
+		return nofProcesses;
+	}
+
+	/**
+	 * Returns the number of slots currently allocated.
+	 * @return	The capacity of the table.
+	 */
+	public int getCapacity() {
+		return nofChunks << CHUNK_BITS;
+	}
+
+	/**
+	 * Returns the ID of a process.
+	 * @param slot	The slot of the process.
+	 * @return		The ID of the process.
+	 */
+	public long getProcessId(int slot) {
+		return chunks[slot >>> CHUNK_BITS].processId[slot & CHUNK_MASK];
+	}
+
+	/**
+	 * Returns the amount of memory needed by a process.
+	 * @param slot	The slot of the process.
+	 * @return		The amount of memory needed by the process.
+	 */
+	public long getMemoryNeeded(int slot) {
+		return chunks[slot >>> CHUNK_BITS].memoryNeeded[slot & CHUNK_MASK];
+	}
+
+	/**
+	 * Adds a chunk of slots to the table, copying only the array of chunk references.
+	 */
+	private void addChunk() {
+		if(nofChunks == chunks.length) {
+			chunks = Arrays.copyOf(chunks, chunks.length*2);
+		}
+		chunks[nofChunks++] = new Chunk();
+	}
+}
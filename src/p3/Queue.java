@@ -1,73 +1,109 @@
 package p3;
 
+import java.io.Serializable;
 import java.util.*;
-import javax.swing.*;
-import java.awt.*;
 
 /**
- * A queue in a queuing network. This class both offers ordinary queue
- * functionality, as well as serving as a graphical component. This means
- * that updates to the queue will be automatically displayed in the GUI.
+ * A queue in a queuing network. The elements are stored in a ring buffer
+ * that grows when full, so insertion at the tail and removal from the head
+ * take constant time. The queue has no graphical representation of its own,
+ * the GUI displays snapshots of it taken by the simulation.
+ * @param <E>	The type of the elements in the queue.
  */
-public class Queue extends JPanel implements Constants {
-	/** The content of the queue */
-	private ArrayList content;
-	/** The name of the queue */
-	private String name;
-	/** The maximum number of elements of the queue that will be visible in the GUI */
-	private int maxVisibleLength;
-	/** The direction in which the queue is drawn, either EAST or WEST */
-	private int direction;
-	/** The font used by all queues */
-	private static Font font = new Font("Arial", Font.PLAIN, 12);
+public class Queue<E> implements Iterable<E>, Serializable {
+	/** The version of the serialized form */
+	private static final long serialVersionUID = 1L;
+
+	/** The default initial capacity of a queue */
+	private static final int DEFAULT_CAPACITY = 16;
+
+	/** The ring buffer holding the content of the queue, its length is always a power of two */
+	private Object[] content;
+	/** The index of the first element of the queue */
+	private int head;
+	/** The number of elements in the queue */
+	private int size;
 
 	/**
-	 * Creates a new queue with the given parameters.
-	 * @param name				The name of the queue, which will be shown in the GUI.
-	 * @param maxVisibleLength	The maximum number of elements of the queue that will be visible in the GUI.
-	 * @param direction			The direction in which the queue will be drawn, either EAST or WEST.
+	 * Creates a new, empty queue.
 	 */
-	public Queue(String name, int maxVisibleLength, int direction) {
-		this.name = name;
-		this.maxVisibleLength = maxVisibleLength;
-		this.direction = direction;
-		content = new ArrayList();
-		setBackground(Color.white);
+	public Queue() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates a new, empty queue with room for a given number of elements
+	 * before the buffer has to grow.
+	 * @param initialCapacity	The number of elements to allocate room for.
+	 */
+	public Queue(int initialCapacity) {
+		int capacity = DEFAULT_CAPACITY;
+		while(capacity < initialCapacity) {
+			capacity <<= 1;
+		}
+		content = new Object[capacity];
+		head = 0;
+		size = 0;
 	}
 
 	/**
 	 * Inserts a new element to the tail of the queue.
 	 * @param o	The object to be added to the queue.
 	 */
-	public void insert(Object o) {
-		content.add(o);
-		repaint();
+	public void insert(E o) {
+		if(size == content.length) {
+			grow();
+		}
+		content[(head+size) & (content.length-1)] = o;
+		size++;
 	}
 
 	/**
 	 * Returns the first element in the queue, but does not remove it from the queue.
 	 * @return	The first object in the queue.
+	 * @throws NoSuchElementException	If the queue is empty.
 	 */
-	public Object getNext() {
-		return content.get(0);
+	@SuppressWarnings("unchecked")
+	public E getNext() {
+		if(size == 0) {
+			throw new NoSuchElementException("Queue is empty");
+		}
+		return (E)content[head];
 	}
 
 	/**
 	 * Returns the first element in the queue, and removes it from the queue.
 	 * @return	The object that was the first one in the queue.
+	 * @throws NoSuchElementException	If the queue is empty.
 	 */
-	public Object removeNext() {
-		Object result = content.remove(0);
-		repaint();
+	public E removeNext() {
+		E result = getNext();
+		content[head] = null;
+		head = (head+1) & (content.length-1);
+		size--;
 		return result;
 	}
 
+	/**
+	 * Returns the element at a given position in the queue.
+	 * @param index	The position, 0 being the head of the queue.
+	 * @return		The element at the given position.
+	 * @throws IndexOutOfBoundsException	If there is no element at the given position.
+	 */
+	@SuppressWarnings("unchecked")
+	public E get(int index) {
+		if(index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index "+index+", size "+size);
+		}
+		return (E)content[(head+index) & (content.length-1)];
+	}
+
 	/**
 	 * Checks whether the queue is empty or not.
 	 * @return	Whether or not the queue is empty.
 	 */
 	public boolean isEmpty() {
-		return content.size() == 0;
+		return size == 0;
 	}
 
 	/**
@@ -75,74 +111,40 @@ public class Queue extends JPanel implements Constants {
 	 * @return	The length of the queue.
 	 */
 	public int getQueueLength() {
-		return content.size();
-	}
-	
-	public ArrayList getContent() {
-		return content;
-	}
-	
-	public Object removeSpecified(Object o) {
-		System.out.println("Called removeSpecified");
-		boolean found = content.remove(o);
-		repaint();
-		if (found) {
-			return o;			
-		} else {
-			System.err.println("Object to remove not found");
-			return null;
-		}
+		return size;
 	}
 
 	/**
-	 * Paints the queue as a horizontal row of slots containing processes.
-	 * This method assumes that the elements of the queue are Process objects.
-	 * @param g	The graphics context to paint the queue in.
+	 * Returns an iterator over the elements of the queue, from head to tail.
+	 * The queue must not be modified while the iterator is in use.
+	 * @return	An iterator over the queue.
 	 */
-	public void paintComponent(Graphics g) {
-		super.paintComponent(g);
-		int w = getWidth()-1;
-		int h = getHeight()-1;
-		g.setFont(font);
-		FontMetrics fm = g.getFontMetrics(font);
-		String heading = "Items in "+name+": "+content.size();
-		switch(direction) {
-		case EAST:
-			g.setColor(Color.black);
-			g.drawString(heading, w/2-fm.stringWidth(heading)/2, 15);
-			for(int i = 0; i < maxVisibleLength; i++) {
-				if(i < content.size()) {
-					Process p = (Process)content.get(i);
-					p.draw(g, w-(i+1)*w/(maxVisibleLength+1), 20, w/(maxVisibleLength+1), h-20);
-				}
-				else {
-					g.setColor(Color.black);
-					g.drawRect(w-(i+1)*w/(maxVisibleLength+1), 20, w/(maxVisibleLength+1), h-20);
-				}
+	public Iterator<E> iterator() {
+		return new Iterator<E>() {
+			private int index = 0;
+
+			public boolean hasNext() {
+				return index < size;
 			}
-			g.setColor(Color.red);
-			g.drawLine(0,20,w,20);
-			g.drawLine(w,20,w,h);
-			g.drawLine(0,h,w,h);
-			break;
-		case WEST:
-			g.setColor(Color.black);
-			g.drawString(heading, w/2-fm.stringWidth(heading)/2, 15);
-			for(int i = 0; i < maxVisibleLength; i++) {
-				if(i < content.size()) {
-					Process p = (Process)content.get(i);
-					p.draw(g, i*w/(maxVisibleLength+1), 20, w/(maxVisibleLength+1), h-20);
-				}
-				else {
-					g.setColor(Color.black);
-					g.drawRect(i*w/(maxVisibleLength+1), 20, w/(maxVisibleLength+1), h-20);
+
+			public E next() {
+				if(index >= size) {
+					throw new NoSuchElementException();
 				}
+				return get(index++);
 			}
-			g.setColor(Color.red);
-			g.drawLine(0,20,w,20);
-			g.drawLine(0,20,0,h);
-			g.drawLine(0,h,w,h);
-			break;
-		}
+		};
+	}
+
+	/**
+	 * Doubles the size of the ring buffer, moving the head of the queue to index 0.
+	 */
+	private void grow() {
+		Object[] larger = new Object[content.length*2];
+		int firstPart = content.length-head;
+		System.arraycopy(content, head, larger, 0, firstPart);
+		System.arraycopy(content, 0, larger, firstPart, head);
+		content = larger;
+		head = 0;
 	}
 }
@@ -0,0 +1,99 @@
+package p3;
+
+import javax.swing.*;
+import java.awt.*;
+
+/**
+ * Graphical component displaying a queue in a queuing network. The view
+ * shows the queue as it was in the last snapshot of the simulation given
+ * to it, it never looks at the queue itself.
+ */
+public class QueueView extends JPanel implements Constants {
+	/** The IDs of the first processes in the queue */
+	private long[] processIds;
+	/** The length of the queue */
+	private int length;
+	/** The name of the queue */
+	private String name;
+	/** The maximum number of elements of the queue that will be visible in the GUI */
+	private int maxVisibleLength;
+	/** The direction in which the queue is drawn, either EAST or WEST */
+	private int direction;
+	/** The font used by all queues */
+	private static Font font = new Font("Arial", Font.PLAIN, 12);
+
+	/**
+	 * Creates a new queue view with the given parameters, showing an empty queue.
+	 * @param name				The name of the queue, which will be shown in the GUI.
+	 * @param maxVisibleLength	The maximum number of elements of the queue that will be visible in the GUI.
+	 * @param direction			The direction in which the queue will be drawn, either EAST or WEST.
+	 */
+	public QueueView(String name, int maxVisibleLength, int direction) {
+		processIds = new long[0];
+		length = 0;
+		this.name = name;
+		this.maxVisibleLength = maxVisibleLength;
+		this.direction = direction;
+		setBackground(Color.white);
+	}
+
+	/**
+	 * Sets the content of the queue to display. Must be called on the event
+	 * dispatch thread, and takes effect when the view is next repainted.
+	 * @param processIds	The IDs of the first processes in the queue, head first.
+	 * @param length		The length of the queue.
+	 */
+	public void setContent(long[] processIds, int length) {
+		this.processIds = processIds;
+		this.length = length;
+	}
+
+	/**
+	 * Paints the queue as a horizontal row of slots containing processes.
+	 * @param g	The graphics context to paint the queue in.
+	 */
+	public void paintComponent(Graphics g) {
+		super.paintComponent(g);
+		int w = getWidth()-1;
+		int h = getHeight()-1;
+		g.setFont(font);
+		FontMetrics fm = g.getFontMetrics(font);
+		String heading = "Items in "+name+": "+length;
+		switch(direction) {
+		case EAST:
+			g.setColor(Color.black);
+			g.drawString(heading, w/2-fm.stringWidth(heading)/2, 15);
+			for(int i = 0; i < maxVisibleLength; i++) {
+				if(i < processIds.length) {
+					ProcessPainter.draw(g, processIds[i], w-(i+1)*w/(maxVisibleLength+1), 20, w/(maxVisibleLength+1), h-20);
+				}
+				else {
+					g.setColor(Color.black);
+					g.drawRect(w-(i+1)*w/(maxVisibleLength+1), 20, w/(maxVisibleLength+1), h-20);
+				}
+			}
+			g.setColor(Color.red);
+			g.drawLine(0,20,w,20);
+			g.drawLine(w,20,w,h);
+			g.drawLine(0,h,w,h);
+			break;
+		case WEST:
+			g.setColor(Color.black);
+			g.drawString(heading, w/2-fm.stringWidth(heading)/2, 15);
+			for(int i = 0; i < maxVisibleLength; i++) {
+				if(i < processIds.length) {
+					ProcessPainter.draw(g, processIds[i], i*w/(maxVisibleLength+1), 20, w/(maxVisibleLength+1), h-20);
+				}
+				else {
+					g.setColor(Color.black);
+					g.drawRect(i*w/(maxVisibleLength+1), 20, w/(maxVisibleLength+1), h-20);
+				}
+			}
+			g.setColor(Color.red);
+			g.drawLine(0,20,w,20);
+			g.drawLine(0,20,0,h);
+			g.drawLine(0,h,w,h);
+			break;
+		}
+	}
+}
@@ -0,0 +1,120 @@
+package p3;
+
+import java.io.Serializable;
+
+/**
+ * The random numbers used by a simulation. Every kind of random quantity
+ * is drawn from its own stream, so that for example changing how often
+ * I/O durations are drawn does not change the arrival times. All streams
+ * are derived from a single seed, so the same seed gives the same run.
+ *
+ * Every stream is a SplitMix64 generator, the algorithm of
+ * java.util.SplittableRandom, derived from the seed exactly as split() does.
+ * The generators are implemented here so that their state is two longs per
+ * stream that can be saved in a checkpoint, and restored to continue with
+ * the same numbers.
+ *
+ * The streams are not shared with any other simulation and are not
+ * synchronized, a RandomStreams object must only be used by one thread.
+ */
+public class RandomStreams implements Serializable
+{
+	/** The version of the serialized form */
+	private static final long serialVersionUID = 1L;
+
+	/** The gamma of the root generator, the odd integer closest to 2^64/phi */
+	private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+	/** Stream used for the time between process arrivals */
+	public static final int ARRIVALS = 0;
+	/** Stream used for the cpu time needed by processes */
+	public static final int CPU_DEMAND = 1;
+	/** Stream used for the memory needed by processes */
+	public static final int MEMORY_DEMAND = 2;
+	/** Stream used for the time between I/O requests of processes */
+	public static final int IO_INTERVAL = 3;
+	/** Stream used for the duration of I/O operations */
+	public static final int IO_DURATION = 4;
+	/** Stream used for routing I/O requests to devices */
+	public static final int IO_ROUTING = 5;
+	/** Stream used for the nice values of processes under the fair scheduler */
+	public static final int NICE = 6;
+	/** Stream used for the page references of processes in paged memory */
+	public static final int PAGE_REFERENCES = 7;
+	/** The number of streams */
+	public static final int NOF_STREAMS = 8;
+
+	/** The seed that all streams were derived from */
+	private long seed;
+	/** The state of the generator of each stream */
+	private long[] states;
+	/** The increment added to the state of each stream for every number drawn, always odd */
+	private long[] gammas;
+
+	/**
+	 * Creates the streams of a simulation from a seed.
+	 * @param seed	The seed.
+	 */
+	public RandomStreams(long seed) {
+		reseed(seed);
+	}
+
+	/**
+	 * Derives all streams from a new seed, as if this object had been created with it.
+	 * @param seed	The seed.
+	 */
+	public void reseed(long seed) {
+		this.seed = seed;
+		states = new long[NOF_STREAMS];
+		gammas = new long[NOF_STREAMS];
+		long rootState = seed;
+		for(int i = 0; i < NOF_STREAMS; i++) {
+			rootState += GOLDEN_GAMMA;
+			states[i] = mix64(rootState);
+			rootState += GOLDEN_GAMMA;
+			gammas[i] = mixGamma(rootState);
+		}
+	}
+
+	/**
+	 * Returns the seed that the streams were created from.
+	 * @return	The seed.
+	 */
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * Draws a number uniformly distributed between 0 (inclusive) and 1 (exclusive).
+	 * @param stream	The stream to draw from, one of the constants of this class.
+	 * @return			The drawn number.
+	 */
+	public double nextDouble(int stream) {
+		states[stream] += gammas[stream];
+		return (mix64(states[stream]) >>> 11)*0x1.0p-53;
+	}
+
+	/**
+	 * The output function of SplitMix64, David Stafford's variant 13 of the MurmurHash3 finalizer.
+	 * @param z	The generator state.
+	 * @return	The mixed value.
+	 */
+	private static long mix64(long z) {
+		z = (z ^ (z >>> 30))*0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27))*0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * Turns a generator state into the gamma of a new stream: an odd number
+	 * with enough bit transitions to give a good sequence.
+	 * @param z	The generator state.
+	 * @return	The gamma.
+	 */
+	private static long mixGamma(long z) {
+		z = (z ^ (z >>> 33))*0xff51afd7ed558ccdL;
+		z = (z ^ (z >>> 33))*0xc4ceb9fe1a85ec53L;
+		z = (z ^ (z >>> 33)) | 1L;
+		return Long.bitCount(z ^ (z >>> 1)) < 24 ? z ^ 0xaaaaaaaaaaaaaaaaL : z;
+	}
+}
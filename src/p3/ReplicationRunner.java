@@ -0,0 +1,396 @@
+package p3;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Runs independent replications of one simulation, using one thread per
+ * core, and reports the mean and a Student-t confidence interval of every
+ * metric. Replications are added until the confidence interval of a target
+ * metric is narrower than a given fraction of its mean, or until the budget
+ * of replications or wall clock time runs out.
+ *
+ * Replication i is simulated with the i-th seed drawn from a generator
+ * seeded with the configured seed, and the stopping rule looks at the
+ * replications in that order, so the result does not depend on the number
+ * of threads or on which replication happened to finish first. Replications
+ * that were started but turned out not to be needed are discarded.
+ *
+ * Parameters are given as for BatchSimulator, except trace and checkpoint.
+ *
+ * Example: java p3.ReplicationRunner --scheduler=cfs --target=avgTimeInSystem --precision=0.02
+ */
+public class ReplicationRunner
+{
+	/** The configuration of the simulation, the seed is only used to draw the seeds of the replications */
+	private SimulationConfig base;
+	/** The metric whose confidence interval decides when to stop */
+	private int target;
+	/** The largest accepted half-width of the confidence interval of the target, relative to its mean */
+	private double precision;
+	/** The confidence level of the intervals, for example 0.95 */
+	private double confidence;
+	/** The least number of replications */
+	private int minReplications;
+	/** The largest number of replications */
+	private int maxReplications;
+	/** The longest wall clock time to start new replications in, in milliseconds, 0 for no limit */
+	private long maxMillis;
+
+	/** The names of the metrics */
+	private String[] names;
+	/** The number of replications summarized */
+	private int n;
+	/** The running mean of each metric */
+	private double[] mean;
+	/** The running sum of squared deviations from the mean of each metric */
+	private double[] squares;
+
+	/**
+	 * Creates a replication runner.
+	 * @param base				The configuration of the simulation.
+	 * @param target			The name of the metric whose confidence interval decides when to stop.
+	 * @param precision			The largest accepted half-width of the target's interval, relative to its mean.
+	 * @param confidence		The confidence level of the intervals, between 0 and 1.
+	 * @param minReplications	The least number of replications, at least 2.
+	 * @param maxReplications	The largest number of replications.
+	 * @param maxMillis			The longest wall clock time to start new replications in, 0 for no limit.
+	 * @throws IllegalArgumentException	If the target is unknown or a limit is invalid.
+	 */
+	public ReplicationRunner(SimulationConfig base, String target, double precision, double confidence,
+			int minReplications, int maxReplications, long maxMillis) {
+		if(base.traceFile != null || base.checkpoint != null) {
+			throw new IllegalArgumentException("Replications can not be traced or checkpointed");
+		}
+		names = Statistics.getMetricNames();
+		this.target = Arrays.asList(names).indexOf(target);
+		if(this.target < 0) {
+			throw new IllegalArgumentException("Unknown metric "+target);
+		}
+		if(precision <= 0 || confidence <= 0 || confidence >= 1) {
+			throw new IllegalArgumentException("The precision must be positive and the confidence between 0 and 1");
+		}
+		if(minReplications < 2 || maxReplications < minReplications || maxMillis < 0) {
+			throw new IllegalArgumentException("At least 2 replications are needed, and no more than the maximum");
+		}
+		this.base = base;
+		this.precision = precision;
+		this.confidence = confidence;
+		this.minReplications = minReplications;
+		this.maxReplications = maxReplications;
+		this.maxMillis = maxMillis;
+		mean = new double[names.length];
+		squares = new double[names.length];
+	}
+
+	/**
+	 * Runs replications until the target precision is reached or the budget runs out.
+	 * @param threads	The number of replications to run at the same time.
+	 * @param rows		Where to write one CSV line per used replication, or null.
+	 * @return			true if the target precision was reached.
+	 * @throws InterruptedException	If the thread is interrupted while waiting for results.
+	 * @throws ExecutionException	If a simulation failed.
+	 */
+	public boolean run(int threads, PrintWriter rows) throws InterruptedException, ExecutionException {
+		long deadline = maxMillis > 0 ? System.currentTimeMillis()+maxMillis : Long.MAX_VALUE;
+		SplittableRandom seeds = new SplittableRandom(base.seed);
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		ArrayDeque<Future<Statistics>> running = new ArrayDeque<Future<Statistics>>();
+		ArrayDeque<SimulationConfig> configs = new ArrayDeque<SimulationConfig>();
+		int started = 0;
+		if(rows != null) {
+			rows.println(SimulationConfig.csvHeader()+","+Statistics.csvHeader());
+		}
+		try {
+			while(true) {
+				while(running.size() < threads && started < maxReplications && System.currentTimeMillis() < deadline) {
+					final SimulationConfig config = base.copy();
+					config.seed = seeds.nextLong();
+					configs.add(config);
+					running.add(pool.submit(new Callable<Statistics>() {
+						public Statistics call() {
+							return config.runHeadless();
+						}
+					}));
+					started++;
+				}
+				if(running.isEmpty()) {
+					return false;
+				}
+				Statistics statistics = running.poll().get();
+				SimulationConfig config = configs.poll();
+				add(statistics.getMetrics(config.simulationLength));
+				if(rows != null) {
+					rows.println(config.toCsvRow()+","+statistics.toCsvRow());
+				}
+				if(n >= minReplications && getRelativeHalfWidth(target) <= precision) {
+					return true;
+				}
+			}
+		} finally {
+			pool.shutdownNow();
+			if(rows != null) {
+				rows.flush();
+			}
+		}
+	}
+
+	/**
+	 * Adds the metrics of a replication to the running means and variances.
+	 * @param metrics	The metric values of the replication.
+	 */
+	private void add(double[] metrics) {
+		n++;
+		for(int i = 0; i < metrics.length; i++) {
+			double delta = metrics[i]-mean[i];
+			mean[i] += delta/n;
+			squares[i] += delta*(metrics[i]-mean[i]);
+		}
+	}
+
+	/**
+	 * Returns the number of replications summarized.
+	 * @return	The number of replications.
+	 */
+	public int getNofReplications() {
+		return n;
+	}
+
+	/**
+	 * Returns the half-width of the confidence interval of the mean of a metric.
+	 * @param metric	The index of the metric.
+	 * @return			The half-width, or infinity with fewer than 2 replications.
+	 */
+	public double getHalfWidth(int metric) {
+		if(n < 2) {
+			return Double.POSITIVE_INFINITY;
+		}
+		double variance = squares[metric]/(n-1);
+		return studentTQuantile(1-(1-confidence)/2, n-1)*Math.sqrt(variance/n);
+	}
+
+	/**
+	 * Returns the half-width of the confidence interval of a metric relative to its mean.
+	 * @param metric	The index of the metric.
+	 * @return			The relative half-width, 0 if the metric did not vary, and infinity if its mean is 0 but it varied.
+	 */
+	public double getRelativeHalfWidth(int metric) {
+		double halfWidth = getHalfWidth(metric);
+		if(halfWidth == 0) {
+			return 0;
+		}
+		return halfWidth/Math.abs(mean[metric]);
+	}
+
+	/**
+	 * Prints the mean and confidence interval of every metric.
+	 * @param out	Where to write the table.
+	 */
+	public void printReport(PrintStream out) {
+		out.println();
+		out.println("Replications:                                                "+n);
+		out.println(String.format("%-40s %16s %16s %10s", "Metric ("+Math.round(confidence*100)+"% confidence)",
+			"mean", "+-", "relative"));
+		for(int i = 0; i < names.length; i++) {
+			out.println(String.format("%-40s %16.4f %16.4f %9.2f%%%s", names[i], mean[i], getHalfWidth(i),
+				getRelativeHalfWidth(i)*100, i == target ? "  (target)" : ""));
+		}
+	}
+
+	/**
+	 * Returns the quantile of Student's t distribution, found by bisection
+	 * on the distribution function.
+	 * @param p		The probability, between 0.5 and 1.
+	 * @param df	The degrees of freedom.
+	 * @return		The value t such that P(T <= t) = p.
+	 */
+	static double studentTQuantile(double p, int df) {
+		double low = 0;
+		double high = 1;
+		while(studentTDistribution(high, df) < p) {
+			high *= 2;
+		}
+		for(int i = 0; i < 100 && high-low > 1e-12*high; i++) {
+			double middle = (low+high)/2;
+			if(studentTDistribution(middle, df) < p) {
+				low = middle;
+			} else {
+				high = middle;
+			}
+		}
+		return (low+high)/2;
+	}
+
+	/**
+	 * Returns the distribution function of Student's t distribution for a non-negative value.
+	 * @param t		The value, at least 0.
+	 * @param df	The degrees of freedom.
+	 * @return		P(T <= t).
+	 */
+	private static double studentTDistribution(double t, int df) {
+		double x = df/(df+t*t);
+		return 1-0.5*incompleteBeta(x, df/2.0, 0.5);
+	}
+
+	/**
+	 * Returns the regularized incomplete beta function I_x(a, b), evaluated
+	 * with the continued fraction of Numerical Recipes.
+	 * @param x	The argument, between 0 and 1.
+	 * @param a	The first shape parameter.
+	 * @param b	The second shape parameter.
+	 * @return	I_x(a, b).
+	 */
+	private static double incompleteBeta(double x, double a, double b) {
+		if(x <= 0) {
+			return 0;
+		}
+		if(x >= 1) {
+			return 1;
+		}
+		double front = Math.exp(logGamma(a+b)-logGamma(a)-logGamma(b)+a*Math.log(x)+b*Math.log(1-x));
+		if(x < (a+1)/(a+b+2)) {
+			return front*betaFraction(x, a, b)/a;
+		}
+		return 1-front*betaFraction(1-x, b, a)/b;
+	}
+
+	/**
+	 * Evaluates the continued fraction of the incomplete beta function with Lentz's method.
+	 * @param x	The argument.
+	 * @param a	The first shape parameter.
+	 * @param b	The second shape parameter.
+	 * @return	The value of the continued fraction.
+	 */
+	private static double betaFraction(double x, double a, double b) {
+		final double tiny = 1e-300;
+		double c = 1;
+		double d = 1-(a+b)*x/(a+1);
+		d = 1/(Math.abs(d) < tiny ? tiny : d);
+		double result = d;
+		for(int m = 1; m <= 300; m++) {
+			double even = m*(b-m)*x/((a+2*m-1)*(a+2*m));
+			d = 1/nonZero(1+even*d, tiny);
+			c = nonZero(1+even/c, tiny);
+			result *= d*c;
+			double odd = -(a+m)*(a+b+m)*x/((a+2*m)*(a+2*m+1));
+			d = 1/nonZero(1+odd*d, tiny);
+			c = nonZero(1+odd/c, tiny);
+			double step = d*c;
+			result *= step;
+			if(Math.abs(step-1) < 1e-15) {
+				break;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Replaces values too close to 0 in Lentz's method.
+	 * @param value	The value.
+	 * @param tiny	The smallest magnitude allowed.
+	 * @return		The value, or tiny if it was smaller in magnitude.
+	 */
+	private static double nonZero(double value, double tiny) {
+		return Math.abs(value) < tiny ? tiny : value;
+	}
+
+	/**
+	 * Returns the natural logarithm of the gamma function, using the Lanczos approximation.
+	 * @param x	A positive argument.
+	 * @return	ln(Gamma(x)).
+	 */
+	private static double logGamma(double x) {
+		final double[] coefficients = {76.18009172947146, -86.50532032941677, 24.01409824083091,
+			-1.231739572450155, 0.1208650973866179e-2, -0.5395239384953e-5};
+		double y = x;
+		double tmp = x+5.5;
+		tmp -= (x+0.5)*Math.log(tmp);
+		double series = 1.000000000190015;
+		for(double coefficient : coefficients) {
+			series += coefficient/++y;
+		}
+		return -tmp+Math.log(2.5066282746310005*series/x);
+	}
+
+	/**
+	 * Parses the parameters, runs the replications and prints the report.
+	 * @param args	Parameters on the form --name=value, and optionally --target=metric,
+	 *				--precision=fraction, --confidence=level, --minReplications=n,
+	 *				--maxReplications=n, --maxSeconds=s, --threads=n and --output=file.
+	 */
+	public static void main(String args[]) {
+		int threads = Runtime.getRuntime().availableProcessors();
+		String output = null;
+		String target = "avgTimeInSystem";
+		double precision = 0.02;
+		double confidence = 0.95;
+		int minReplications = 5;
+		int maxReplications = 1000;
+		long maxSeconds = 0;
+		List<String> simulationArgs = new ArrayList<String>();
+		try {
+			for(String arg : args) {
+				int separator = arg.indexOf('=');
+				if(!arg.startsWith("--") || separator < 0) {
+					throw new IllegalArgumentException("Expected --name=value, got "+arg);
+				}
+				String name = arg.substring(2, separator);
+				String value = arg.substring(separator+1);
+				try {
+					if(name.equals("threads")) {
+						threads = Integer.parseInt(value);
+					} else if(name.equals("output")) {
+						output = value;
+					} else if(name.equals("target")) {
+						target = value;
+					} else if(name.equals("precision")) {
+						precision = Double.parseDouble(value);
+					} else if(name.equals("confidence")) {
+						confidence = Double.parseDouble(value);
+					} else if(name.equals("minReplications")) {
+						minReplications = Integer.parseInt(value);
+					} else if(name.equals("maxReplications")) {
+						maxReplications = Integer.parseInt(value);
+					} else if(name.equals("maxSeconds")) {
+						maxSeconds = Long.parseLong(value);
+					} else {
+						simulationArgs.add(arg);
+					}
+				} catch (NumberFormatException nfe) {
+					throw new IllegalArgumentException("Invalid value for "+name+": "+value);
+				}
+			}
+			SimulationConfig base = SimulationConfig.fromArguments(simulationArgs.toArray(new String[0]));
+			ReplicationRunner runner = new ReplicationRunner(base, target, precision, confidence,
+				minReplications, maxReplications, maxSeconds*1000);
+			PrintWriter rows = output == null ? null : new PrintWriter(new BufferedWriter(new FileWriter(output)));
+			long start = System.nanoTime();
+			boolean reached;
+			try {
+				reached = runner.run(threads, rows);
+			} finally {
+				if(rows != null) {
+					rows.close();
+				}
+			}
+			runner.printReport(System.out);
+			System.err.println((reached ? "Reached" : "Did not reach")+" a relative half-width of "+precision+" on "
+				+target+" with "+runner.getNofReplications()+" replications on "+threads+" threads in "
+				+(System.nanoTime()-start)/1000000+" ms");
+		} catch (IllegalArgumentException iae) {
+			System.err.println(iae.getMessage());
+			System.err.println("Usage: java p3.ReplicationRunner [--target=metric] [--precision=fraction] [--confidence=level]");
+			System.err.println("       [--minReplications=n] [--maxReplications=n] [--maxSeconds=s] [--threads=n]");
+			System.err.println("       [--output=file] [--name=value ...]");
+			System.err.println("The target is any metric in the report, such as avgTimeInSystem, throughput or cpuUtilization");
+			System.exit(1);
+		} catch (IOException ioe) {
+			System.err.println("I/O error: "+ioe.getMessage());
+			System.exit(1);
+		} catch (Exception e) {
+			System.err.println("Replications failed: "+e);
+			System.exit(1);
+		}
+	}
+}
@@ -12,8 +12,8 @@ import java.awt.*;
 public class Resource extends JPanel {
 	/** The name of the resource */
 	private String name;
-	/** The process that is currently using the resource */
-	private Process activeProcess;
+	/** The ID of the process that is currently using the resource, or SimulationSnapshot.IDLE */
+	private long activeProcess;
 	/** The font used by all resources */
 	private static Font font = new Font("Arial", Font.PLAIN, 18);
 
@@ -23,17 +23,18 @@ public class Resource extends JPanel {
 	 */
 	public Resource(String name) {
 		this.name = name;
-		activeProcess = null;
+		activeProcess = SimulationSnapshot.IDLE;
 		setBackground(Color.white);
 	}
 
 	/**
 	 * Controls which process is being shown as currently using this resource.
-	 * @param p	The process that is currently using the resource, or null if the resource is idle.
+	 * Must be called on the event dispatch thread, and takes effect when the
+	 * resource is next repainted.
+	 * @param processId	The ID of the process that is currently using the resource, or SimulationSnapshot.IDLE.
 	 */
-	public void setActiveProcess(Process p) {
-		activeProcess = p;
-		repaint();
+	public void setActiveProcess(long processId) {
+		activeProcess = processId;
 	}
 
 	/**
@@ -50,8 +51,8 @@ public class Resource extends JPanel {
 		g.setFont(font);
 		FontMetrics fm = g.getFontMetrics(font);
 		g.drawString(name, w/2-fm.stringWidth(name)/2, h/2-10);
-		if(activeProcess != null)
-			activeProcess.draw(g, w/4, h/2, w/2, h/4);
+		if(activeProcess != SimulationSnapshot.IDLE)
+			ProcessPainter.draw(g, activeProcess, w/4, h/2, w/2, h/4);
 		else
 			g.drawString("(Idle)",w/2-fm.stringWidth("(Idle)")/2, 5*h/8+fm.getHeight()/2);
 	}
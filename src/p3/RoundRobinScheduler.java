@@ -0,0 +1,42 @@
+package p3;
+
+/**
+ * Plain round robin: processes run in the order they became ready,
+ * each for at most a fixed time quant.
+ */
+public class RoundRobinScheduler implements Scheduler
+{
+	/** The version of the serialized form */
+	private static final long serialVersionUID = 1L;
+
+	/** The ready processes, in the order they became ready */
+	private Queue<Process> readyQueue;
+	/** The maximum time quant */
+	private long maxCpuTime;
+
+	/**
+	 * Creates a round robin scheduler.
+	 * @param readyQueue	The queue holding the ready processes.
+	 * @param maxCpuTime	The maximum time quant (ms).
+	 */
+	public RoundRobinScheduler(Queue<Process> readyQueue, long maxCpuTime) {
+		this.readyQueue = readyQueue;
+		this.maxCpuTime = maxCpuTime;
+	}
+
+	public void enqueue(Process p, long clock, boolean preempted) {
+		readyQueue.insert(p);
+	}
+
+	public Process pickNext(long clock) {
+		return readyQueue.isEmpty() ? null : readyQueue.removeNext();
+	}
+
+	public long quantumFor(Process p) {
+		return maxCpuTime;
+	}
+
+	public int size() {
+		return readyQueue.getQueueLength();
+	}
+}
@@ -0,0 +1,47 @@
+package p3;
+
+import java.io.Serializable;
+
+/**
+ * A CPU scheduling policy. A scheduler holds the processes that are ready
+ * to run, in a data structure of its own, and decides which of them gets
+ * a core next and for how long. The CPU calls enqueue when a process
+ * becomes ready, pickNext when a core becomes free, and quantumFor right
+ * after pickNext to find out when the picked process must be switched out.
+ *
+ * Schedulers are called for every dispatch, so enqueue and pickNext
+ * should not allocate memory. They are saved in checkpoints with the rest
+ * of the simulator, which is why the interface extends Serializable.
+ */
+public interface Scheduler extends Serializable
+{
+	/**
+	 * Adds a process that has become ready to run.
+	 * @param p			The process.
+	 * @param clock		The time the process became ready.
+	 * @param preempted	true if the process was switched out after using its whole
+	 *					time quant, false if it is new or has finished an I/O operation.
+	 */
+	public void enqueue(Process p, long clock, boolean preempted);
+
+	/**
+	 * Removes the process that should run next from the ready processes.
+	 * @param clock	The time of the dispatch.
+	 * @return		The process, or null if no process is ready.
+	 */
+	public Process pickNext(long clock);
+
+	/**
+	 * Returns how long a process just returned by pickNext may run
+	 * before it is switched out.
+	 * @param p	The process.
+	 * @return	The time quant (ms).
+	 */
+	public long quantumFor(Process p);
+
+	/**
+	 * Returns the number of processes that are ready to run.
+	 * @return	The number of enqueued processes.
+	 */
+	public int size();
+}
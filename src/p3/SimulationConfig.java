@@ -0,0 +1,425 @@
+package p3;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * This class contains the parameters of a simulation run. The parameters
+ * can be given as command line arguments on the form --name=value, or
+ * read from a properties file containing name=value lines. Parameters
+ * that are not specified keep their default values.
+ */
+public class SimulationConfig
+{
+	/** The size of the memory (KB) */
+	public long memorySize = 2048;
+	/** The memory allocation policy, one of the names in ALLOCATORS */
+	public String memoryAllocator = "compact";
+	/** The names of the memory allocation policies, compact assumes perfect compaction */
+	private static final String[] ALLOCATORS = {"compact", "firstfit", "bestfit", "nextfit", "buddy"};
+	/** How processes are admitted from the memory queue: fifo, firstfit (the first process that fits) or backfill */
+	public String memoryAdmission = "fifo";
+	/** How long the process at the head of the memory queue may be passed by backfill admission (ms) */
+	public long backfillStarvationLimit = 10000;
+	/** The size of a page (KB), 0 to give every process all its memory at once instead of paging */
+	public int pageSize = 0;
+	/** The page replacement policy, one of the names in REPLACEMENTS */
+	public String pageReplacement = "lru";
+	/** The names of the page replacement policies */
+	private static final String[] REPLACEMENTS = {"fifo", "lru", "clock", "wsclock"};
+	/** The cpu time between two page references of a process (ms) */
+	public long pageReferenceInterval = 10;
+	/** The working set window of the wsclock policy (ms) */
+	public long wsclockTau = 1000;
+	/** The maximum time quant used by the RR algorithm (ms) */
+	public long maxCpuTime = 500;
+	/** The average length of an I/O operation (ms) */
+	public long avgIoTime = 225;
+	/** The length of the simulation (ms) */
+	public long simulationLength = 250000;
+	/** The average time between process arrivals (ms) */
+	public long avgArrivalInterval = 5000;
+	/** The number of CPU cores */
+	public int cpuCores = 1;
+	/**
+	 * The I/O devices, separated by +. Each device is given as the name of its
+	 * distribution of operation times (uniform, exponential or constant),
+	 * optionally followed by :average, the average operation time (ms). Devices
+	 * without an average use avgIoTime.
+	 */
+	public String ioDevices = "uniform";
+	/** How I/O requests are routed to devices, one of the ROUTE_ constants in Constants */
+	public int ioRouting = Constants.ROUTE_RANDOM;
+	/** The names of the routing policies, indexed by policy */
+	private static final String[] ROUTING_NAMES = {"random", "shortest", "affinity"};
+	/** The scheduling policy, one of the names in SCHEDULERS */
+	public String scheduler = "rr";
+	/** The names of the scheduling policies */
+	private static final String[] SCHEDULERS = {"rr", "priority", "mlfq", "cfs"};
+	/** The time quant of each level of the mlfq scheduler (ms), separated by +, highest priority first */
+	public String mlfqQuanta = "50+200+800";
+	/** The time between priority boosts of the mlfq scheduler (ms), 0 to never boost */
+	public long mlfqBoostInterval = 5000;
+	/** The period in which the cfs scheduler lets every runnable process run once (ms) */
+	public long cfsTargetLatency = 200;
+	/** The shortest time slice given by the cfs scheduler (ms) */
+	public long cfsMinGranularity = 20;
+	/** Nice values are drawn uniformly from -cfsMaxNice to cfsMaxNice, 0 gives all processes the same weight */
+	public int cfsMaxNice = 0;
+	/** The workload file replayed instead of the synthetic arrivals, or null for synthetic arrivals */
+	public String workload = null;
+	/** The simulated time between two observations of the MSER-5 warm-up detection (ms), 0 to keep the warm-up in the statistics */
+	public long warmupInterval = 0;
+	/** The seed of the random streams, runs with the same seed and parameters give the same result */
+	public long seed = new SplittableRandom().nextLong();
+	/** The file process state transitions are traced to, or null to turn tracing off */
+	public String traceFile = null;
+	/** Where the processes are kept: objects (Process objects) or table (a ProcessTable while waiting for memory) */
+	public String processStore = "objects";
+	/** The file the state of the simulation is saved to, or null to save no checkpoints */
+	public String checkpoint = null;
+	/** The simulated time between two checkpoints (ms), 0 to only save one when the simulation ends */
+	public long checkpointInterval = 0;
+
+	/**
+	 * Creates a configuration from command line arguments. An argument
+	 * --config=file reads parameters from a properties file first, other
+	 * arguments override the values read from the file.
+	 * @param args	The command line arguments.
+	 * @return		The parsed configuration.
+	 * @throws IllegalArgumentException	If an argument is unknown or has an invalid value.
+	 * @throws IOException				If the configuration file could not be read.
+	 */
+	public static SimulationConfig fromArguments(String[] args) throws IOException {
+		SimulationConfig config = new SimulationConfig();
+		for(String arg : args) {
+			if(arg.startsWith("--config=")) {
+				config.load(new File(arg.substring("--config=".length())));
+			}
+		}
+		for(String arg : args) {
+			int separator = arg.indexOf('=');
+			if(!arg.startsWith("--") || separator < 0) {
+				throw new IllegalArgumentException("Expected --name=value, got "+arg);
+			}
+			String name = arg.substring(2, separator);
+			if(!name.equals("config")) {
+				config.set(name, arg.substring(separator+1));
+			}
+		}
+		config.validate();
+		return config;
+	}
+
+	/**
+	 * Reads parameters from a properties file.
+	 * @param file	The file to read.
+	 * @throws IOException	If the file could not be read.
+	 */
+	public void load(File file) throws IOException {
+		Properties properties = new Properties();
+		Reader reader = new FileReader(file);
+		try {
+			properties.load(reader);
+		} finally {
+			reader.close();
+		}
+		for(String name : properties.stringPropertyNames()) {
+			set(name, properties.getProperty(name).trim());
+		}
+	}
+
+	/**
+	 * Sets a single parameter by name.
+	 * @param name	The name of the parameter.
+	 * @param value	The value of the parameter, as text.
+	 * @throws IllegalArgumentException	If the name is unknown or the value is invalid.
+	 */
+	public void set(String name, String value) {
+		try {
+			if(name.equals("memorySize")) {
+				memorySize = Long.parseLong(value);
+			} else if(name.equals("memoryAllocator")) {
+				if(!Arrays.asList(ALLOCATORS).contains(value)) {
+					throw new IllegalArgumentException("Unknown memory allocator "+value+", expected one of "
+						+String.join(", ", ALLOCATORS));
+				}
+				memoryAllocator = value;
+			} else if(name.equals("memoryAdmission")) {
+				if(Memory.parseAdmission(value) < 0) {
+					throw new IllegalArgumentException("Unknown memory admission "+value+", expected fifo, firstfit or backfill");
+				}
+				memoryAdmission = value;
+			} else if(name.equals("backfillStarvationLimit")) {
+				backfillStarvationLimit = Long.parseLong(value);
+			} else if(name.equals("pageSize")) {
+				pageSize = Integer.parseInt(value);
+			} else if(name.equals("pageReplacement")) {
+				if(!Arrays.asList(REPLACEMENTS).contains(value)) {
+					throw new IllegalArgumentException("Unknown page replacement "+value+", expected one of "
+						+String.join(", ", REPLACEMENTS));
+				}
+				pageReplacement = value;
+			} else if(name.equals("pageReferenceInterval")) {
+				pageReferenceInterval = Long.parseLong(value);
+			} else if(name.equals("wsclockTau")) {
+				wsclockTau = Long.parseLong(value);
+			} else if(name.equals("maxCpuTime")) {
+				maxCpuTime = Long.parseLong(value);
+			} else if(name.equals("avgIoTime")) {
+				avgIoTime = Long.parseLong(value);
+			} else if(name.equals("simulationLength")) {
+				simulationLength = Long.parseLong(value);
+			} else if(name.equals("avgArrivalInterval")) {
+				avgArrivalInterval = Long.parseLong(value);
+			} else if(name.equals("cpuCores")) {
+				cpuCores = Integer.parseInt(value);
+			} else if(name.equals("ioDevices")) {
+				ioDevices = value;
+			} else if(name.equals("ioRouting")) {
+				int routing = Arrays.asList(ROUTING_NAMES).indexOf(value);
+				if(routing < 0) {
+					throw new IllegalArgumentException("Unknown I/O routing "+value+", expected random, shortest or affinity");
+				}
+				ioRouting = routing;
+			} else if(name.equals("seed")) {
+				seed = Long.parseLong(value);
+			} else if(name.equals("warmupInterval")) {
+				warmupInterval = Long.parseLong(value);
+			} else if(name.equals("workload")) {
+				workload = value.length() > 0 ? value : null;
+			} else if(name.equals("trace")) {
+				traceFile = value.length() > 0 ? value : null;
+			} else if(name.equals("processStore")) {
+				if(!value.equals("objects") && !value.equals("table")) {
+					throw new IllegalArgumentException("Unknown process store "+value+", expected objects or table");
+				}
+				processStore = value;
+			} else if(name.equals("checkpoint")) {
+				checkpoint = value.length() > 0 ? value : null;
+			} else if(name.equals("checkpointInterval")) {
+				checkpointInterval = Long.parseLong(value);
+			} else if(name.equals("scheduler")) {
+				if(!Arrays.asList(SCHEDULERS).contains(value)) {
+					throw new IllegalArgumentException("Unknown scheduler "+value+", expected one of "
+						+String.join(", ", SCHEDULERS));
+				}
+				scheduler = value;
+			} else if(name.equals("mlfqQuanta")) {
+				mlfqQuanta = value;
+			} else if(name.equals("mlfqBoostInterval")) {
+				mlfqBoostInterval = Long.parseLong(value);
+			} else if(name.equals("cfsTargetLatency")) {
+				cfsTargetLatency = Long.parseLong(value);
+			} else if(name.equals("cfsMinGranularity")) {
+				cfsMinGranularity = Long.parseLong(value);
+			} else if(name.equals("cfsMaxNice")) {
+				cfsMaxNice = Integer.parseInt(value);
+			} else {
+				throw new IllegalArgumentException("Unknown parameter "+name);
+			}
+		} catch (NumberFormatException nfe) {
+			throw new IllegalArgumentException("Invalid value for "+name+": "+value);
+		}
+	}
+
+	/**
+	 * Returns a copy of this configuration.
+	 * @return	A new configuration with the same parameters.
+	 */
+	public SimulationConfig copy() {
+		SimulationConfig copy = new SimulationConfig();
+		copy.memorySize = memorySize;
+		copy.memoryAllocator = memoryAllocator;
+		copy.memoryAdmission = memoryAdmission;
+		copy.backfillStarvationLimit = backfillStarvationLimit;
+		copy.pageSize = pageSize;
+		copy.pageReplacement = pageReplacement;
+		copy.pageReferenceInterval = pageReferenceInterval;
+		copy.wsclockTau = wsclockTau;
+		copy.maxCpuTime = maxCpuTime;
+		copy.avgIoTime = avgIoTime;
+		copy.simulationLength = simulationLength;
+		copy.avgArrivalInterval = avgArrivalInterval;
+		copy.cpuCores = cpuCores;
+		copy.ioDevices = ioDevices;
+		copy.ioRouting = ioRouting;
+		copy.scheduler = scheduler;
+		copy.mlfqQuanta = mlfqQuanta;
+		copy.mlfqBoostInterval = mlfqBoostInterval;
+		copy.cfsTargetLatency = cfsTargetLatency;
+		copy.cfsMinGranularity = cfsMinGranularity;
+		copy.cfsMaxNice = cfsMaxNice;
+		copy.workload = workload;
+		copy.warmupInterval = warmupInterval;
+		copy.seed = seed;
+		copy.traceFile = traceFile;
+		copy.processStore = processStore;
+		copy.checkpoint = checkpoint;
+		copy.checkpointInterval = checkpointInterval;
+		return copy;
+	}
+
+	/**
+	 * Returns the names of all parameters, separated by commas, to be used
+	 * as the first columns of the header line of a CSV file.
+	 * @return	The CSV header.
+	 */
+	public static String csvHeader() {
+		return "memorySize,memoryAllocator,memoryAdmission,backfillStarvationLimit,pageSize,pageReplacement,pageReferenceInterval,wsclockTau,maxCpuTime,avgIoTime,simulationLength,avgArrivalInterval,cpuCores,ioDevices,ioRouting,scheduler,mlfqQuanta,mlfqBoostInterval,cfsTargetLatency,cfsMinGranularity,cfsMaxNice,workload,warmupInterval,seed";
+	}
+
+	/**
+	 * Returns all parameters separated by commas, in the order given by csvHeader().
+	 * @return	The CSV row.
+	 */
+	public String toCsvRow() {
+		return memorySize+","+memoryAllocator+","+memoryAdmission+","+backfillStarvationLimit+","
+			+pageSize+","+pageReplacement+","+pageReferenceInterval+","+wsclockTau+","+maxCpuTime+","+avgIoTime+","+simulationLength+","+avgArrivalInterval+","+cpuCores+","
+			+ioDevices+","+ROUTING_NAMES[ioRouting]+","+scheduler+","+mlfqQuanta+","+mlfqBoostInterval+","
+			+cfsTargetLatency+","+cfsMinGranularity+","+cfsMaxNice+","+(workload != null ? workload : "synthetic")+","+warmupInterval+","+seed;
+	}
+
+	/**
+	 * Checks that the parameters describe a runnable simulation.
+	 * @throws IllegalArgumentException	If a parameter is out of range.
+	 */
+	public void validate() {
+		if(memorySize < 400) {
+			throw new IllegalArgumentException("Memory size must be at least 400 KB");
+		}
+		if(memoryAllocator.equals("buddy") && memorySize > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("The buddy allocator needs a memory size below 2^31 KB");
+		}
+		if(backfillStarvationLimit < 0) {
+			throw new IllegalArgumentException("The backfill starvation limit can not be negative");
+		}
+		if(pageSize < 0) {
+			throw new IllegalArgumentException("The page size can not be negative");
+		}
+		if(pageSize > 0) {
+			if(memorySize/pageSize > Integer.MAX_VALUE) {
+				throw new IllegalArgumentException("There can be at most "+Integer.MAX_VALUE+" page frames");
+			}
+			if(!memoryAllocator.equals("compact") || !memoryAdmission.equals("fifo")) {
+				throw new IllegalArgumentException("Paged memory can only be used with the compact allocator and fifo admission");
+			}
+			if(pageReferenceInterval < 1 || wsclockTau < 0) {
+				throw new IllegalArgumentException("The page reference interval must be at least 1 ms and wsclockTau can not be negative");
+			}
+		}
+		if(maxCpuTime < 1) {
+			throw new IllegalArgumentException("Maximum cpu time must be at least 1 ms");
+		}
+		if(cpuCores < 1) {
+			throw new IllegalArgumentException("There must be at least 1 cpu core");
+		}
+		if(simulationLength < 1) {
+			throw new IllegalArgumentException("Simulation length must be at least 1 ms");
+		}
+		if(avgIoTime < 0 || avgArrivalInterval < 0) {
+			throw new IllegalArgumentException("Average times can not be negative");
+		}
+		long[] quanta = getMlfqQuanta();
+		if(quanta.length > MultilevelFeedbackScheduler.MAX_LEVELS) {
+			throw new IllegalArgumentException("The mlfq scheduler can have at most "+MultilevelFeedbackScheduler.MAX_LEVELS+" levels");
+		}
+		for(long quantum : quanta) {
+			if(quantum < 1) {
+				throw new IllegalArgumentException("Mlfq time quanta must be at least 1 ms");
+			}
+		}
+		if(mlfqBoostInterval < 0) {
+			throw new IllegalArgumentException("The mlfq boost interval can not be negative");
+		}
+		if(cfsTargetLatency < 1 || cfsMinGranularity < 1) {
+			throw new IllegalArgumentException("The cfs target latency and minimum granularity must be at least 1 ms");
+		}
+		if(cfsMaxNice < 0 || cfsMaxNice > FairScheduler.MAX_NICE) {
+			throw new IllegalArgumentException("The cfs maximum nice value must be between 0 and "+FairScheduler.MAX_NICE);
+		}
+		for(int device = 0; device < getNofIoDevices(); device++) {
+			if(getIoDistribution(device) < 0) {
+				throw new IllegalArgumentException("Unknown distribution for I/O device "+device+" in "+ioDevices);
+			}
+			if(getAvgIoTime(device) < 0) {
+				throw new IllegalArgumentException("Average times can not be negative");
+			}
+		}
+		if(warmupInterval < 0) {
+			throw new IllegalArgumentException("The warm-up observation interval can not be negative");
+		}
+		if(checkpointInterval < 0) {
+			throw new IllegalArgumentException("The checkpoint interval can not be negative");
+		}
+		if(processStore.equals("table") && (!memoryAdmission.equals("fifo") || pageSize > 0 || workload != null)) {
+			throw new IllegalArgumentException("The table process store can only be used with fifo admission,"
+				+" without paging or workload");
+		}
+	}
+
+	/**
+	 * Runs the simulation described by this configuration without a GUI.
+	 * @return	The statistics collected during the run.
+	 * @throws IllegalArgumentException	If the configured workload file could not be opened.
+	 */
+	public Statistics runHeadless() {
+		return new Simulator(this, new HeadlessGui()).run();
+	}
+
+	/**
+	 * Returns the time quanta of the levels of the mlfq scheduler.
+	 * @return	The time quant of each level (ms), highest priority first.
+	 * @throws IllegalArgumentException	If a time quant is not a number.
+	 */
+	public long[] getMlfqQuanta() {
+		String[] values = mlfqQuanta.split("\\+");
+		long[] quanta = new long[values.length];
+		try {
+			for(int i = 0; i < values.length; i++) {
+				quanta[i] = Long.parseLong(values[i].trim());
+			}
+		} catch (NumberFormatException nfe) {
+			throw new IllegalArgumentException("Invalid mlfq time quanta: "+mlfqQuanta);
+		}
+		return quanta;
+	}
+
+	/**
+	 * Returns the number of I/O devices.
+	 * @return	The number of devices in ioDevices.
+	 */
+	public int getNofIoDevices() {
+		return ioDevices.split("\\+").length;
+	}
+
+	/**
+	 * Returns the distribution of the operation times of an I/O device.
+	 * @param device	The index of the device.
+	 * @return			The distribution, as defined in the IO class, or -1 if it is unknown.
+	 */
+	public int getIoDistribution(int device) {
+		String spec = ioDevices.split("\\+")[device].trim();
+		int separator = spec.indexOf(':');
+		return IO.parseDistribution(separator < 0 ? spec : spec.substring(0, separator));
+	}
+
+	/**
+	 * Returns the average operation time of an I/O device.
+	 * @param device	The index of the device.
+	 * @return			The average operation time (ms).
+	 * @throws IllegalArgumentException	If the average is not a number.
+	 */
+	public long getAvgIoTime(int device) {
+		String spec = ioDevices.split("\\+")[device].trim();
+		int separator = spec.indexOf(':');
+		if(separator < 0) {
+			return avgIoTime;
+		}
+		try {
+			return Long.parseLong(spec.substring(separator+1));
+		} catch (NumberFormatException nfe) {
+			throw new IllegalArgumentException("Invalid average for I/O device "+device+": "+spec);
+		}
+	}
+}
@@ -2,16 +2,34 @@ package p3;
 
 import java.awt.*;
 import java.awt.event.*;
+import java.util.concurrent.atomic.AtomicReference;
 import javax.swing.*;
+import javax.swing.event.*;
 
 /**
  * This class provides a GUI displaying the queueing network used
  * to simulate our system.
+ *
+ * The simulation runs in its own thread and never touches the Swing
+ * components. At most FRAME_RATE times per second of real time it takes a
+ * snapshot of the displayed state and puts it in a single slot, replacing
+ * any snapshot the GUI has not drawn yet. A Swing timer takes the latest
+ * snapshot from the slot and draws it, so the window stays responsive
+ * however fast the simulation runs.
  */
 public class SimulationGui extends JFrame implements Constants, ActionListener, Runnable, Gui
 {
+	/** The number of snapshots shown per second */
+	private static final int FRAME_RATE = 30;
+	/** The real time between two snapshots, in nanoseconds */
+	private static final long FRAME_INTERVAL = 1000000000L/FRAME_RATE;
+	/** The number of events between two looks at the real time at full speed, a power of two */
+	private static final int FRAME_CHECK_INTERVAL = 64;
+	/** The number of processes shown in each queue */
+	private static final int MAX_VISIBLE_LENGTH = 10;
+
 	/** Queue components shown in the GUI */
-	private Queue memoryQueue, cpuQueue, ioQueue;
+	private QueueView memoryQueue, cpuQueue, ioQueue;
 	/** Resources components shown in the GUI */
 	private Resource memory, cpu, io;
 	/** Panel containing the background picture */
@@ -26,12 +44,26 @@ public class SimulationGui extends JFrame implements Constants, ActionListener,
 	private JLabel timeElapsedLabel;
 	/** The scheduling simulator */
 	private Simulator simulator;
-	/** How much simulated time has elapsed */
+	/** Timer drawing the latest snapshot on the event dispatch thread */
+	private Timer frameTimer;
+	/** The latest snapshot not yet drawn, or null */
+	private final AtomicReference<SimulationSnapshot> latestSnapshot = new AtomicReference<SimulationSnapshot>();
+	/** How much simulated time has elapsed, only used by the simulation thread */
 	private long timeElapsed;
+	/** The process active in the first CPU core, only used by the simulation thread */
+	private Process cpuActive;
+	/** The process active in the first I/O device, only used by the simulation thread */
+	private Process ioActive;
+	/** The real time at which the next snapshot is due, only used by the simulation thread */
+	private long nextFrameTime;
+	/** The number of calls to timePassed, only used by the simulation thread */
+	private long nofTimePassedCalls;
 	/** Whether or not the simulation has been started */
 	private boolean running = false;
 	/** Whether or not the simulation is being slowed down to be observable */
-	private boolean sleep = true;
+	private volatile boolean sleep = true;
+	/** The position of the speed slider, read by the simulation thread */
+	private volatile int simulationSpeed;
 
 	/**
 	 * Constructs and shows a new GUI.
@@ -43,13 +75,30 @@ public class SimulationGui extends JFrame implements Constants, ActionListener,
 	 */
 	public SimulationGui(long memorySize, long maxCpuTime, long avgIoTime, long simulationLength, long avgArrivalInterval) {
 		super("Process scheduling simulator");
-		memoryQueue = new Queue("memory queue", 10, EAST);
-		cpuQueue = new Queue("CPU queue", 10, WEST);
-		ioQueue = new Queue("I/O queue", 10, EAST);
 		timeElapsed = 0;
-		simulator = new Simulator(memoryQueue, cpuQueue, ioQueue, memorySize, maxCpuTime, avgIoTime,
+		simulator = new Simulator(memorySize, maxCpuTime, avgIoTime,
 			simulationLength, avgArrivalInterval, this);
+		memoryQueue = new QueueView("memory queue", MAX_VISIBLE_LENGTH, EAST);
+		cpuQueue = new QueueView("CPU queue", MAX_VISIBLE_LENGTH, WEST);
+		ioQueue = new QueueView("I/O queue", MAX_VISIBLE_LENGTH, EAST);
 		placeComponents();
+		frameTimer = new Timer(1000/FRAME_RATE, new ActionListener() {
+			public void actionPerformed(ActionEvent ae) {
+				SimulationSnapshot snapshot = latestSnapshot.getAndSet(null);
+				if(snapshot != null) {
+					showSnapshot(snapshot);
+				}
+			}
+		});
+		nextFrameTime = System.nanoTime();
+		frameTimer.start();
+		addWindowListener(new WindowAdapter() {
+			public void windowClosed(WindowEvent we) {
+				// Let the simulation finish at full speed without a display
+				sleep = false;
+				frameTimer.stop();
+			}
+		});
 		setSize(500,500);
 		setResizable(false);
 		setVisible(true);
@@ -88,6 +137,12 @@ public class SimulationGui extends JFrame implements Constants, ActionListener,
 		getContentPane().add(lowerPanel);
 		lowerPanel.setBounds(0,374,494,100);
 		simulationSpeedSlider = new JSlider(0, 10000, 8000);
+		simulationSpeed = simulationSpeedSlider.getValue();
+		simulationSpeedSlider.addChangeListener(new ChangeListener() {
+			public void stateChanged(ChangeEvent ce) {
+				simulationSpeed = simulationSpeedSlider.getValue();
+			}
+		});
 		lowerPanel.add(simulationSpeedSlider);
 		addSliderLabels(lowerPanel,10,10,474,20,"Slow","Fast","Simulation speed");
 		simulationSpeedSlider.setBounds(10,30,474,20);
@@ -105,8 +160,9 @@ public class SimulationGui extends JFrame implements Constants, ActionListener,
 	 * button is pressed. Starts the main simulation loop.
 	 */
 	public void run() {
-		running = true;
 		simulator.simulate();
+		// Show the final state, however little time has passed since the last snapshot
+		publishSnapshot();
 	}
 
 	/**
@@ -115,6 +171,7 @@ public class SimulationGui extends JFrame implements Constants, ActionListener,
 	 */
 	public void actionPerformed(ActionEvent ae) {
 		if(!running) {
+			running = true;
 			startButton.setText("Complete simulation");
 			 // The simulation must be run in a separate thread,
 			// we can't "hijack" the GUI's event handling thread.
@@ -157,35 +214,72 @@ public class SimulationGui extends JFrame implements Constants, ActionListener,
 	}
 	
 	/**
-	 * Controls which process is being shown as the process active in the CPU.
-	 * @param p		The process that is currently active, or null if the CPU is idle.
+	 * Controls which process is being shown as the process active in a CPU core.
+	 * Only the first core is shown, from the next snapshot on.
+	 * @param core	The core.
+	 * @param p		The process that is currently active, or null if the core is idle.
 	 */
-	public void setCpuActive(Process p) {
-		cpu.setActiveProcess(p);
+	public void setCpuActive(int core, Process p) {
+		if(core == 0) {
+			cpuActive = p;
+		}
 	}
 
 	/**
-	 * Controls which process is being shown as the process active in the I/O device.
-	 * @param p		The process that is currently active, or null if the I/O device is idle.
+	 * Controls which process is being shown as the process active in an I/O device.
+	 * Only the first device is shown, from the next snapshot on.
+	 * @param device	The I/O device.
+	 * @param p			The process that is currently active, or null if the I/O device is idle.
 	 */
-	public void setIoActive(Process p) {
-		io.setActiveProcess(p);
+	public void setIoActive(int device, Process p) {
+		if(device == 0) {
+			ioActive = p;
+		}
 	}
 
 	/**
-	 * Lets the GUI know that a discrete amount of time has passed.
+	 * Lets the GUI know that a discrete amount of time has passed. Publishes
+	 * a snapshot if one is due, and slows the simulation down unless it is
+	 * being completed.
 	 * @param time	The (simulated) time that has passed since the last call to this method.
 	 */
 	public void timePassed(long time) {
 		timeElapsed += time;
-		timeElapsedLabel.setText("Simulated time elapsed: "+timeElapsed+" ms.");
-		timeElapsedLabel.repaint();
+		// At full speed, only look at the real time every FRAME_CHECK_INTERVAL events
+		if((sleep || (++nofTimePassedCalls & (FRAME_CHECK_INTERVAL-1)) == 0)
+				&& System.nanoTime()-nextFrameTime >= 0) {
+			publishSnapshot();
+		}
 		try	{
-			if(sleep && isShowing())
-				Thread.sleep((10000-simulationSpeedSlider.getValue())*time/3000);
+			if(sleep && time > 0)
+				Thread.sleep((10000-simulationSpeed)*time/3000);
 		} catch (InterruptedException ie) {}
 	}
 
+	/**
+	 * Takes a snapshot of the simulation and makes it the one the GUI draws
+	 * next. Must be called by the thread running the simulation.
+	 */
+	private void publishSnapshot() {
+		latestSnapshot.set(new SimulationSnapshot(timeElapsed, simulator.getMemory(),
+			simulator.getCpuQueue(), simulator.getIoQueue(), cpuActive, ioActive, MAX_VISIBLE_LENGTH));
+		nextFrameTime = System.nanoTime()+FRAME_INTERVAL;
+	}
+
+	/**
+	 * Shows a snapshot of the simulation. Called on the event dispatch thread.
+	 * @param snapshot	The snapshot to show.
+	 */
+	private void showSnapshot(SimulationSnapshot snapshot) {
+		memoryQueue.setContent(snapshot.getMemoryQueue(), snapshot.getMemoryQueueLength());
+		cpuQueue.setContent(snapshot.getCpuQueue(), snapshot.getCpuQueueLength());
+		ioQueue.setContent(snapshot.getIoQueue(), snapshot.getIoQueueLength());
+		cpu.setActiveProcess(snapshot.getCpuActive());
+		io.setActiveProcess(snapshot.getIoActive());
+		timeElapsedLabel.setText("Simulated time elapsed: "+snapshot.getClock()+" ms.");
+		backgroundPanel.repaint();
+	}
+
 	/**
 	 * Loads an image from a file.
 	 * @param tk		The toolkit to be used to load the image.
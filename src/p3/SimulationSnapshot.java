@@ -0,0 +1,141 @@
+package p3;
+
+/**
+ * An immutable picture of the parts of a simulation shown in the GUI. The
+ * simulation thread creates snapshots and hands them to the GUI, which can
+ * then draw them at its own pace without looking at the simulation itself.
+ * Only the process IDs are copied, so a snapshot shares nothing with the
+ * simulation.
+ */
+public class SimulationSnapshot
+{
+	/** The process ID used when a resource is idle */
+	public static final long IDLE = -1;
+
+	/** The simulated time at which the snapshot was taken */
+	private final long clock;
+	/** The IDs of the first processes in the memory queue */
+	private final long[] memoryQueue;
+	/** The IDs of the first processes in the CPU queue */
+	private final long[] cpuQueue;
+	/** The IDs of the first processes in the I/O queue */
+	private final long[] ioQueue;
+	/** The lengths of the memory, CPU and I/O queues */
+	private final int memoryQueueLength, cpuQueueLength, ioQueueLength;
+	/** The ID of the process active in the CPU, or IDLE */
+	private final long cpuActive;
+	/** The ID of the process active in the I/O device, or IDLE */
+	private final long ioActive;
+
+	/**
+	 * Takes a snapshot of a simulation. Must be called by the thread running the simulation.
+	 * @param clock			The current simulated time.
+	 * @param memory		The memory, holding the queue of processes waiting for it.
+	 * @param cpuQueue		The queue of processes waiting for the CPU.
+	 * @param ioQueue		The queue of processes waiting for the I/O device.
+	 * @param cpuActive		The process active in the CPU, or null if it is idle.
+	 * @param ioActive		The process active in the I/O device, or null if it is idle.
+	 * @param maxVisible	The number of processes to copy from the head of each queue.
+	 */
+	public SimulationSnapshot(long clock, Memory memory, Queue<Process> cpuQueue,
+			Queue<Process> ioQueue, Process cpuActive, Process ioActive, int maxVisible) {
+		this.clock = clock;
+		memoryQueueLength = memory.getQueueLength();
+		memoryQueue = new long[Math.min(maxVisible, memoryQueueLength)];
+		for(int i = 0; i < memoryQueue.length; i++) {
+			memoryQueue[i] = memory.getQueuedProcessId(i);
+		}
+		this.cpuQueue = processIds(cpuQueue, maxVisible);
+		this.ioQueue = processIds(ioQueue, maxVisible);
+		cpuQueueLength = cpuQueue.getQueueLength();
+		ioQueueLength = ioQueue.getQueueLength();
+		this.cpuActive = cpuActive == null ? IDLE : cpuActive.getProcessId();
+		this.ioActive = ioActive == null ? IDLE : ioActive.getProcessId();
+	}
+
+	/**
+	 * Returns the simulated time at which the snapshot was taken.
+	 * @return	The simulated time.
+	 */
+	public long getClock() {
+		return clock;
+	}
+
+	/**
+	 * Returns the IDs of the first processes in the memory queue, head first.
+	 * @return	The process IDs, which must not be modified.
+	 */
+	public long[] getMemoryQueue() {
+		return memoryQueue;
+	}
+
+	/**
+	 * Returns the IDs of the first processes in the CPU queue, head first.
+	 * @return	The process IDs, which must not be modified.
+	 */
+	public long[] getCpuQueue() {
+		return cpuQueue;
+	}
+
+	/**
+	 * Returns the IDs of the first processes in the I/O queue, head first.
+	 * @return	The process IDs, which must not be modified.
+	 */
+	public long[] getIoQueue() {
+		return ioQueue;
+	}
+
+	/**
+	 * Returns the length of the memory queue.
+	 * @return	The number of processes waiting for memory.
+	 */
+	public int getMemoryQueueLength() {
+		return memoryQueueLength;
+	}
+
+	/**
+	 * Returns the length of the CPU queue.
+	 * @return	The number of processes waiting for the CPU.
+	 */
+	public int getCpuQueueLength() {
+		return cpuQueueLength;
+	}
+
+	/**
+	 * Returns the length of the I/O queue.
+	 * @return	The number of processes waiting for the I/O device.
+	 */
+	public int getIoQueueLength() {
+		return ioQueueLength;
+	}
+
+	/**
+	 * Returns the process active in the CPU.
+	 * @return	The process ID, or IDLE if the CPU is idle.
+	 */
+	public long getCpuActive() {
+		return cpuActive;
+	}
+
+	/**
+	 * Returns the process active in the I/O device.
+	 * @return	The process ID, or IDLE if the device is idle.
+	 */
+	public long getIoActive() {
+		return ioActive;
+	}
+
+	/**
+	 * Copies the IDs of the processes at the head of a queue.
+	 * @param queue	The queue.
+	 * @param max	The largest number of IDs to copy.
+	 * @return		The IDs, head first.
+	 */
+	private static long[] processIds(Queue<Process> queue, int max) {
+		long[] ids = new long[Math.min(max, queue.getQueueLength())];
+		for(int i = 0; i < ids.length; i++) {
+			ids[i] = queue.get(i).getProcessId();
+		}
+		return ids;
+	}
+}
@@ -1,44 +1,76 @@
 package p3;
 
 import java.io.*;
+import java.nio.file.*;
 
 /**
  * The main class of the P3 exercise. This class is only partially complete.
+ *
+ * The whole state of a simulation can be saved to a checkpoint file, either
+ * periodically or when the simulation ends, and restored later to continue
+ * the simulation or to fork it with a new seed. A checkpoint is the
+ * serialized simulator preceded by a small header; it can only be restored
+ * by the same version of the simulator that saved it.
  */
-public class Simulator implements Constants
+public class Simulator implements Constants, Serializable
 {
+	/** The version of the serialized form */
+	private static final long serialVersionUID = 1L;
+
+	/** The magic number starting every checkpoint file, "P3CK" */
+	public static final int CHECKPOINT_MAGIC = 0x5033434B;
+	/** The version of the checkpoint format */
+	public static final int CHECKPOINT_VERSION = 2;
+
 	/** The queue of events to come */
     private EventQueue eventQueue;
 	/** Reference to the memory unit */
     private Memory memory;
     /** Reference to the CPU */
     private CPU cpu;
-    /** Reference to the I/O device */
-    private IO io;
+    /** References to the I/O devices */
+    private IO[] ioDevices;
+	/** The queue of processes waiting for memory */
+	private Queue<Process> memoryQueue;
+	/** The queue of processes waiting for the CPU */
+	private Queue<Process> cpuQueue;
 	/** Reference to the GUI interface */
-	private Gui gui;
+	private transient Gui gui;
 	/** Reference to the statistics collector */
 	private Statistics statistics;
+	/** The random streams of this simulation */
+	private RandomStreams random;
+	/** The recorder of process state transitions, or null if tracing is off, which it always is after restoring a checkpoint */
+	private transient TraceRecorder trace;
+	/** The workload replayed instead of synthetic arrivals, or null */
+	private WorkloadTrace workload;
+	/** The detector deleting the warm-up from the statistics, or null if the warm-up is kept */
+	private WarmupDetector warmup;
+	/** The table holding the processes waiting for memory, or null if they are created as Process objects */
+	private ProcessTable processTable;
 	/** The global clock */
     private long clock;
+	/** The ID of the next process to be created */
+	private long nextProcessId;
+	/** The number of events taken from the event queue so far */
+	private long nofProcessedEvents;
 	/** The length of the simulation */
 	private long simulationLength;
 	/** The average length between process arrivals */
 	private long avgArrivalInterval;
-	/** The maximum time quant used by the RR algorithm */
-	private long maxCpuTime;
-	/** phase number used for priority-based RR */
-	private int priorityRrPhase;
-	/** number of items in phase left to be processed before next */
-	private int itemsInPhase;
-	/** true to use priority RR */
-	private boolean priorityRR;
+	/** How I/O requests are routed to devices, one of the ROUTE_ constants */
+	private int ioRouting;
+	/** Set when the first process arrival has been scheduled */
+	private boolean started;
+	/** The file checkpoints are saved to, or null to save none */
+	private transient File checkpointFile;
+	/** The simulated time between two checkpoints, 0 to only save one when the simulation ends */
+	private long checkpointInterval;
+	/** The time at or after which the next periodic checkpoint is saved */
+	private long nextCheckpointTime;
 
 	/**
 	 * Constructs a scheduling simulator with the given parameters.
-	 * @param memoryQueue			The memory queue to be used.
-	 * @param cpuQueue				The CPU queue to be used.
-	 * @param ioQueue				The I/O queue to be used.
 	 * @param memorySize			The size of the memory.
 	 * @param maxCpuTime			The maximum time quant used by the RR algorithm.
 	 * @param avgIoTime				The average length of an I/O operation.
@@ -46,65 +78,324 @@ public class Simulator implements Constants
 	 * @param avgArrivalInterval	The average time between process arrivals.
 	 * @param gui					Reference to the GUI interface.
 	 */
-	public Simulator(Queue memoryQueue, Queue cpuQueue, Queue ioQueue, long memorySize,
-			long maxCpuTime, long avgIoTime, long simulationLength, long avgArrivalInterval, Gui gui) {
-		this.simulationLength = simulationLength;
-		this.avgArrivalInterval = avgArrivalInterval;
-		this.maxCpuTime = maxCpuTime;
+	public Simulator(long memorySize, long maxCpuTime, long avgIoTime, long simulationLength,
+			long avgArrivalInterval, Gui gui) {
+		this(createConfig(memorySize, maxCpuTime, avgIoTime, simulationLength, avgArrivalInterval), gui);
+	}
+
+	/**
+	 * Constructs a scheduling simulator with the parameters in the given configuration.
+	 * @param config				The simulation parameters.
+	 * @param gui					Reference to the GUI interface.
+	 * @throws IllegalArgumentException	If the configured workload file could not be opened.
+	 */
+	public Simulator(SimulationConfig config, Gui gui) {
+		this.simulationLength = config.simulationLength;
+		this.avgArrivalInterval = config.avgArrivalInterval;
 		this.gui = gui;
 		statistics = new Statistics();
+		random = new RandomStreams(config.seed);
+		if (config.traceFile != null) {
+			try {
+				trace = new TraceRecorder(new File(config.traceFile));
+			} catch (IOException ioe) {
+				System.err.println("Could not open trace file "+config.traceFile+", tracing is off: "+ioe.getMessage());
+			}
+		}
+		if (config.workload != null) {
+			try {
+				workload = new WorkloadTrace(new File(config.workload));
+			} catch (IOException ioe) {
+				throw new IllegalArgumentException("Could not open workload "+config.workload+": "+ioe.getMessage());
+			}
+		}
 		eventQueue = new EventQueue();
-		memory = new Memory(memoryQueue, memorySize, statistics);
-		cpu = new CPU(cpuQueue, maxCpuTime, statistics);
-		io = new IO(ioQueue, avgIoTime, statistics);
+		memoryQueue = new Queue<Process>();
+		cpuQueue = new Queue<Process>();
+		if (config.pageSize > 0) {
+			memory = new Memory(memoryQueue, config.memorySize, createPagedMemory(config), statistics, trace);
+			statistics.pageReplacement = config.pageReplacement;
+		} else if (config.processStore.equals("table")) {
+			processTable = new ProcessTable(random);
+			memory = new Memory(processTable, config.memorySize, createAllocator(config), statistics, trace);
+			statistics.memoryAdmission = config.memoryAdmission;
+		} else {
+			memory = new Memory(memoryQueue, config.memorySize, createAllocator(config),
+					Memory.parseAdmission(config.memoryAdmission), config.backfillStarvationLimit, statistics, trace);
+			statistics.memoryAdmission = config.memoryAdmission;
+		}
+		cpu = new CPU(createScheduler(config), config.cpuCores, statistics, trace);
+		ioDevices = new IO[config.getNofIoDevices()];
+		statistics.nofIoDevices = ioDevices.length;
+		statistics.ioDeviceActiveTime = new long[ioDevices.length];
+		statistics.ioDeviceQueueLengthTime = new long[ioDevices.length];
+		statistics.ioDeviceOperations = new long[ioDevices.length];
+		for (int device = 0; device < ioDevices.length; device++) {
+			ioDevices[device] = new IO(new Queue<Process>(), device, config.getIoDistribution(device),
+					config.getAvgIoTime(device), statistics, random, trace);
+		}
+		ioRouting = config.ioRouting;
+		if (config.warmupInterval > 0) {
+			warmup = new WarmupDetector(config.warmupInterval, statistics);
+		}
 		clock = 0;
-		// Add code as needed
-		
-		itemsInPhase = 0;
-		priorityRR = false;
-		priorityRrPhase = 0;
+		nextProcessId = 1;
+		setCheckpoint(config.checkpoint != null ? new File(config.checkpoint) : null, config.checkpointInterval);
     }
 
+	/**
+	 * Restores a simulator from a checkpoint file. The restored simulator
+	 * continues where the saved one stopped, and gives exactly the same
+	 * results as if the simulation had not been interrupted. Tracing and
+	 * checkpointing are off in the restored simulator.
+	 * @param file	The checkpoint file.
+	 * @param gui	Reference to the GUI interface.
+	 * @return		The restored simulator.
+	 * @throws IOException	If the file could not be read or is not a checkpoint.
+	 */
+	public static Simulator restoreCheckpoint(File file, Gui gui) throws IOException {
+		ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)));
+		try {
+			if(in.readInt() != CHECKPOINT_MAGIC) {
+				throw new IOException("Not a checkpoint file");
+			}
+			int version = in.readInt();
+			if(version != CHECKPOINT_VERSION) {
+				throw new IOException("Unsupported checkpoint version "+version);
+			}
+			Simulator simulator = (Simulator)in.readObject();
+			simulator.gui = gui;
+			return simulator;
+		} catch (ClassNotFoundException cnfe) {
+			throw new IOException("Checkpoint holds unknown class "+cnfe.getMessage());
+		} catch (ClassCastException cce) {
+			throw new IOException("Checkpoint does not hold a simulator");
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Saves the state of the simulation to a checkpoint file. The state is
+	 * written to a temporary file first, which then replaces the checkpoint,
+	 * so an interrupted save never destroys an earlier checkpoint.
+	 * @param file	The checkpoint file.
+	 * @throws IOException	If the checkpoint could not be written.
+	 */
+	public void saveCheckpoint(File file) throws IOException {
+		File temporary = new File(file.getPath()+".tmp");
+		ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)));
+		try {
+			out.writeInt(CHECKPOINT_MAGIC);
+			out.writeInt(CHECKPOINT_VERSION);
+			out.writeObject(this);
+		} finally {
+			out.close();
+		}
+		Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Sets where and how often checkpoints are saved while the simulation runs.
+	 * @param file		The checkpoint file, or null to save no checkpoints.
+	 * @param interval	The simulated time between two checkpoints, 0 to only save one when the simulation ends.
+	 */
+	public void setCheckpoint(File file, long interval) {
+		checkpointFile = file;
+		checkpointInterval = interval;
+		nextCheckpointTime = clock+interval;
+	}
+
+	/**
+	 * Changes the length of the simulation, used to continue a restored simulation.
+	 * @param simulationLength	The new length of the simulation.
+	 */
+	public void setSimulationLength(long simulationLength) {
+		this.simulationLength = simulationLength;
+	}
+
+	/**
+	 * Derives all random streams from a new seed, used to fork a restored
+	 * simulation into runs that share their history up to the checkpoint.
+	 * @param seed	The new seed.
+	 */
+	public void reseed(long seed) {
+		random.reseed(seed);
+	}
+
+	/**
+	 * Returns the number of events processed so far.
+	 * @return	The number of events taken from the event queue.
+	 */
+	public long getNofProcessedEvents() {
+		return nofProcessedEvents;
+	}
+
+	/**
+	 * Returns the memory unit.
+	 * @return	The memory.
+	 */
+	public Memory getMemory() {
+		return memory;
+	}
+
+	/**
+	 * Returns the queue of processes waiting for memory. Only FIFO admission
+	 * with Process objects keeps its waiting processes in this queue, the
+	 * other admission policies and the table store keep them elsewhere and
+	 * leave it empty. Memory.getQueuedProcessId covers all of them.
+	 * @return	The memory queue.
+	 */
+	public Queue<Process> getMemoryQueue() {
+		return memoryQueue;
+	}
+
+	/**
+	 * Returns the queue of processes waiting for the CPU. Only the RR
+	 * scheduler keeps its ready processes in this queue, the other
+	 * schedulers have their own data structures and leave it empty.
+	 * @return	The CPU queue.
+	 */
+	public Queue<Process> getCpuQueue() {
+		return cpuQueue;
+	}
+
+	/**
+	 * Returns the queue of processes waiting for the first I/O device.
+	 * @return	The I/O queue.
+	 */
+	public Queue<Process> getIoQueue() {
+		return getIoQueue(0);
+	}
+
+	/**
+	 * Returns the queue of processes waiting for an I/O device.
+	 * @param device	The index of the device.
+	 * @return			The I/O queue of the device.
+	 */
+	public Queue<Process> getIoQueue(int device) {
+		return ioDevices[device].getQueue();
+	}
+
+	/**
+	 * Creates a configuration holding the given parameters.
+	 * @param memorySize			The size of the memory.
+	 * @param maxCpuTime			The maximum time quant used by the RR algorithm.
+	 * @param avgIoTime				The average length of an I/O operation.
+	 * @param simulationLength		The length of the simulation.
+	 * @param avgArrivalInterval	The average time between process arrivals.
+	 * @return						The configuration.
+	 */
+	private static SimulationConfig createConfig(long memorySize, long maxCpuTime, long avgIoTime,
+			long simulationLength, long avgArrivalInterval) {
+		SimulationConfig config = new SimulationConfig();
+		config.memorySize = memorySize;
+		config.maxCpuTime = maxCpuTime;
+		config.avgIoTime = avgIoTime;
+		config.simulationLength = simulationLength;
+		config.avgArrivalInterval = avgArrivalInterval;
+		return config;
+	}
+
     /**
-	 * Starts the simulation. Contains the main loop, processing events.
+	 * Starts the simulation, and prints a report when it is done.
 	 * This method is called when the "Start simulation" button in the
 	 * GUI is clicked.
 	 */
 	public void simulate() {
-		System.out.print("Simulating...");
+		System.out.print("Simulating (seed "+random.getSeed()+")...");
+		run();
+		System.out.println("..done.");
+		// End the simulation by printing out the required statistics
+		statistics.printReport(simulationLength);
+	}
+
+	/**
+	 * Runs the main loop of the simulation without printing anything.
+	 * A simulator can only be run once, unless it is restored from a
+	 * checkpoint, which continues the run.
+	 * @return	The statistics collected during the run.
+	 */
+	public Statistics run() {
 		// Generate the first process arrival event
-		eventQueue.insertEvent(new Event(NEW_PROCESS, 0, clock));
+		if (!started) {
+			started = true;
+			scheduleArrival(0);
+		}
+		Event pending = null;
 		// Process events until the simulation length is exceeded:
 		while (clock < simulationLength && !eventQueue.isEmpty()) {
 			// Find the next event
 			Event event = eventQueue.getNextEvent();
+			nofProcessedEvents++;
+			if (trace != null) {
+				trace.setCurrentEvent(event.getType());
+			}
 			// Find out how much time that passed...
 			long timeDifference = event.getTime()-clock;				
 			// ...and update the clock.
 			clock = event.getTime();
 			// Let the memory unit and the GUI know that time has passed
-			
-			if (timeDifference < 0) {
-				System.out.println(event.getTime());
-			}
-			
-			
 			memory.timePassed(timeDifference);
 			cpu.timePassed(timeDifference);
-			io.timePassed(timeDifference);
+			for (IO io : ioDevices) {
+				io.timePassed(timeDifference);
+			}
 			gui.timePassed(timeDifference);
 			// Deal with the event
 			if (clock < simulationLength) {
+				if (warmup != null && clock >= warmup.getNextObservationTime()) {
+					warmup.observe(clock);
+				}
 				processEvent(event);
+				eventQueue.recycle(event);
+				if (checkpointFile != null && checkpointInterval > 0 && clock >= nextCheckpointTime) {
+					saveCheckpointOrWarn();
+					nextCheckpointTime = clock+checkpointInterval;
+				}
+			} else {
+				pending = event;
 			}
 
 			// Note that the processing of most events should lead to new
 			// events being added to the event queue!
 
 		}
-		System.out.println("..done.");
-		// End the simulation by printing out the required statistics
-		statistics.printReport(simulationLength);
+		if (pending != null) {
+			// Keep the event that ended the simulation, so a restored checkpoint processes it
+			eventQueue.putBack(pending);
+			nofProcessedEvents--;
+		}
+		if (checkpointFile != null) {
+			saveCheckpointOrWarn();
+		}
+		if (trace != null) {
+			try {
+				trace.close();
+			} catch (IOException ioe) {
+				System.err.println("Writing the trace failed: "+ioe.getMessage());
+			}
+		}
+		if (workload != null) {
+			try {
+				workload.close();
+			} catch (IOException ioe) {
+				System.err.println("Closing the workload failed: "+ioe.getMessage());
+			}
+		}
+		return statistics;
+	}
+
+	/**
+	 * Saves a checkpoint to the configured file, reporting rather than
+	 * failing if it could not be written.
+	 */
+	private void saveCheckpointOrWarn() {
+		try {
+			saveCheckpoint(checkpointFile);
+		} catch (IOException ioe) {
+			System.err.println("Could not save checkpoint "+checkpointFile+": "+ioe.getMessage());
+		}
 	}
 
 	/**
@@ -118,32 +409,17 @@ public class Simulator implements Constants
 				createProcess();
 				break;
 			case SWITCH_PROCESS:
-				if (priorityRR) {
-					switchProcessPriority();
-				} else {
-					switchProcess();					
-				}
+				switchProcess(event.getUnit());
 				break;
 			case END_PROCESS:
-				if (priorityRR) {
-					endProcessPriority();
-				} else {
-					endProcess();					
-				}
+				endProcess(event.getUnit());
 				break;
 			case IO_REQUEST:
-				if (priorityRR) {
-					processIoRequestPriority();
-				} else {
-					processIoRequest();					
-				}
+			case PAGE_FAULT:
+				processIoRequest(event.getUnit());
 				break;
 			case END_IO:
-				if (priorityRR) {
-					endIoOperationPriority();
-				} else {
-					endIoOperation();					
-				}
+				endIoOperation(event.getUnit());
 				break;
 		}
 	}
@@ -157,43 +433,53 @@ public class Simulator implements Constants
 		// As long as there is enough memory, processes are moved from the memory queue to the cpu queue
 		while(p != null) {
 			
-			if (cpu.readyQueueIsEmpty() && cpu.getActiveProcess() == null) {
-				cpu.insertProcess(p);
-				runProcessCpu();
-			} else {
-				cpu.insertProcess(p);
-			}
+			makeReady(p);
 
 			// Check for more free memory
 			p = memory.checkMemory(clock);
 		}
 	}
 
-	private void runProcessCpu() {
-		if (cpu.getActiveProcess() == null) {
-			Process p = cpu.activateProcess(clock);
-			if (p == null) {
-				System.err.println("Tried to run process when readyQueue was empty");
-				gui.setCpuActive(null);
-			} else {
-				gui.setCpuActive(p);
-				endSwitchOrIo(p);					
+	/**
+	 * Hands a process that has become ready to the scheduler, and
+	 * dispatches a process if a core is idle.
+	 * @param p	The process.
+	 */
+	private void makeReady(Process p) {
+		cpu.insertProcess(p, clock);
+		int core = cpu.getIdleCore();
+		if (core >= 0) {
+			runProcessCpu(core);
+		}
+	}
+
+	/**
+	 * Runs the process picked by the scheduler on an idle core.
+	 * @param core	The core.
+	 */
+	private void runProcessCpu(int core) {
+		if (cpu.getActiveProcess(core) == null) {
+			Process p = cpu.activateProcess(core, clock);
+			gui.setCpuActive(core, p);
+			if (p != null) {
+				endSwitchOrIo(p, core);					
 			}
 		} else {
 			System.err.println("fill empty cpu when cpu was filled");
 		}
 	}
 	
-	private void runProcessIo() {
+	private void runProcessIo(int device) {
+		IO io = ioDevices[device];
 		if (io.getActiveProcess() == null) {
 			Process p = io.activateProcess(clock);
 			if (p == null) {
 				System.err.println("Tried to run process when ioQueue was empty");
-				gui.setIoActive(null);
+				gui.setIoActive(device, null);
 			} else {
-				gui.setIoActive(p);
+				gui.setIoActive(device, p);
 				io.updateNextIoTime(clock);
-				eventQueue.insertEvent(new Event(END_IO, io.getNextIoTime(clock), clock));
+				eventQueue.insertEvent(END_IO, io.getNextIoTime(clock), clock, device);
 			}
 		} else {
 			System.err.println("Tried to fill empty io when io was filled");
@@ -205,148 +491,167 @@ public class Simulator implements Constants
 	 */
 	private void createProcess() {
 		// Create a new process
-		Process newProcess = new Process(memory.getMemorySize(), clock);
-		memory.insertProcess(newProcess);
-		if (priorityRR) {
-			flushMemoryQueuePriority();
+		long processId = nextProcessId++;
+		if (workload != null) {
+			try {
+				memory.insertProcess(workload.next(processId, memory.getMemorySize(), random));
+			} catch (IOException ioe) {
+				System.err.println("Reading the workload failed, no more processes arrive: "+ioe.getMessage());
+				return;
+			}
+		} else if (processTable != null) {
+			memory.insertProcess(processTable.create(processId, memory.getMemorySize(), clock));
 		} else {
-			flushMemoryQueue();			
+			memory.insertProcess(new Process(processId, memory.getMemorySize(), clock, random));
 		}
+		if (trace != null) {
+			trace.record(clock, processId, STATE_NONE, STATE_MEMORY_QUEUE);
+		}
+		flushMemoryQueue();			
 		// Add an event for the next process arrival
-		long nextArrivalTime = clock + 1 + (long)(2*Math.random()*avgArrivalInterval);
-		eventQueue.insertEvent(new Event(NEW_PROCESS, nextArrivalTime, clock));
+		scheduleArrival(clock + 1 + (long)(2*random.nextDouble(RandomStreams.ARRIVALS)*avgArrivalInterval));
 		// Update statistics
 		statistics.nofCreatedProcesses++;
     }
+
+	/**
+	 * Adds the event of the next process arrival. When a workload is
+	 * replayed the arrival time is read from the workload instead.
+	 * @param nextArrivalTime	The time of the next synthetic arrival.
+	 */
+	private void scheduleArrival(long nextArrivalTime) {
+		if (workload != null) {
+			if (!workload.hasNext()) {
+				return;
+			}
+			try {
+				nextArrivalTime = Math.max(clock, workload.getNextArrivalTime());
+			} catch (IOException ioe) {
+				System.err.println("Reading the workload failed, no more processes arrive: "+ioe.getMessage());
+				return;
+			}
+		}
+		eventQueue.insertEvent(NEW_PROCESS, nextArrivalTime, clock, 0);
+	}
 	
 	/**
 	 * Simulates a process switch.
+	 * @param core	The core whose time quant is over.
 	 */
-	private void switchProcess() {
-		//swap processes
-		if (cpu.getActiveProcess() == null) {
+	private void switchProcess(int core) {
+		if (cpu.getActiveProcess(core) == null) {
 			System.err.println("Tried to swap without active process");
+			return;
 		}
-		
-		Process p = cpu.switchProcess(clock);
-
-
-		//set marker if no process could be set active (should not happen at switch,
-		//should switch in the same process again if so)
-
-		if (p == null) {
-			if (cpu.getActiveProcess() != null) {
-				System.err.println("error in switchProcess");
-			}
-			cpu.setActiveProcess(null);
-			gui.setCpuActive(null);
-		} else {
-			gui.setCpuActive(p);
-			endSwitchOrIo(p);					
+		//swap processes, the switched out process is picked again if no other process is ready
+		Process p = cpu.switchProcess(core, clock);
+		gui.setCpuActive(core, p);
+		if (p != null) {
+			endSwitchOrIo(p, core);
 		}
 	}
 	
 
 	/**
 	 * Ends the active process, and deallocates any resources allocated to it.
+	 * @param core	The core the process was running on.
 	 */
-	private void endProcess() {
-		System.out.println("Started endProcess");
-		//deallocate resources
-		Process p = cpu.getActiveProcess();
-		if (cpu.getActiveProcess() == null) {
+	private void endProcess(int core) {
+		Process p = cpu.removeActiveProcess(core, clock);
+		if (p == null) {
 			System.err.println("Attempted end with no active process");
-		} else {
-			memory.processCompleted(p);			
+			return;
 		}
-		// Try to use the freed memory:
-		flushMemoryQueue();			
+		//deallocate resources
+		memory.processCompleted(p);
+		if (trace != null) {
+			trace.record(clock, p.getProcessId(), STATE_CPU, STATE_NONE);
+		}
+		gui.setCpuActive(core, null);
 		// Update statistics
 		p.updateStatistics(statistics);
-		//Activate next process
-		Process next = cpu.activateNext(clock);
-		//set marker if no process could be set active (empty queue)
-		if (next == null) {
-			if (cpu.getActiveProcess() != null) {
-				System.err.println("error in endprocess");
-			}
-			cpu.setActiveProcess(null);
-			gui.setCpuActive(null);
-		} else {
-			gui.setCpuActive(next);
-			endSwitchOrIo(p);					
+		// Try to use the freed memory:
+		flushMemoryQueue();
+		//Activate next process, unless an admitted process was already given the core
+		if (cpu.getActiveProcess(core) == null) {
+			runProcessCpu(core);
 		}
-		System.out.println("Ended endProcess");
-		
 	}
 
 	/**
 	 * Processes an event signifying that the active process needs to
-	 * perform an I/O operation.
-	 */
-	private void processIoRequest() {
-		//insert active cpu process into ioQueue
-		boolean runIo = false;
-		if (cpu.getActiveProcess() != null) {		
-			//if activeProcess is empty (and ioQueue), add event to immediately run the inserted process
-			if (io.ioQueueIsEmpty() && io.getActiveProcess() == null) {
-				runIo = true;	
-			}
-			io.insertProcess(cpu.getActiveProcess());
-		} else {
+	 * perform an I/O operation, or to wait for a page to be loaded.
+	 * @param core	The core the process is running on.
+	 */
+	private void processIoRequest(int core) {
+		Process p = cpu.removeActiveProcess(core, clock);
+		if (p == null) {
 			System.err.println("IOrequest with empty cpu device");
+			return;
 		}
-		
-		//activate next process in readyQueue
-		Process	p = cpu.activateNext(clock);
-		if (runIo) {
-			runProcessIo();
+		//insert the process into the queue of the chosen device, and start it if the device is idle
+		int device = routeIoRequest(p);
+		if (trace != null) {
+			trace.record(clock, p.getProcessId(), STATE_CPU, STATE_IO_QUEUE);
 		}
-		
-		//set marker if no process could be activated (empty queue)
-		if (p == null) {
-			if (cpu.getActiveProcess() != null) {
-				System.err.println("Error in processIO");
-			}
-			cpu.setActiveProcess(null);
-			gui.setCpuActive(null);
-		} else {
-			gui.setCpuActive(p);
-			endSwitchOrIo(p);					
+		ioDevices[device].insertProcess(p);
+		if (ioDevices[device].getActiveProcess() == null) {
+			runProcessIo(device);
 		}
-		
+		//activate next process in readyQueue
+		gui.setCpuActive(core, null);
+		runProcessCpu(core);
 	}
 
 	/**
 	 * Processes an event signifying that the process currently doing I/O
 	 * is done with its I/O operation.
+	 * @param device	The I/O device that finished the operation.
 	 */
-	private void endIoOperation() {
-		boolean runCpu = false;
+	private void endIoOperation(int device) {
+		IO io = ioDevices[device];
 		statistics.nofProcessedIoOperations++;
-		//Inserting finished process back into cpu queue
-		if (cpu.readyQueueIsEmpty() && cpu.getActiveProcess() == null) {
-			runCpu = true;
-		}
-		cpu.insertProcess(io.getActiveProcess());
+		statistics.ioDeviceOperations[device]++;
+		Process done = io.getActiveProcess();
 		//Activating the next process in the ioQueue
 		Process	p = io.activateNext(clock);
-		if (runCpu) {
-			runProcessCpu();
+		if (done.getFaultPage() >= 0) {
+			//The operation loaded a page
+			memory.getPages().loadFaultPage(done, clock);
 		}
-
+		//Inserting finished process back into cpu queue
+		makeReady(done);
 		
 		//Set a marker if no process could be activated (empty queue)
 		if (p == null) {
-			if (io.getActiveProcess() != null) {
-				System.err.println("Error in endIo");
-			}
-			io.setActiveProcess(null);
-			gui.setIoActive(null);
+			gui.setIoActive(device, null);
 		} else {
-			gui.setIoActive(p);
+			gui.setIoActive(device, p);
 			io.updateNextIoTime(clock);
-			eventQueue.insertEvent(new Event(END_IO, io.getNextIoTime(clock), clock));
+			eventQueue.insertEvent(END_IO, io.getNextIoTime(clock), clock, device);
+		}
+	}
+	
+	/**
+	 * Chooses the I/O device that an I/O request is sent to, using the
+	 * configured routing policy.
+	 * @param p	The process requesting I/O.
+	 * @return	The index of the device.
+	 */
+	private int routeIoRequest(Process p) {
+		switch (ioRouting) {
+			case ROUTE_SHORTEST_QUEUE:
+				int shortest = 0;
+				for (int device = 1; device < ioDevices.length; device++) {
+					if (ioDevices[device].getLoad() < ioDevices[shortest].getLoad()) {
+						shortest = device;
+					}
+				}
+				return shortest;
+			case ROUTE_AFFINITY:
+				return (int)(p.getProcessId() % ioDevices.length);
+			default:
+				return (int)(random.nextDouble(RandomStreams.IO_ROUTING)*ioDevices.length);
 		}
 	}
 	
@@ -357,272 +662,82 @@ public class Simulator implements Constants
 	 * Time to I/O over, request I/O
 	 * 
 	 * @param p the process to be activated
+	 * @param core the core the process is activated on
 	 */
-	private void endSwitchOrIo(Process p) {
-			if (p.getCpuTimeNeeded() < p.getTimeToNextIoOperation() && p.getCpuTimeNeeded() < maxCpuTime) {
-				eventQueue.insertEvent(new Event(END_PROCESS, clock + p.getCpuTimeNeeded(), clock));
-			} else if (p.getTimeToNextIoOperation() < p.getCpuTimeNeeded() && p.getTimeToNextIoOperation() < maxCpuTime) {
-				eventQueue.insertEvent(new Event(IO_REQUEST, clock + p.getTimeToNextIoOperation(), clock));
-			} else {
-				eventQueue.insertEvent(new Event(SWITCH_PROCESS, clock + maxCpuTime, clock));
-			}
-	}
-	/** 
-	 * Priority RR version
-	 * 
-	 * @param p
-	 * @param timeSlice
-	 */
-	
-	private void endSwitchOrIo(Process p, long timeSlice) {
-			if (p.getCpuTimeNeeded() < p.getTimeToNextIoOperation() && p.getCpuTimeNeeded() < timeSlice) {
-				eventQueue.insertEvent(new Event(END_PROCESS, clock + p.getCpuTimeNeeded(), clock));
-			} else if (p.getTimeToNextIoOperation() < p.getCpuTimeNeeded() && p.getTimeToNextIoOperation() < timeSlice) {
-				eventQueue.insertEvent(new Event(IO_REQUEST, clock + p.getTimeToNextIoOperation(), clock));
-			} else {
-				eventQueue.insertEvent(new Event(SWITCH_PROCESS, clock + timeSlice, clock));
-			}
-	}
-	
-	private void flushMemoryQueuePriority() {
-		Process p = memory.checkMemory(clock);
-		// As long as there is enough memory, processes are moved from the memory queue to the cpu queue
-		while(p != null) {
-			
-			if (priorityRrPhase == 0) {
-				cpu.insertPqProcess(p);
-				itemsInPhase++;
-				priorityRrPhase = 1;
+	private void endSwitchOrIo(Process p, int core) {
+		long timeSlice = cpu.getQuantum(p);
+		if (memory.getPages() != null) {
+			long burst = Math.min(timeSlice, Math.min(p.getCpuTimeNeeded(), p.getTimeToNextIoOperation()));
+			long fault = memory.getPages().runReferences(p, clock, burst);
+			if (fault >= 0) {
+				eventQueue.insertEvent(PAGE_FAULT, clock + fault, clock, core);
+				return;
 			}
-			if (cpu.readyQueueIsEmpty() && cpu.getActiveProcess() == null) {
-				cpu.insertProcess(p);
-				runProcessCpuPriority();
-			} else {
-				cpu.insertProcess(p);
-			}
-
-			// Check for more free memory
-			p = memory.checkMemory(clock);
-		}
-	}
-	
-	private void switchProcessPriority() {
-		//swap processes
-		if (cpu.getActiveProcess() == null) {
-			System.err.println("Tried to swap without active process");
-		}
-		
-		Process p;
-		if (priorityRrPhase == 1) {
-			p = cpu.switchProcess(clock);			
-		} else if (priorityRrPhase == 2) {
-			p = cpu.switchProcessPrioritized(clock);
-		} else {
-			p = cpu.switchProcess(clock);
-		}
-
-		//set marker if no process could be set active (should not happen at switch,
-		//should switch in the same process again if so)
-
-		if (p == null) {
-			if (cpu.getActiveProcess() != null) {
-				System.err.println("error in switchProcess");
-			}
-			cpu.setActiveProcess(null);
-			gui.setCpuActive(null);
-		} else {
-			itemsInPhase--;
-			if (itemsInPhase <= 0) {
-				itemsInPhase = cpu.addReadyQueueToPq();
-				if (priorityRrPhase == 1) {
-					priorityRrPhase = 2;
-				} else if (priorityRrPhase == 2) {
-					priorityRrPhase = 1;
-				}
-			}
-			gui.setCpuActive(p);
-			if (priorityRrPhase == 1) {
-				endSwitchOrIo(p, maxCpuTime);
-			} else if (priorityRrPhase == 2){
-				endSwitchOrIo(p, p.getCpuTimeNeeded());
-			}
-		}
-	}
-	
-	private void endProcessPriority() {
-		//deallocate resources
-		Process p = cpu.getActiveProcess();
-		if (cpu.getActiveProcess() == null) {
-			System.err.println("Attempted end with no active process");
-		} else {
-			memory.processCompleted(p);			
-		}
-		// Try to use the freed memory:
-		flushMemoryQueuePriority();
-		// Update statistics
-		p.updateStatistics(statistics);
-		//Activate next process
-		Process next;
-		if (priorityRrPhase == 1) {
-			next = cpu.activateNext(clock);
-		} else if (priorityRrPhase == 2) {
-			next = cpu.activateNextPrioritized(clock);
-		} else {
-			next = cpu.activateNext(clock);
 		}
-		//set marker if no process could be set active (empty queue)
-		if (next == null) {
-			if (cpu.getActiveProcess() != null) {
-				System.err.println("error in endprocess");
-			}
-			cpu.setActiveProcess(null);
-			gui.setCpuActive(null);
+		if (p.getCpuTimeNeeded() <= p.getTimeToNextIoOperation() && p.getCpuTimeNeeded() <= timeSlice) {
+			eventQueue.insertEvent(END_PROCESS, clock + p.getCpuTimeNeeded(), clock, core);
+		} else if (p.getTimeToNextIoOperation() < p.getCpuTimeNeeded() && p.getTimeToNextIoOperation() < timeSlice) {
+			eventQueue.insertEvent(IO_REQUEST, clock + p.getTimeToNextIoOperation(), clock, core);
 		} else {
-			itemsInPhase--;
-			if (itemsInPhase <= 0) {
-				itemsInPhase = cpu.addReadyQueueToPq();
-				if (priorityRrPhase == 1) {
-					priorityRrPhase = 2;
-				} else if (priorityRrPhase == 2) {
-					priorityRrPhase = 1;
-				}
-			}
-			gui.setCpuActive(next);
-				if (priorityRrPhase == 1) {
-					endSwitchOrIo(p, maxCpuTime);
-				} else if (priorityRrPhase == 2){
-					endSwitchOrIo(p, p.getCpuTimeNeeded());
-				}
+			eventQueue.insertEvent(SWITCH_PROCESS, clock + timeSlice, clock, core);
 		}
-		
 	}
-	
-	private void processIoRequestPriority() {
-		//insert active cpu process into ioQueue
-		boolean runIo = false;
-		if (cpu.getActiveProcess() != null) {
-			//if activeProcess is empty (and ioQueue), add event to immediately run the inserted process
-			if (io.ioQueueIsEmpty() && io.getActiveProcess() == null) {
-				io.insertProcess(cpu.getActiveProcess());
-				runIo = true;
-				
-			} else {
-				io.insertProcess(cpu.getActiveProcess());
-			}
-		} else {
-			System.err.println("IOrequest with empty cpu device");
-		}
-		
-		//activate next process in readyQueue
-		Process p;
-		if (priorityRrPhase == 1) {
-			p = cpu.activateNext(clock);
-		} else if (priorityRrPhase == 2) {
-			p = cpu.activateNextPrioritized(clock);
-		} else {
-			p = cpu.activateNext(clock);
-		}
-		if (runIo) {
-			runProcessIo();
-		}
-		
-		//set marker if no process could be activated (empty queue)
-		if (p == null) {
-			if (cpu.getActiveProcess() != null) {
-				System.err.println("Error in processIO");
-			}
-			cpu.setActiveProcess(null);
-			gui.setCpuActive(null);
+
+	/**
+	 * Creates the paged memory described by a configuration.
+	 * @param config	The simulation parameters.
+	 * @return			The paged memory.
+	 */
+	private PagedMemory createPagedMemory(SimulationConfig config) {
+		int nofFrames = (int)(config.memorySize/config.pageSize);
+		PageReplacement replacement;
+		if (config.pageReplacement.equals("fifo")) {
+			replacement = new FifoReplacement(nofFrames);
+		} else if (config.pageReplacement.equals("clock")) {
+			replacement = new ClockReplacement(nofFrames);
+		} else if (config.pageReplacement.equals("wsclock")) {
+			replacement = new WsClockReplacement(nofFrames, config.wsclockTau);
 		} else {
-			itemsInPhase--;
-			if (itemsInPhase <= 0) {
-				itemsInPhase = cpu.addReadyQueueToPq();
-				if (priorityRrPhase == 1) {
-					priorityRrPhase = 2;
-				} else if (priorityRrPhase == 2) {
-					priorityRrPhase = 1;
-				}
-			}
-			gui.setCpuActive(p);
-			if (priorityRrPhase == 1) {
-				endSwitchOrIo(p, maxCpuTime);
-			} else if (priorityRrPhase == 2){
-				endSwitchOrIo(p, p.getCpuTimeNeeded());
-			}
+			replacement = new LruReplacement(nofFrames);
 		}
-		
+		return new PagedMemory(config.memorySize, config.pageSize, replacement, config.pageReferenceInterval,
+				statistics, random);
 	}
-	
-	private void endIoOperationPriority() {
-		statistics.nofProcessedIoOperations++;
-		boolean runCPU = false;
-		//Inserting finished process back into cpu queue
-		if (cpu.readyQueueIsEmpty() && cpu.getActiveProcess() == null) {
-			cpu.insertProcess(io.getActiveProcess());
-			runCPU = true;
-		} else {
-			cpu.insertProcess(io.getActiveProcess());
-		}
-		//Activating the next process in the ioQueue
-		Process	p = io.activateNext(clock);
-		if (runCPU) {
-			runProcessCpuPriority();
-		}
 
-		
-		//Set a marker if no process could be activated (empty queue)
-		if (p == null) {
-			if (io.getActiveProcess() != null) {
-				System.err.println("Error in endIo");
-			}
-			io.setActiveProcess(null);
-			gui.setIoActive(null);
-		} else {
-			gui.setIoActive(p);
-			io.updateNextIoTime(clock);
-			eventQueue.insertEvent(new Event(END_IO, io.getNextIoTime(clock), clock));
-		}
+	/**
+	 * Creates the memory allocator named in a configuration.
+	 * @param config	The simulation parameters.
+	 * @return			The allocator.
+	 */
+	private MemoryAllocator createAllocator(SimulationConfig config) {
+		statistics.memoryAllocator = config.memoryAllocator;
+		if (config.memoryAllocator.equals("firstfit")) {
+			return new FreeListAllocator(config.memorySize, FreeListAllocator.FIRST_FIT);
+		} else if (config.memoryAllocator.equals("bestfit")) {
+			return new FreeListAllocator(config.memorySize, FreeListAllocator.BEST_FIT);
+		} else if (config.memoryAllocator.equals("nextfit")) {
+			return new FreeListAllocator(config.memorySize, FreeListAllocator.NEXT_FIT);
+		} else if (config.memoryAllocator.equals("buddy")) {
+			return new BuddyAllocator(config.memorySize);
+		}
+		return new CompactingAllocator(config.memorySize);
 	}
-	
-	private void runProcessCpuPriority() {
-		System.out.println("Ran prioritized runProcess");
-		if (cpu.getActiveProcess() == null) {
-			Process p;
-			if (priorityRrPhase == 1) {
-				p = cpu.activateProcess(clock);			
-			} else if (priorityRrPhase == 2) {
-				p = cpu.activateProcessPrioritized(clock);
-			} else {
-				p = cpu.activateProcess(clock);
-			}
-			if (p == null) {
-				System.err.println("Tried to run process when readyQueue was empty");
-				gui.setCpuActive(null);
-			} else {
-				itemsInPhase--;
-				if (itemsInPhase <= 0) {
-					itemsInPhase = cpu.addReadyQueueToPq();
-					if (priorityRrPhase == 1) {
-						priorityRrPhase = 2;
-					} else if (priorityRrPhase == 2) {
-						priorityRrPhase = 1;
-					}
-				}
-				gui.setCpuActive(p);
-				if (priorityRrPhase == 1) {
-					endSwitchOrIo(p, maxCpuTime);
-				} else if (priorityRrPhase == 2){
-					endSwitchOrIo(p, p.getCpuTimeNeeded());
-				}
 
-			}
-		} else {
-			System.err.println("fill empty cpu when cpu was filled");
-		}
+	/**
+	 * Creates the scheduler named in a configuration.
+	 * @param config	The simulation parameters.
+	 * @return			The scheduler.
+	 */
+	private Scheduler createScheduler(SimulationConfig config) {
+		if (config.scheduler.equals("priority")) {
+			return new PriorityRoundRobinScheduler(config.maxCpuTime);
+		} else if (config.scheduler.equals("mlfq")) {
+			return new MultilevelFeedbackScheduler(config.getMlfqQuanta(), config.mlfqBoostInterval, statistics);
+		} else if (config.scheduler.equals("cfs")) {
+			return new FairScheduler(config.cfsTargetLatency, config.cfsMinGranularity, config.cfsMaxNice, random);
+		}
+		return new RoundRobinScheduler(cpuQueue, config.maxCpuTime);
 	}
-	
-	
-	
 
 	/**
 	 * Reads a number from the an input reader.
@@ -1,12 +1,19 @@
 package p3;
 
+import java.io.Serializable;
+import java.lang.reflect.*;
+import java.util.*;
+
 /**
  * This class contains a lot of public variables that can be updated
  * by other classes during a simulation, to collect information about
  * the run.
  */
-public class Statistics
+public class Statistics implements Serializable
 {
+	/** The version of the serialized form */
+	private static final long serialVersionUID = 1L;
+
 	/** The number of processes that have exited the system */
 	public long nofCompletedProcesses = 0;
 	/** The number of processes that have entered the system */
@@ -39,6 +46,96 @@ public class Statistics
 	public long totalNofTimesPlacedInIoQueue = 0;
 	public long totActiveCpuTime = 0;
 	public long totIdleCpuTime = 0;
+	/** The number of CPU cores, totCpuTime is the sum of the time of all cores */
+	public int nofCpuCores = 1;
+	/** The time each CPU core has spent processing */
+	public long[] coreActiveCpuTime = new long[1];
+	/** The number of I/O devices, the I/O queue lengths above are summed over all devices */
+	public int nofIoDevices = 1;
+	/** The time each I/O device has spent performing I/O */
+	public long[] ioDeviceActiveTime = new long[1];
+	/** The time-weighted length of the queue of each I/O device */
+	public long[] ioDeviceQueueLengthTime = new long[1];
+	/** The number of I/O operations processed by each device */
+	public long[] ioDeviceOperations = new long[1];
+	/** The number of priority levels of the scheduler, 1 for schedulers without levels */
+	public int nofSchedulerLevels = 1;
+	/** The number of completed processes that ended on each priority level */
+	public long[] levelCompletedProcesses = new long[1];
+	/** The total response time of the completed processes that ended on each priority level */
+	public long[] levelResponseTime = new long[1];
+	/** The total time spent in the system by the completed processes that ended on each priority level */
+	public long[] levelTimeSpentInSystem = new long[1];
+	/** The memory allocation policy, as named in SimulationConfig */
+	public String memoryAllocator = "compact";
+	/** The number of memory allocations and frees */
+	public long nofAllocatorOperations = 0;
+	/** The number of processes that found no large enough free block at the head of the memory queue */
+	public long nofFailedAllocations = 0;
+	/** The number of those processes that failed to fit at some point although the total free memory was enough */
+	public long nofFragmentationFailures = 0;
+	/** The memory admission policy, as named in SimulationConfig */
+	public String memoryAdmission = "fifo";
+	/** The number of processes admitted to memory ahead of the head of the memory queue */
+	public long nofBackfilledProcesses = 0;
+	/** The number of steps, such as examined, split or merged blocks, taken by the memory allocator */
+	public long allocatorSteps = 0;
+	/** The time-weighted amount of free memory */
+	public long freeMemoryTime = 0;
+	/** The time-weighted amount of free memory outside the largest free block, which is external fragmentation */
+	public long fragmentedMemoryTime = 0;
+	/** The time-weighted amount of memory allocated beyond what processes asked for, which is internal fragmentation */
+	public long roundingMemoryTime = 0;
+	/** The page replacement policy, as named in SimulationConfig, or none if memory is not paged */
+	public String pageReplacement = "none";
+	/** The number of page references made by processes */
+	public long nofPageReferences = 0;
+	/** The number of page references to pages that were not in memory */
+	public long nofPageFaults = 0;
+	/** The number of pages evicted to make room for faulting pages */
+	public long nofPageEvictions = 0;
+	/** The number of frames examined by the page replacement policy */
+	public long replacementSteps = 0;
+	/** The warm-up detection method, mser5 or none */
+	public String warmupDetection = "none";
+	/** The simulated time deleted from the start of the run as warm-up, the statistics cover the time after it */
+	public long warmupTime = 0;
+	/** The time at which the warm-up was detected, 0 if it was not */
+	public long warmupDetectionTime = 0;
+
+	/** The percentiles reported for the histograms */
+	private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+	/** The column name suffixes of the reported percentiles */
+	private static final String[] PERCENTILE_NAMES = {"P50", "P90", "P99", "P999"};
+	/** The names of the CSV columns holding single values, in the order of csvValues */
+	private static final String[] VALUE_COLUMNS = {
+		"nofCompletedProcesses", "nofCreatedProcesses", "totalTimeSpentWaitingForMemory", "memoryQueueLengthTime",
+		"memoryQueueLargestLength", "ioQueueLengthTime", "ioQueueLargestLength", "readyQueueLengthTime",
+		"readyQueueLargestLength", "nofProcessSwitches", "nofProcessedIoOperations", "totCpuTime",
+		"totalTimeSpentInSystem", "totalTimeSpentWaitingForCpu", "totalTimeSpentInCpu",
+		"totalTimeSpentWaitingForIo", "totalTimeSpentInIo", "totalNofTimesPlacedInReadyQueue",
+		"totalNofTimesPlacedInIoQueue", "totActiveCpuTime", "totIdleCpuTime", "nofAllocatorOperations",
+		"nofFailedAllocations", "nofFragmentationFailures", "nofBackfilledProcesses", "allocatorSteps",
+		"freeMemoryTime", "fragmentedMemoryTime", "roundingMemoryTime", "nofPageReferences", "nofPageFaults",
+		"nofPageEvictions", "replacementSteps", "warmupTime", "warmupDetectionTime"};
+	/** The name prefixes of the CSV columns of the histograms, in the order of getHistograms */
+	private static final String[] HISTOGRAM_COLUMNS = {"timeInSystem", "waitingForMemory", "waitingForCpu",
+		"waitingForIo", "responseTime"};
+	/** The names of the derived metrics that start the array returned by getMetrics */
+	private static final String[] DERIVED_METRIC_NAMES = {"throughput", "cpuUtilization", "avgMemoryQueueLength",
+		"avgReadyQueueLength", "avgIoQueueLength", "avgTimeInSystem", "avgWaitingForMemory", "avgWaitingForCpu",
+		"avgTimeInCpu", "avgWaitingForIo", "avgTimeInIo", "avgResponseTime"};
+
+	/** Distribution of the time spent in the system by completed processes */
+	public LatencyHistogram timeInSystemHistogram = new LatencyHistogram();
+	/** Distribution of the time spent waiting for memory by completed processes */
+	public LatencyHistogram waitingForMemoryHistogram = new LatencyHistogram();
+	/** Distribution of the time spent waiting for the cpu by completed processes */
+	public LatencyHistogram waitingForCpuHistogram = new LatencyHistogram();
+	/** Distribution of the time spent waiting for I/O by completed processes */
+	public LatencyHistogram waitingForIoHistogram = new LatencyHistogram();
+	/** Distribution of the time from creation until first getting the cpu, of completed processes */
+	public LatencyHistogram responseTimeHistogram = new LatencyHistogram();
     
 	/**
 	 * Prints out a report summarizing all collected data about the simulation.
@@ -46,6 +143,7 @@ public class Statistics
 	 */
 	public void printReport(long simulationLength) {
 		calcTotalSystemTime();
+		simulationLength -= warmupTime;
 		System.out.println();
 		System.out.println("Simulation statistics:");
 		System.out.println();
@@ -53,8 +151,16 @@ public class Statistics
 		System.out.println("Number of created processes:                                  "+nofCreatedProcesses);
 		System.out.println("Number of (forced) process switches:                          "+nofProcessSwitches);
 		System.out.println("Number of processed I/O operations:                           "+nofProcessedIoOperations);
+		if(!warmupDetection.equals("none")) {
+			if(warmupDetectionTime > 0) {
+				System.out.println("Warm-up deleted by MSER-5:                                    "+warmupTime+" ms");
+				System.out.println("Warm-up detected at:                                          "+warmupDetectionTime+" ms");
+			} else {
+				System.out.println("Warm-up not detected by MSER-5, the run may be too short");
+			}
+		}
 		System.out.println("Average throughput (processes per second):                    "+
-		(float)nofCompletedProcesses/((float)totCpuTime/1000));
+		(float)nofCompletedProcesses/((float)totCpuTime/nofCpuCores/1000));
 		System.out.println();
 		System.out.println("Total CPU time spent processing:                              "+totActiveCpuTime+" ms");
 		System.out.println("Fraction of CPU time spent process                            "+
@@ -62,13 +168,51 @@ public class Statistics
 		System.out.println("Total CPU time spent waiting:                                 "+totIdleCpuTime);
 		System.out.println("Fraction of CPU time spent waiting                            "+
 		((float)totIdleCpuTime/(float)totCpuTime)*100+"%");
+		if(nofCpuCores > 1) {
+			long coreTime = totCpuTime/nofCpuCores;
+			for(int core = 0; core < nofCpuCores; core++) {
+				System.out.println(String.format("%-62s", "Fraction of time core "+core+" spent processing")+
+				((float)coreActiveCpuTime[core]/(float)coreTime)*100+"%");
+			}
+		}
 		System.out.println();
 		System.out.println("Largest occuring memory queue length:                         "+memoryQueueLargestLength);
 		System.out.println("Average memory queue length:                                  "+(float)memoryQueueLengthTime/simulationLength);
+		if(!memoryAdmission.equals("fifo")) {
+			System.out.println(String.format("%-62s", "Memory admission:")+memoryAdmission);
+			System.out.println("Processes admitted ahead of the memory queue head:            "+nofBackfilledProcesses);
+		}
+		if(!memoryAllocator.equals("compact")) {
+			System.out.println(String.format("%-62s", "Memory allocator:")+memoryAllocator);
+			System.out.println("Blocked memory queue heads (with enough free memory):         "+
+			nofFailedAllocations+" ("+nofFragmentationFailures+")");
+			System.out.println("Average external fragmentation (free memory not in largest):  "+
+			(freeMemoryTime > 0 ? (float)fragmentedMemoryTime/freeMemoryTime*100 : 0)+"%");
+			System.out.println("Average memory lost to rounding (KB):                         "+(float)roundingMemoryTime/simulationLength);
+			System.out.println("Average allocator steps per operation:                        "+
+			(nofAllocatorOperations > 0 ? (float)allocatorSteps/nofAllocatorOperations : 0));
+		}
+		if(!pageReplacement.equals("none")) {
+			System.out.println(String.format("%-62s", "Page replacement:")+pageReplacement);
+			System.out.println("Page references, faults and evictions:                        "+
+			nofPageReferences+", "+nofPageFaults+", "+nofPageEvictions);
+			System.out.println("Page fault rate:                                              "+
+			(nofPageReferences > 0 ? (float)nofPageFaults/nofPageReferences*100 : 0)+"%");
+			System.out.println("Average frames examined per eviction:                         "+
+			(nofPageEvictions > 0 ? (float)replacementSteps/nofPageEvictions : 0));
+		}
 		System.out.println("Largest occuring cpu queue length:                            "+readyQueueLargestLength);
 		System.out.println("Average memory cpu length:                                    "+(float)readyQueueLengthTime/simulationLength);
 		System.out.println("Largest occuring I/O queue length:                            "+ioQueueLargestLength);
 		System.out.println("Average I/O queue length:                                     "+(float)ioQueueLengthTime/simulationLength);
+		if(nofIoDevices > 1) {
+			long deviceTime = totCpuTime/nofCpuCores;
+			for(int device = 0; device < nofIoDevices; device++) {
+				System.out.println(String.format("%-62s", "I/O device "+device+": operations, busy fraction, avg queue")+
+				ioDeviceOperations[device]+", "+((float)ioDeviceActiveTime[device]/(float)deviceTime)*100+"%, "+
+				(float)ioDeviceQueueLengthTime[device]/simulationLength);
+			}
+		}
 		if(nofCompletedProcesses > 0) {
 			System.out.println("Average # of times a process has been placed in memory queue:   "+1);
 			System.out.println("Average # of times a process has been placed in cpu queue:      "+
@@ -88,11 +232,244 @@ public class Statistics
 				totalTimeSpentWaitingForIo/nofCompletedProcesses+" ms");
 			System.out.println("Average time spent in I/O per process:                          "+
 				totalTimeSpentInIo/nofCompletedProcesses+" ms");
+			System.out.println();
+			System.out.println(String.format("%-48s %10s %10s %10s %10s %10s", "Percentiles per process (ms):",
+				"p50", "p90", "p99", "p99.9", "max"));
+			printPercentiles("Time spent in system:", timeInSystemHistogram);
+			printPercentiles("Time spent waiting for memory:", waitingForMemoryHistogram);
+			printPercentiles("Time spent waiting for cpu:", waitingForCpuHistogram);
+			printPercentiles("Time spent waiting for I/O:", waitingForIoHistogram);
+			printPercentiles("Response time (creation to first cpu):", responseTimeHistogram);
+			if(nofSchedulerLevels > 1) {
+				System.out.println();
+				System.out.println(String.format("%-48s %10s %10s %10s", "Per level the process ended on:",
+					"completed", "response", "in system"));
+				for(int level = 0; level < nofSchedulerLevels; level++) {
+					long n = levelCompletedProcesses[level];
+					System.out.println(String.format("%-48s %10d %10d %10d", "Level "+level+" (avg ms):", n,
+						n > 0 ? levelResponseTime[level]/n : 0, n > 0 ? levelTimeSpentInSystem[level]/n : 0));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Prints one line of the percentile table.
+	 * @param name		The name of the line.
+	 * @param histogram	The histogram to print the percentiles of.
+	 */
+	private void printPercentiles(String name, LatencyHistogram histogram) {
+		StringBuilder line = new StringBuilder(String.format("%-48s", name));
+		for(double percentile : PERCENTILES) {
+			line.append(String.format(" %10d", histogram.getValueAtPercentile(percentile)));
+		}
+		line.append(String.format(" %10d", histogram.getMax()));
+		System.out.println(line);
+	}
+
+	/**
+	 * Returns the names of all collected values, separated by commas, to be used
+	 * as the header line of a CSV file with one row per simulation. Every
+	 * histogram gives one column per reported percentile and one for the maximum.
+	 * @return	The CSV header.
+	 */
+	public static String csvHeader() {
+		StringBuilder header = new StringBuilder(String.join(",", VALUE_COLUMNS));
+		for(String prefix : HISTOGRAM_COLUMNS) {
+			for(String percentile : PERCENTILE_NAMES) {
+				header.append(',').append(prefix).append(percentile);
+			}
+			header.append(',').append(prefix).append("Max");
+		}
+		return header.toString();
+	}
+
+	/**
+	 * Returns all collected values separated by commas, in the order given by csvHeader().
+	 * @return	The CSV row.
+	 */
+	public String toCsvRow() {
+		StringBuilder row = new StringBuilder();
+		for(long value : csvValues()) {
+			if(row.length() > 0) {
+				row.append(',');
+			}
+			row.append(value);
+		}
+		return row.toString();
+	}
+
+	/**
+	 * Returns the names of the metrics returned by getMetrics: the averages
+	 * and fractions shown in the report, followed by all CSV columns.
+	 * @return	The metric names.
+	 */
+	public static String[] getMetricNames() {
+		String[] columns = csvHeader().split(",");
+		String[] names = Arrays.copyOf(DERIVED_METRIC_NAMES, DERIVED_METRIC_NAMES.length+columns.length);
+		System.arraycopy(columns, 0, names, DERIVED_METRIC_NAMES.length, columns.length);
+		return names;
+	}
+
+	/**
+	 * Returns the values of all metrics, in the order given by getMetricNames.
+	 * Per-process averages are 0 if no process has completed.
+	 * @param simulationLength	The number of milliseconds that the simulation covered.
+	 * @return					The metric values.
+	 */
+	public double[] getMetrics(long simulationLength) {
+		simulationLength -= warmupTime;
+		long[] columns = csvValues();
+		double[] metrics = new double[DERIVED_METRIC_NAMES.length+columns.length];
+		double completed = Math.max(1, nofCompletedProcesses);
+		int i = 0;
+		metrics[i++] = totCpuTime > 0 ? nofCompletedProcesses/((double)totCpuTime/nofCpuCores/1000) : 0;
+		metrics[i++] = totCpuTime > 0 ? (double)totActiveCpuTime/totCpuTime*100 : 0;
+		metrics[i++] = (double)memoryQueueLengthTime/simulationLength;
+		metrics[i++] = (double)readyQueueLengthTime/simulationLength;
+		metrics[i++] = (double)ioQueueLengthTime/simulationLength;
+		metrics[i++] = totalTimeSpentInSystem/completed;
+		metrics[i++] = totalTimeSpentWaitingForMemory/completed;
+		metrics[i++] = totalTimeSpentWaitingForCpu/completed;
+		metrics[i++] = totalTimeSpentInCpu/completed;
+		metrics[i++] = totalTimeSpentWaitingForIo/completed;
+		metrics[i++] = totalTimeSpentInIo/completed;
+		metrics[i++] = responseTimeHistogram.getMean();
+		for(long value : columns) {
+			metrics[i++] = value;
+		}
+		return metrics;
+	}
+
+	/**
+	 * Returns the current values of all counters and time-weighted sums,
+	 * the long and long array fields except the largest queue lengths, to
+	 * be subtracted later by deleteUntil.
+	 * @return	The values of the counters.
+	 */
+	public long[] getCounters() {
+		int n = 0;
+		for(Field field : counterFields()) {
+			n += field.getType() == long.class ? 1 : Array.getLength(get(field));
+		}
+		long[] counters = new long[n];
+		n = 0;
+		for(Field field : counterFields()) {
+			if(field.getType() == long.class) {
+				counters[n++] = (Long)get(field);
+			} else {
+				long[] values = (long[])get(field);
+				System.arraycopy(values, 0, counters, n, values.length);
+				n += values.length;
+			}
+		}
+		return counters;
+	}
+
+	/**
+	 * Deletes everything counted before the given counter values were taken,
+	 * so that the counters and time-weighted sums cover only the time after
+	 * it. The largest queue lengths and the percentile histograms, which can
+	 * not be taken apart in this way, start over from now.
+	 * @param counters	The values returned by getCounters earlier in the run.
+	 */
+	public void deleteUntil(long[] counters) {
+		int n = 0;
+		try {
+			for(Field field : counterFields()) {
+				if(field.getType() == long.class) {
+					field.setLong(this, field.getLong(this)-counters[n++]);
+				} else {
+					long[] values = (long[])field.get(this);
+					for(int i = 0; i < values.length; i++) {
+						values[i] -= counters[n++];
+					}
+				}
+			}
+		} catch (IllegalAccessException iae) {
+			throw new IllegalStateException(iae);
+		}
+		memoryQueueLargestLength = 0;
+		readyQueueLargestLength = 0;
+		ioQueueLargestLength = 0;
+		for(LatencyHistogram histogram : getHistograms()) {
+			histogram.reset();
+		}
+	}
+
+	/**
+	 * Returns the fields holding counters and time-weighted sums, sorted by
+	 * name so that the order is the same in every JVM.
+	 * @return	The fields.
+	 */
+	private static Field[] counterFields() {
+		List<Field> fields = new ArrayList<Field>();
+		for(Field field : Statistics.class.getFields()) {
+			boolean counter = field.getType() == long.class || field.getType() == long[].class;
+			if(counter && !Modifier.isStatic(field.getModifiers()) && !field.getName().endsWith("LargestLength")
+					&& !field.getName().startsWith("warmup")) {
+				fields.add(field);
+			}
 		}
+		Collections.sort(fields, new Comparator<Field>() {
+			public int compare(Field a, Field b) {
+				return a.getName().compareTo(b.getName());
+			}
+		});
+		return fields.toArray(new Field[fields.size()]);
+	}
+
+	/**
+	 * Reads a field of this object.
+	 * @param field	A public field of this class.
+	 * @return		The value of the field.
+	 */
+	private Object get(Field field) {
+		try {
+			return field.get(this);
+		} catch (IllegalAccessException iae) {
+			throw new IllegalStateException(iae);
+		}
+	}
+
+	/**
+	 * Returns all collected values, in the order given by csvHeader().
+	 * @return	The values.
+	 */
+	private long[] csvValues() {
+		calcTotalSystemTime();
+		long[] singles = {
+			nofCompletedProcesses, nofCreatedProcesses, totalTimeSpentWaitingForMemory, memoryQueueLengthTime,
+			memoryQueueLargestLength, ioQueueLengthTime, ioQueueLargestLength, readyQueueLengthTime,
+			readyQueueLargestLength, nofProcessSwitches, nofProcessedIoOperations, totCpuTime, totalTimeSpentInSystem,
+			totalTimeSpentWaitingForCpu, totalTimeSpentInCpu, totalTimeSpentWaitingForIo, totalTimeSpentInIo,
+			totalNofTimesPlacedInReadyQueue, totalNofTimesPlacedInIoQueue, totActiveCpuTime, totIdleCpuTime,
+			nofAllocatorOperations, nofFailedAllocations, nofFragmentationFailures, nofBackfilledProcesses,
+			allocatorSteps, freeMemoryTime, fragmentedMemoryTime, roundingMemoryTime, nofPageReferences,
+			nofPageFaults, nofPageEvictions, replacementSteps, warmupTime, warmupDetectionTime};
+		LatencyHistogram[] histograms = getHistograms();
+		long[] values = Arrays.copyOf(singles, singles.length+histograms.length*(PERCENTILES.length+1));
+		int n = singles.length;
+		for(LatencyHistogram histogram : histograms) {
+			for(double percentile : PERCENTILES) {
+				values[n++] = histogram.getValueAtPercentile(percentile);
+			}
+			values[n++] = histogram.getMax();
+		}
+		return values;
+	}
+
+	/**
+	 * Returns the histograms, in the order of HISTOGRAM_COLUMNS.
+	 * @return	The histograms.
+	 */
+	private LatencyHistogram[] getHistograms() {
+		return new LatencyHistogram[] {timeInSystemHistogram, waitingForMemoryHistogram, waitingForCpuHistogram,
+			waitingForIoHistogram, responseTimeHistogram};
 	}
 
 	private void calcTotalSystemTime() {
-		totalTimeSpentInSystem += totalTimeSpentInCpu+totalTimeSpentInIo
+		totalTimeSpentInSystem = totalTimeSpentInCpu+totalTimeSpentInIo
 				+totalTimeSpentWaitingForCpu+totalTimeSpentWaitingForIo+totalTimeSpentWaitingForMemory;
 		
 	}
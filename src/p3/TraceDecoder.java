@@ -0,0 +1,88 @@
+package p3;
+
+import java.io.*;
+
+/**
+ * Prints the content of a binary trace file written by TraceRecorder,
+ * one transition per line.
+ *
+ * Usage: java p3.TraceDecoder tracefile
+ */
+public class TraceDecoder implements Constants
+{
+	/** The names of the event types, indexed by type */
+	private static final String[] EVENT_NAMES = {"-", "NEW_PROCESS", "END_PROCESS", "SWITCH_PROCESS",
+		"IO_REQUEST", "END_IO", "RUN_PROCESS_CPU", "RUN_PROCESS_IO", "PAGE_FAULT"};
+	/** The names of the process states, indexed by state */
+	private static final String[] STATE_NAMES = {"none", "memory queue", "ready queue", "cpu", "I/O queue", "I/O"};
+
+	/**
+	 * Returns the name of a code, or the code itself if it has no name.
+	 * @param names	The known names.
+	 * @param code	The code.
+	 * @return		The name.
+	 */
+	private static String name(String[] names, int code) {
+		return code >= 0 && code < names.length ? names[code] : "#"+code;
+	}
+
+	/**
+	 * Reads a trace and writes it as text.
+	 * @param in	The trace.
+	 * @param out	Where the text is written.
+	 * @return		The number of records decoded.
+	 * @throws IOException	If the trace could not be read or is not a trace file.
+	 */
+	public static long decode(DataInputStream in, PrintStream out) throws IOException {
+		if(in.readInt() != TraceRecorder.MAGIC) {
+			throw new IOException("Not a trace file");
+		}
+		int version = in.readInt();
+		int recordSize = in.readInt();
+		if(version != TraceRecorder.VERSION || recordSize != TraceRecorder.RECORD_SIZE) {
+			throw new IOException("Unsupported trace version "+version+" with record size "+recordSize);
+		}
+		long records = 0;
+		while(true) {
+			long time;
+			try {
+				time = in.readLong();
+			} catch (EOFException eof) {
+				return records;
+			}
+			long processId = in.readLong();
+			int event = in.readUnsignedByte();
+			int from = in.readUnsignedByte();
+			int to = in.readUnsignedByte();
+			in.readUnsignedByte();
+			out.println(time+"\t"+name(EVENT_NAMES, event)+"\t"+processId+"\t"
+				+name(STATE_NAMES, from)+" -> "+name(STATE_NAMES, to));
+			records++;
+		}
+	}
+
+	/**
+	 * Decodes the trace file given on the command line.
+	 * @param args	The name of the trace file.
+	 */
+	public static void main(String args[]) {
+		if(args.length != 1) {
+			System.err.println("Usage: java p3.TraceDecoder tracefile");
+			System.exit(1);
+		}
+		PrintStream out = new PrintStream(new BufferedOutputStream(System.out), false);
+		try {
+			DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(args[0])));
+			try {
+				out.println("time\tevent\tpid\ttransition");
+				decode(in, out);
+			} finally {
+				in.close();
+				out.flush();
+			}
+		} catch (IOException ioe) {
+			System.err.println("Could not decode "+args[0]+": "+ioe.getMessage());
+			System.exit(1);
+		}
+	}
+}
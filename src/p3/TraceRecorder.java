@@ -0,0 +1,196 @@
+package p3;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.*;
+
+/**
+ * Records process state transitions to a binary trace file. Every transition
+ * is written as a fixed-size record into a preallocated ring buffer by the
+ * simulation thread, and a background thread drains the buffer to the file.
+ * Recording a transition therefore costs a few memory writes and never does
+ * I/O in the simulation thread, unless the writer falls a full buffer behind,
+ * in which case the simulation waits for it.
+ *
+ * A trace file starts with a header (the magic number, the format version and
+ * the record size) followed by records of RECORD_SIZE bytes:
+ * time (long), process ID (long), event type (byte), from state (byte),
+ * to state (byte) and one unused byte. Use TraceDecoder to print a trace.
+ *
+ * Tracing is off unless a Simulator is configured with a trace file; the
+ * components then hold a null recorder and skip recording altogether.
+ */
+public class TraceRecorder
+{
+	/** The magic number starting every trace file, "P3TR" */
+	public static final int MAGIC = 0x50335452;
+	/** The version of the trace format */
+	public static final int VERSION = 1;
+	/** The size of one record in bytes */
+	public static final int RECORD_SIZE = 20;
+	/** The default number of records in the ring buffer */
+	public static final int DEFAULT_CAPACITY = 1 << 16;
+
+	/** The ring buffer */
+	private ByteBuffer buffer;
+	/** The number of records the ring buffer can hold, a power of two */
+	private int capacity;
+	/** The number of records written to the buffer, published to the writer thread */
+	private AtomicLong written;
+	/** The number of records written to the file, published to the simulation thread */
+	private AtomicLong flushed;
+	/** The simulation thread's own count of written records */
+	private long writePosition;
+	/** The simulation thread's last known value of flushed */
+	private long flushedCache;
+	/** The type of the event currently being processed */
+	private int currentEvent;
+	/** The file the trace is written to */
+	private FileChannel channel;
+	/** The thread draining the buffer to the file */
+	private Thread writer;
+	/** Set when no more records will be written */
+	private volatile boolean closed;
+	/** The error that stopped the writer thread, if any */
+	private volatile IOException failure;
+
+	/**
+	 * Creates a recorder writing to the given file, with a buffer of the default size.
+	 * @param file	The trace file, which is overwritten.
+	 * @throws IOException	If the file could not be created.
+	 */
+	public TraceRecorder(File file) throws IOException {
+		this(file, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates a recorder writing to the given file.
+	 * @param file				The trace file, which is overwritten.
+	 * @param minimumCapacity	The least number of records the buffer should hold.
+	 * @throws IOException	If the file could not be created.
+	 */
+	public TraceRecorder(File file, int minimumCapacity) throws IOException {
+		capacity = 1;
+		while(capacity < minimumCapacity) {
+			capacity <<= 1;
+		}
+		buffer = ByteBuffer.allocateDirect(capacity*RECORD_SIZE);
+		written = new AtomicLong();
+		flushed = new AtomicLong();
+		channel = new FileOutputStream(file).getChannel();
+		ByteBuffer header = ByteBuffer.allocate(12);
+		header.putInt(MAGIC).putInt(VERSION).putInt(RECORD_SIZE).flip();
+		while(header.hasRemaining()) {
+			channel.write(header);
+		}
+		writer = new Thread(new Runnable() {
+			public void run() {
+				drain();
+			}
+		}, "trace writer");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	/**
+	 * Sets the type of the event being processed, which is stored in the
+	 * records of all transitions until the next call.
+	 * @param type	The event type, as defined in the Constants interface.
+	 */
+	public void setCurrentEvent(int type) {
+		currentEvent = type;
+	}
+
+	/**
+	 * Records a state transition of a process.
+	 * @param time		The time of the transition.
+	 * @param processId	The ID of the process.
+	 * @param from		The state the process leaves, as defined in the Constants interface.
+	 * @param to		The state the process enters, as defined in the Constants interface.
+	 */
+	public void record(long time, long processId, int from, int to) {
+		if(writePosition-flushedCache == capacity) {
+			waitForSpace();
+		}
+		int offset = (int)(writePosition & (capacity-1))*RECORD_SIZE;
+		buffer.putLong(offset, time);
+		buffer.putLong(offset+8, processId);
+		buffer.put(offset+16, (byte)currentEvent);
+		buffer.put(offset+17, (byte)from);
+		buffer.put(offset+18, (byte)to);
+		buffer.put(offset+19, (byte)0);
+		writePosition++;
+		written.lazySet(writePosition);
+	}
+
+	/**
+	 * Waits until the writer thread has freed at least one record in the buffer.
+	 */
+	private void waitForSpace() {
+		flushedCache = flushed.get();
+		while(writePosition-flushedCache == capacity) {
+			if(failure != null || !writer.isAlive()) {
+				// The writer has stopped, drop the oldest records rather than block forever
+				flushedCache = writePosition-capacity+1;
+				return;
+			}
+			LockSupport.unpark(writer);
+			Thread.onSpinWait();
+			flushedCache = flushed.get();
+		}
+	}
+
+	/**
+	 * Writes all remaining records to the file and closes it.
+	 * @throws IOException	If writing the trace failed.
+	 */
+	public void close() throws IOException {
+		closed = true;
+		LockSupport.unpark(writer);
+		try {
+			writer.join();
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+		}
+		channel.close();
+		if(failure != null) {
+			throw failure;
+		}
+	}
+
+	/**
+	 * Main loop of the writer thread, copying records from the buffer to the
+	 * file until the recorder is closed and the buffer is empty.
+	 */
+	private void drain() {
+		try {
+			long start = flushed.get();
+			while(true) {
+				boolean last = closed;
+				long end = written.get();
+				if(start == end) {
+					if(last) {
+						return;
+					}
+					LockSupport.parkNanos(1000000);
+					continue;
+				}
+				while(start < end) {
+					int first = (int)(start & (capacity-1));
+					int count = (int)Math.min(end-start, capacity-first);
+					ByteBuffer slice = buffer.duplicate();
+					slice.limit((first+count)*RECORD_SIZE).position(first*RECORD_SIZE);
+					while(slice.hasRemaining()) {
+						channel.write(slice);
+					}
+					start += count;
+					flushed.set(start);
+				}
+			}
+		} catch (IOException ioe) {
+			failure = ioe;
+		}
+	}
+}
@@ -0,0 +1,193 @@
+package p3;
+
+import java.io.Serializable;
+import java.util.*;
+
+/**
+ * Detects the end of the warm-up period of a simulation with the MSER-5
+ * rule, and deletes the warm-up from the statistics.
+ *
+ * The detector observes two series at fixed intervals of simulated time:
+ * the time-averaged number of processes in the memory, ready and I/O
+ * queues during the interval, and the average time in the system of the
+ * processes completed during the interval (the previous value if none
+ * completed). Every BATCH_SIZE observations are averaged into a batch mean.
+ * For n batch means Z_1..Z_n, MSER chooses the truncation point d that
+ * minimizes the standard error of the mean of the remaining batches,
+ *
+ *   sum over j > d of (Z_j - mean of Z_d+1..Z_n)^2 / (n-d)^2
+ *
+ * When the minimum of both series lies in the first half of the batches,
+ * the warm-up is taken to end at the later of the two truncation points.
+ * The counters are copied at the end of every batch, so the statistics
+ * can be set back to cover exactly the time after the truncation point
+ * once it is known.
+ */
+public class WarmupDetector implements Serializable
+{
+	/** The version of the serialized form */
+	private static final long serialVersionUID = 1L;
+
+	/** The number of observations averaged into one batch mean */
+	public static final int BATCH_SIZE = 5;
+	/** The least number of batches before the warm-up can be detected */
+	private static final int MIN_BATCHES = 10;
+
+	/** The simulated time between two observations */
+	private long interval;
+	/** Reference to the statistics collector */
+	private Statistics statistics;
+	/** The time of the next observation */
+	private long nextObservationTime;
+	/** The time of the last observation */
+	private long lastObservationTime;
+	/** The sum of the time-weighted queue lengths at the last observation */
+	private long lastQueueLengthTime;
+	/** The number of completed processes at the last observation */
+	private long lastCompleted;
+	/** The total time in the system of the completed processes at the last observation */
+	private long lastTimeInSystem;
+	/** The last observed average time in the system */
+	private double lastObservedTimeInSystem;
+	/** The number of observations in the current batch */
+	private int observations;
+	/** The sum of the observed queue lengths in the current batch */
+	private double queueLengthSum;
+	/** The sum of the observed times in the system in the current batch */
+	private double timeInSystemSum;
+	/** The number of complete batches */
+	private int nofBatches;
+	/** The batch means of the queue lengths */
+	private double[] queueLengthBatches;
+	/** The batch means of the times in the system */
+	private double[] timeInSystemBatches;
+	/** The time at which each batch ended */
+	private long[] batchEndTimes;
+	/** The counters at the end of each batch */
+	private List<long[]> batchEndCounters;
+	/** Set when the warm-up has been detected and deleted */
+	private boolean done;
+
+	/**
+	 * Creates a detector that observes a simulation from time 0.
+	 * @param interval		The simulated time between two observations.
+	 * @param statistics	Reference to the statistics collector.
+	 */
+	public WarmupDetector(long interval, Statistics statistics) {
+		this.interval = interval;
+		this.statistics = statistics;
+		nextObservationTime = interval;
+		queueLengthBatches = new double[16];
+		timeInSystemBatches = new double[16];
+		batchEndTimes = new long[16];
+		batchEndCounters = new ArrayList<long[]>();
+		statistics.warmupDetection = "mser5";
+	}
+
+	/**
+	 * Returns the time of the next observation.
+	 * @return	The time, or Long.MAX_VALUE once the warm-up has been detected.
+	 */
+	public long getNextObservationTime() {
+		return done ? Long.MAX_VALUE : nextObservationTime;
+	}
+
+	/**
+	 * Observes the simulation. The statistics must have been accounted up to
+	 * the current time. If this completes a batch and the warm-up is detected,
+	 * the warm-up is deleted from the statistics.
+	 * @param clock	The current time, at least the time returned by getNextObservationTime.
+	 */
+	public void observe(long clock) {
+		long queueLengthTime = statistics.memoryQueueLengthTime+statistics.readyQueueLengthTime
+			+statistics.ioQueueLengthTime;
+		long completed = statistics.nofCompletedProcesses;
+		long timeInSystem = statistics.totalTimeSpentInCpu+statistics.totalTimeSpentInIo
+			+statistics.totalTimeSpentWaitingForCpu+statistics.totalTimeSpentWaitingForIo
+			+statistics.totalTimeSpentWaitingForMemory;
+		queueLengthSum += (double)(queueLengthTime-lastQueueLengthTime)/(clock-lastObservationTime);
+		if(completed > lastCompleted) {
+			lastObservedTimeInSystem = (double)(timeInSystem-lastTimeInSystem)/(completed-lastCompleted);
+		}
+		timeInSystemSum += lastObservedTimeInSystem;
+		lastObservationTime = clock;
+		lastQueueLengthTime = queueLengthTime;
+		lastCompleted = completed;
+		lastTimeInSystem = timeInSystem;
+		nextObservationTime = clock+interval;
+		if(++observations == BATCH_SIZE) {
+			addBatch(clock);
+			detect(clock);
+		}
+	}
+
+	/**
+	 * Ends the current batch.
+	 * @param clock	The current time.
+	 */
+	private void addBatch(long clock) {
+		if(nofBatches == batchEndTimes.length) {
+			queueLengthBatches = Arrays.copyOf(queueLengthBatches, 2*nofBatches);
+			timeInSystemBatches = Arrays.copyOf(timeInSystemBatches, 2*nofBatches);
+			batchEndTimes = Arrays.copyOf(batchEndTimes, 2*nofBatches);
+		}
+		queueLengthBatches[nofBatches] = queueLengthSum/BATCH_SIZE;
+		timeInSystemBatches[nofBatches] = timeInSystemSum/BATCH_SIZE;
+		batchEndTimes[nofBatches] = clock;
+		batchEndCounters.add(statistics.getCounters());
+		nofBatches++;
+		observations = 0;
+		queueLengthSum = 0;
+		timeInSystemSum = 0;
+	}
+
+	/**
+	 * Applies the MSER rule to both series, and deletes the warm-up if it is found.
+	 * @param clock	The current time.
+	 */
+	private void detect(long clock) {
+		if(nofBatches < MIN_BATCHES) {
+			return;
+		}
+		int truncation = Math.max(truncationPoint(queueLengthBatches), truncationPoint(timeInSystemBatches));
+		if(truncation > nofBatches/2) {
+			return;
+		}
+		if(truncation > 0) {
+			statistics.deleteUntil(batchEndCounters.get(truncation-1));
+			statistics.warmupTime = batchEndTimes[truncation-1];
+		}
+		statistics.warmupDetectionTime = clock;
+		batchEndCounters = null;
+		done = true;
+	}
+
+	/**
+	 * Finds the number of leading batches whose deletion minimizes the MSER statistic.
+	 * At least two batches are always kept.
+	 * @param batches	The batch means, of which the first nofBatches are used.
+	 * @return			The truncation point d, the number of batches to delete.
+	 */
+	private int truncationPoint(double[] batches) {
+		double sum = 0;
+		double squares = 0;
+		double best = Double.POSITIVE_INFINITY;
+		int truncation = 0;
+		// Go from the end, so that the sums cover batches d+1..n when d is tried
+		for(int d = nofBatches-1; d >= 0; d--) {
+			sum += batches[d];
+			squares += batches[d]*batches[d];
+			int kept = nofBatches-d;
+			if(kept < 2) {
+				continue;
+			}
+			double deviations = Math.max(0, squares-sum*sum/kept);
+			double mser = deviations/((double)kept*kept);
+			if(mser <= best) {
+				best = mser;
+				truncation = d;
+			}
+		}
+		return truncation;
+	}
+}
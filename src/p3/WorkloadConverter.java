@@ -0,0 +1,85 @@
+package p3;
+
+import java.io.*;
+
+/**
+ * Converts a workload from CSV to the binary format read by WorkloadTrace.
+ * Every line of the CSV file describes one process with four numbers:
+ * arrival time (ms), memory needed (KB), cpu time needed (ms) and average
+ * time between I/O requests (ms, 0 for no I/O). Empty lines, lines starting
+ * with # and a header line are skipped. The lines must be ordered by arrival time.
+ *
+ * Usage: java p3.WorkloadConverter input.csv output.bin
+ */
+public class WorkloadConverter
+{
+	/**
+	 * Converts CSV lines to workload records.
+	 * @param in	The CSV lines.
+	 * @param out	Where the workload file is written, starting with the header.
+	 * @return		The number of records written.
+	 * @throws IOException	If reading or writing failed, or a line is not four numbers.
+	 */
+	public static long convert(BufferedReader in, DataOutputStream out) throws IOException {
+		out.writeInt(WorkloadTrace.MAGIC);
+		out.writeInt(WorkloadTrace.VERSION);
+		out.writeInt(WorkloadTrace.RECORD_SIZE);
+		long records = 0;
+		long lineNumber = 0;
+		long lastArrival = Long.MIN_VALUE;
+		String line;
+		while((line = in.readLine()) != null) {
+			lineNumber++;
+			line = line.trim();
+			if(line.length() == 0 || line.startsWith("#") || (records == 0 && Character.isLetter(line.charAt(0)))) {
+				continue;
+			}
+			String[] fields = line.split(",");
+			if(fields.length != 4) {
+				throw new IOException("Line "+lineNumber+": expected 4 fields, got "+fields.length);
+			}
+			long[] values = new long[4];
+			try {
+				for(int i = 0; i < 4; i++) {
+					values[i] = Long.parseLong(fields[i].trim());
+				}
+			} catch (NumberFormatException nfe) {
+				throw new IOException("Line "+lineNumber+": "+nfe.getMessage());
+			}
+			if(values[0] < lastArrival) {
+				throw new IOException("Line "+lineNumber+": arrival times must not decrease");
+			}
+			lastArrival = values[0];
+			for(long value : values) {
+				out.writeLong(value);
+			}
+			records++;
+		}
+		return records;
+	}
+
+	/**
+	 * Converts the CSV file given on the command line.
+	 * @param args	The names of the CSV file and the workload file.
+	 */
+	public static void main(String args[]) {
+		if(args.length != 2) {
+			System.err.println("Usage: java p3.WorkloadConverter input.csv output.bin");
+			System.exit(1);
+		}
+		try {
+			BufferedReader in = new BufferedReader(new FileReader(args[0]));
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(args[1])));
+			try {
+				long records = convert(in, out);
+				System.out.println("Wrote "+records+" processes to "+args[1]);
+			} finally {
+				in.close();
+				out.close();
+			}
+		} catch (IOException ioe) {
+			System.err.println("Could not convert "+args[0]+": "+ioe.getMessage());
+			System.exit(1);
+		}
+	}
+}
@@ -0,0 +1,192 @@
+package p3;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+
+/**
+ * A workload read from a binary trace file, replacing the synthetic process
+ * arrivals. Every record describes one process: its arrival time, the memory
+ * and cpu time it needs, and the average cpu time between its I/O requests.
+ *
+ * The file is read through memory mapped windows of at most WINDOW_SIZE
+ * bytes, and a record is only decoded when its process arrives, so traces
+ * of any length can be replayed without being read into the heap.
+ *
+ * A workload file starts with a header (the magic number, the format version
+ * and the record size) followed by records of RECORD_SIZE bytes: arrival time
+ * (long, ms), memory needed (long, KB), cpu time needed (long, ms) and average
+ * time between I/O requests (long, ms, 0 or less for a process without I/O),
+ * all big-endian. The records must be ordered by arrival time. Use
+ * WorkloadConverter to create a workload file from CSV.
+ */
+public class WorkloadTrace implements Serializable
+{
+	/** The version of the serialized form */
+	private static final long serialVersionUID = 1L;
+
+	/** The magic number starting every workload file, "P3WL" */
+	public static final int MAGIC = 0x5033574C;
+	/** The version of the workload format */
+	public static final int VERSION = 1;
+	/** The size of one record in bytes */
+	public static final int RECORD_SIZE = 32;
+	/** The size of the header in bytes */
+	public static final int HEADER_SIZE = 12;
+	/** The largest number of bytes mapped at a time, a whole number of records */
+	private static final long WINDOW_SIZE = (1L << 30)/RECORD_SIZE*RECORD_SIZE;
+
+	/** The name of the file, used in messages */
+	private String name;
+	/** The path of the file, used to open it again when a checkpoint is restored */
+	private String path;
+	/** The workload file */
+	private transient FileChannel channel;
+	/** The number of records in the file */
+	private long nofRecords;
+	/** The index of the next record to be decoded */
+	private long nextRecord;
+	/** The mapped part of the file, or null before the first record is read */
+	private transient MappedByteBuffer window;
+	/** The index of the first record in the mapped window */
+	private long windowStart;
+	/** The number of records in the mapped window */
+	private int windowRecords;
+	/** Set when a process needing more memory than there is has been reported */
+	private boolean reportedTooLarge;
+
+	/**
+	 * Opens a workload file.
+	 * @param file	The workload file.
+	 * @throws IOException	If the file could not be read or is not a workload file.
+	 */
+	public WorkloadTrace(File file) throws IOException {
+		name = file.getName();
+		path = file.getPath();
+		channel = new RandomAccessFile(file, "r").getChannel();
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		while(header.hasRemaining()) {
+			if(channel.read(header) < 0) {
+				channel.close();
+				throw new IOException("Not a workload file");
+			}
+		}
+		header.flip();
+		int magic = header.getInt();
+		int version = header.getInt();
+		int recordSize = header.getInt();
+		if(magic != MAGIC) {
+			channel.close();
+			throw new IOException("Not a workload file");
+		}
+		if(version != VERSION || recordSize != RECORD_SIZE) {
+			channel.close();
+			throw new IOException("Unsupported workload version "+version+" with record size "+recordSize);
+		}
+		nofRecords = (channel.size()-HEADER_SIZE)/RECORD_SIZE;
+	}
+
+	/**
+	 * Returns the number of processes in the workload.
+	 * @return	The number of records.
+	 */
+	public long getNofRecords() {
+		return nofRecords;
+	}
+
+	/**
+	 * Checks whether there are processes left in the workload.
+	 * @return	true if there is a record that has not been decoded.
+	 */
+	public boolean hasNext() {
+		return nextRecord < nofRecords;
+	}
+
+	/**
+	 * Returns the arrival time of the next process.
+	 * @return	The arrival time (ms).
+	 * @throws IOException	If the file could not be mapped.
+	 */
+	public long getNextArrivalTime() throws IOException {
+		return window().getLong(offset());
+	}
+
+	/**
+	 * Decodes the next process.
+	 * @param processId		The ID given to the process.
+	 * @param memorySize	The size of the memory, processes needing more are given all of it.
+	 * @param random		The random streams of the simulation.
+	 * @return				The process, created at its arrival time.
+	 * @throws IOException	If the file could not be mapped.
+	 */
+	public Process next(long processId, long memorySize, RandomStreams random) throws IOException {
+		ByteBuffer buffer = window();
+		int offset = offset();
+		long arrivalTime = buffer.getLong(offset);
+		long memoryNeeded = buffer.getLong(offset+8);
+		long cpuTimeNeeded = buffer.getLong(offset+16);
+		long avgIoInterval = buffer.getLong(offset+24);
+		nextRecord++;
+		if(memoryNeeded > memorySize) {
+			if(!reportedTooLarge) {
+				System.err.println("Workload "+name+" has processes needing more than "+memorySize+" KB of memory, they get "+memorySize+" KB");
+				reportedTooLarge = true;
+			}
+			memoryNeeded = memorySize;
+		}
+		return new Process(processId, Math.max(1, memoryNeeded), Math.max(1, cpuTimeNeeded), avgIoInterval,
+			arrivalTime, random);
+	}
+
+	/**
+	 * Closes the workload file.
+	 * @throws IOException	If closing the file failed.
+	 */
+	public void close() throws IOException {
+		window = null;
+		channel.close();
+	}
+
+	/**
+	 * Opens the workload file again when a checkpoint is restored. The next
+	 * record is mapped when it is first read.
+	 * @param in	The checkpoint stream.
+	 * @throws IOException				If reading failed, or the file could not be opened or has changed.
+	 * @throws ClassNotFoundException	If the checkpoint holds an unknown class.
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		channel = new RandomAccessFile(path, "r").getChannel();
+		if((channel.size()-HEADER_SIZE)/RECORD_SIZE != nofRecords) {
+			channel.close();
+			throw new IOException("Workload "+path+" has changed since the checkpoint was saved");
+		}
+	}
+
+	/**
+	 * Returns the mapped window holding the next record, mapping the next
+	 * part of the file if needed.
+	 * @return	The window.
+	 * @throws IOException	If the file could not be mapped.
+	 */
+	private ByteBuffer window() throws IOException {
+		if(nextRecord >= nofRecords) {
+			throw new EOFException("No more processes in workload "+name);
+		}
+		if(window == null || nextRecord >= windowStart+windowRecords) {
+			windowStart = nextRecord;
+			long size = Math.min(WINDOW_SIZE, (nofRecords-windowStart)*RECORD_SIZE);
+			window = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE+windowStart*RECORD_SIZE, size);
+			windowRecords = (int)(size/RECORD_SIZE);
+		}
+		return window;
+	}
+
+	/**
+	 * Returns the position of the next record in the mapped window.
+	 * @return	The offset in bytes.
+	 */
+	private int offset() {
+		return (int)(nextRecord-windowStart)*RECORD_SIZE;
+	}
+}
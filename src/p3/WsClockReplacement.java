@@ -0,0 +1,70 @@
+package p3;
+
+/**
+ * WSClock page replacement, which combines the CLOCK sweep with the working
+ * set model. Every frame remembers when its page was last used. The hand
+ * clears the reference bits it passes, as in CLOCK, and evicts the first
+ * unreferenced page that has not been used for longer than tau, since such
+ * a page is outside the working set of its process. If a whole sweep finds
+ * no such page, the least recently used unreferenced page seen is evicted,
+ * or the page under the hand if every page had been referenced.
+ */
+public class WsClockReplacement extends ClockReplacement
+{
+	/** The version of the serialized form */
+	private static final long serialVersionUID = 1L;
+
+	/** The working set window: pages unused for longer than this may be evicted (ms) */
+	private long tau;
+	/** The time each frame was last used */
+	private long[] lastUse;
+
+	/**
+	 * Creates the policy for a number of frames, none of which hold pages.
+	 * @param nofFrames	The number of frames.
+	 * @param tau		The working set window (ms).
+	 */
+	public WsClockReplacement(int nofFrames, long tau) {
+		super(nofFrames);
+		this.tau = tau;
+		lastUse = new long[nofFrames];
+	}
+
+	public void loaded(int frame, long clock) {
+		super.loaded(frame, clock);
+		lastUse[frame] = clock;
+	}
+
+	public void referenced(int frame, long clock) {
+		super.referenced(frame, clock);
+		lastUse[frame] = clock;
+	}
+
+	public int selectVictim(long clock) {
+		int oldest = -1;
+		for(int i = 0; i < nofFrames; i++) {
+			int frame = advance();
+			if(!isSet(loadedBits, frame)) {
+				continue;
+			}
+			if(isSet(referencedBits, frame)) {
+				referencedBits[frame >>> 6] &= ~(1L << frame);
+				lastUse[frame] = clock;
+				continue;
+			}
+			if(clock-lastUse[frame] > tau) {
+				oldest = frame;
+				break;
+			}
+			if(oldest < 0 || lastUse[frame] < lastUse[oldest]) {
+				oldest = frame;
+			}
+		}
+		if(oldest < 0) {
+			// Every page was referenced, and has had its bit cleared
+			oldest = advance();
+		}
+		freed(oldest);
+		return oldest;
+	}
+}
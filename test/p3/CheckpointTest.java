@@ -0,0 +1,101 @@
+package p3;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests that a simulation saved to a checkpoint half way and then resumed
+ * collects exactly the same statistics as the same simulation run without
+ * interruption.
+ */
+public class CheckpointTest
+{
+	/** The length of the simulations (ms) */
+	private static final long LENGTH = 100000;
+
+	/** The checkpoint file used by a test */
+	private File file;
+
+	@Before
+	public void createFile() throws IOException {
+		file = File.createTempFile("checkpoint", ".ser");
+	}
+
+	@After
+	public void deleteFile() {
+		file.delete();
+	}
+
+	/**
+	 * Creates a configuration with a fixed seed.
+	 * @param settings	Pairs of setting names and values.
+	 * @return			The configuration.
+	 */
+	private static SimulationConfig config(String... settings) {
+		SimulationConfig config = new SimulationConfig();
+		config.seed = 42;
+		config.simulationLength = LENGTH;
+		for(int i = 0; i < settings.length; i += 2) {
+			config.set(settings[i], settings[i+1]);
+		}
+		config.validate();
+		return config;
+	}
+
+	/**
+	 * Runs a configuration without interruption, and again with a checkpoint
+	 * at half its length that is then resumed, and compares the statistics.
+	 * @param config	The configuration.
+	 * @throws IOException	If the checkpoint could not be saved or restored.
+	 */
+	private void checkResume(SimulationConfig config) throws IOException {
+		String expected = config.runHeadless().toCsvRow();
+		SimulationConfig half = config.copy();
+		half.simulationLength = LENGTH/2;
+		half.checkpoint = file.getPath();
+		half.runHeadless();
+		Simulator resumed = Simulator.restoreCheckpoint(file, new HeadlessGui());
+		resumed.setSimulationLength(LENGTH);
+		assertEquals(expected, resumed.run().toCsvRow());
+	}
+
+	@Test
+	public void roundRobinResumesExactly() throws IOException {
+		checkResume(config());
+	}
+
+	@Test
+	public void processTableResumesExactly() throws IOException {
+		checkResume(config("processStore", "table", "avgArrivalInterval", "500"));
+	}
+
+	@Test
+	public void mlfqWithBackfillingResumesExactly() throws IOException {
+		checkResume(config("scheduler", "mlfq", "memoryAdmission", "backfill", "memoryAllocator", "firstfit"));
+	}
+
+	@Test
+	public void cfsWithBuddyAndWarmupResumesExactly() throws IOException {
+		checkResume(config("scheduler", "cfs", "memoryAllocator", "buddy", "warmupInterval", "20000"));
+	}
+
+	@Test
+	public void pagedMemoryResumesExactly() throws IOException {
+		checkResume(config("pageSize", "64", "pageReplacement", "lru"));
+	}
+
+	@Test(expected = IOException.class)
+	public void otherFilesAreRejected() throws IOException {
+		OutputStream out = new FileOutputStream(file);
+		try {
+			out.write(new byte[] {1, 2, 3, 4, 5, 6, 7, 8});
+		} finally {
+			out.close();
+		}
+		Simulator.restoreCheckpoint(file, new HeadlessGui());
+	}
+}
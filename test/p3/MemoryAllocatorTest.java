@@ -0,0 +1,240 @@
+package p3;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+import org.junit.Test;
+
+/**
+ * Tests the memory allocators against a model of the memory that marks
+ * every KB as free or taken. Random sequences of allocations and frees
+ * are applied to both, and after every operation the allocator must agree
+ * with the model on the address it picked, the free memory and the
+ * largest free block.
+ */
+public class MemoryAllocatorTest
+{
+	/** The size of the memory used by the tests (KB), not a power of two */
+	private static final int MEMORY_SIZE = 1000;
+	/** The number of random operations in each test */
+	private static final int OPERATIONS = 20000;
+
+	/**
+	 * A memory where every KB is free or taken.
+	 */
+	private static class Model
+	{
+		/** Whether each KB is taken */
+		boolean[] taken = new boolean[MEMORY_SIZE];
+
+		/**
+		 * Returns the free blocks of the model.
+		 * @return	The address and size of every free block, in address order.
+		 */
+		List<long[]> blocks() {
+			List<long[]> blocks = new ArrayList<long[]>();
+			for(int i = 0; i < MEMORY_SIZE; i++) {
+				if(!taken[i] && (i == 0 || taken[i-1])) {
+					int end = i;
+					while(end < MEMORY_SIZE && !taken[end]) {
+						end++;
+					}
+					blocks.add(new long[] {i, end-i});
+				}
+			}
+			return blocks;
+		}
+
+		/**
+		 * Returns the amount of free memory in the model.
+		 * @return	The number of free KB.
+		 */
+		long freeMemory() {
+			long free = 0;
+			for(boolean t : taken) {
+				free += t ? 0 : 1;
+			}
+			return free;
+		}
+
+		/**
+		 * Returns the size of the largest free block in the model.
+		 * @return	The size of the block (KB).
+		 */
+		long largestFreeBlock() {
+			long largest = 0;
+			for(long[] block : blocks()) {
+				largest = Math.max(largest, block[1]);
+			}
+			return largest;
+		}
+
+		/**
+		 * Returns the address a free list policy should pick.
+		 * @param fit	The policy.
+		 * @param size	The amount of memory asked for.
+		 * @param rover	The end of the previous allocation, used by next-fit.
+		 * @return		The address, or -1 if no block fits.
+		 */
+		long expectedAddress(int fit, long size, long rover) {
+			List<long[]> blocks = blocks();
+			long best = -1;
+			long bestSize = Long.MAX_VALUE;
+			for(long[] block : blocks) {
+				if(block[1] < size) {
+					continue;
+				}
+				if(fit == FreeListAllocator.FIRST_FIT) {
+					return block[0];
+				}
+				if(fit == FreeListAllocator.BEST_FIT && block[1] < bestSize) {
+					best = block[0];
+					bestSize = block[1];
+				}
+			}
+			if(fit == FreeListAllocator.NEXT_FIT) {
+				// The search starts at the block holding the rover, or at the rover if it is taken
+				for(long[] block : blocks) {
+					if(block[1] >= size && block[0]+block[1] > rover) {
+						return block[0];
+					}
+				}
+				return expectedAddress(FreeListAllocator.FIRST_FIT, size, 0);
+			}
+			return best;
+		}
+
+		/**
+		 * Marks a block as taken or free, failing if any part of it already was.
+		 * @param address	The address of the block.
+		 * @param size		The size of the block (KB).
+		 * @param value		true to mark the block taken, false to mark it free.
+		 */
+		void mark(long address, long size, boolean value) {
+			for(long i = address; i < address+size; i++) {
+				assertEquals("KB "+i+" taken", !value, taken[(int)i]);
+				taken[(int)i] = value;
+			}
+		}
+	}
+
+	/**
+	 * Applies random allocations and frees to a free list allocator and the
+	 * model, checking every chosen address.
+	 * @param fit	The policy.
+	 */
+	private static void checkFreeList(int fit) {
+		FreeListAllocator allocator = new FreeListAllocator(MEMORY_SIZE, fit);
+		Model model = new Model();
+		Random random = new Random(fit);
+		List<long[]> live = new ArrayList<long[]>();
+		long rover = 0;
+		for(int i = 0; i < OPERATIONS; i++) {
+			if(live.isEmpty() || random.nextInt(100) < 55) {
+				long size = 1+random.nextInt(120);
+				long expected = model.expectedAddress(fit, size, rover);
+				long address = allocator.allocate(size);
+				assertEquals("address of "+size+" KB at operation "+i, expected, address);
+				if(address >= 0) {
+					model.mark(address, size, true);
+					live.add(new long[] {address, size});
+					rover = address+size;
+				}
+			} else {
+				long[] block = live.remove(random.nextInt(live.size()));
+				allocator.free(block[0], block[1]);
+				model.mark(block[0], block[1], false);
+			}
+			assertEquals(model.freeMemory(), allocator.getFreeMemory());
+			assertEquals(model.largestFreeBlock(), allocator.getLargestFreeBlock());
+		}
+	}
+
+	@Test
+	public void firstFitTakesTheLowestBlockThatFits() {
+		checkFreeList(FreeListAllocator.FIRST_FIT);
+	}
+
+	@Test
+	public void bestFitTakesTheSmallestBlockThatFits() {
+		checkFreeList(FreeListAllocator.BEST_FIT);
+	}
+
+	@Test
+	public void nextFitContinuesAfterTheLastAllocation() {
+		checkFreeList(FreeListAllocator.NEXT_FIT);
+	}
+
+	@Test
+	public void freedBlocksMergeWithBothNeighbours() {
+		FreeListAllocator allocator = new FreeListAllocator(MEMORY_SIZE, FreeListAllocator.FIRST_FIT);
+		long a = allocator.allocate(300);
+		long b = allocator.allocate(300);
+		long c = allocator.allocate(400);
+		assertEquals(0, allocator.getLargestFreeBlock());
+		allocator.free(a, 300);
+		allocator.free(c, 400);
+		assertEquals(400, allocator.getLargestFreeBlock());
+		assertEquals(-1, allocator.allocate(500));
+		allocator.free(b, 300);
+		assertEquals(MEMORY_SIZE, allocator.getLargestFreeBlock());
+		assertEquals(0, allocator.allocate(MEMORY_SIZE));
+	}
+
+	@Test
+	public void buddyBlocksAreAlignedDisjointAndMergeBack() {
+		BuddyAllocator allocator = new BuddyAllocator(MEMORY_SIZE);
+		Model model = new Model();
+		Random random = new Random(1);
+		List<long[]> live = new ArrayList<long[]>();
+		assertEquals(512, allocator.getLargestFreeBlock());
+		for(int i = 0; i < OPERATIONS; i++) {
+			if(live.isEmpty() || random.nextInt(100) < 55) {
+				long size = 1+random.nextInt(120);
+				long rounded = Long.highestOneBit(size) == size ? size : Long.highestOneBit(size) << 1;
+				boolean fits = rounded <= allocator.getLargestFreeBlock();
+				long address = allocator.allocate(size);
+				assertEquals("allocation of "+size+" KB", fits, address >= 0);
+				if(address >= 0) {
+					assertEquals("alignment of "+rounded+" KB block", 0, address % rounded);
+					model.mark(address, rounded, true);
+					live.add(new long[] {address, size, rounded});
+				}
+			} else {
+				long[] block = live.remove(random.nextInt(live.size()));
+				allocator.free(block[0], block[1]);
+				model.mark(block[0], block[2], false);
+			}
+			assertEquals(model.freeMemory(), allocator.getFreeMemory());
+		}
+		for(long[] block : live) {
+			allocator.free(block[0], block[1]);
+		}
+		assertEquals(MEMORY_SIZE, allocator.getFreeMemory());
+		assertEquals(512, allocator.getLargestFreeBlock());
+	}
+
+	@Test
+	public void compactingAllocatorHasNoExternalFragmentation() {
+		CompactingAllocator allocator = new CompactingAllocator(MEMORY_SIZE);
+		assertEquals(0, allocator.allocate(600));
+		assertEquals(-1, allocator.allocate(500));
+		assertEquals(400, allocator.getLargestFreeBlock());
+		allocator.free(0, 600);
+		assertEquals(MEMORY_SIZE, allocator.getFreeMemory());
+		assertEquals(MEMORY_SIZE, allocator.getLargestFreeBlock());
+	}
+
+	@Test
+	public void everyOperationCountsSteps() {
+		MemoryAllocator[] allocators = {new CompactingAllocator(MEMORY_SIZE), new BuddyAllocator(MEMORY_SIZE),
+			new FreeListAllocator(MEMORY_SIZE, FreeListAllocator.FIRST_FIT)};
+		for(MemoryAllocator allocator : allocators) {
+			long address = allocator.allocate(100);
+			long steps = allocator.getSteps();
+			assertTrue(steps > 0);
+			allocator.free(address, 100);
+			assertTrue(allocator.getSteps() > steps);
+		}
+	}
+}
@@ -0,0 +1,101 @@
+package p3;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+import org.junit.Test;
+
+/**
+ * Tests MemoryQueueIndex against a plain list of the queued processes in
+ * queue order. Random additions and removals from anywhere in the queue
+ * make the index rebuild itself many times.
+ */
+public class MemoryQueueIndexTest
+{
+	/** The random streams given to the created processes, which draw nothing from them here */
+	private static final RandomStreams RANDOM = new RandomStreams(1);
+
+	/**
+	 * Creates a process with a given memory need.
+	 * @param id			The ID of the process.
+	 * @param memoryNeeded	The memory need (KB).
+	 * @return				The process.
+	 */
+	private static Process process(long id, long memoryNeeded) {
+		return new Process(id, memoryNeeded, 1000, 100, 0, RANDOM);
+	}
+
+	@Test
+	public void emptyIndexFindsNothing() {
+		MemoryQueueIndex index = new MemoryQueueIndex();
+		assertEquals(0, index.size());
+		assertEquals(-1, index.findHead());
+		assertEquals(-1, index.findFirst(Long.MAX_VALUE-1));
+	}
+
+	@Test
+	public void findFirstSkipsProcessesThatDoNotFit() {
+		MemoryQueueIndex index = new MemoryQueueIndex();
+		index.add(process(1, 500));
+		index.add(process(2, 300));
+		index.add(process(3, 100));
+		index.add(process(4, 200));
+		assertEquals(1, index.get(index.findHead()).getProcessId());
+		assertEquals(2, index.get(index.findFirst(300)).getProcessId());
+		assertEquals(3, index.get(index.findFirst(150)).getProcessId());
+		assertEquals(-1, index.findFirst(99));
+		index.remove(index.findFirst(150));
+		assertEquals(4, index.get(index.findFirst(250)).getProcessId());
+		assertEquals(3, index.size());
+	}
+
+	@Test
+	public void matchesAListInQueueOrder() {
+		MemoryQueueIndex index = new MemoryQueueIndex();
+		List<Process> list = new ArrayList<Process>();
+		Random random = new Random(3);
+		long nextId = 1;
+		for(int i = 0; i < 50000; i++) {
+			int operation = random.nextInt(10);
+			if(list.isEmpty() || operation < 5) {
+				Process p = process(nextId++, 100+random.nextInt(1000));
+				index.add(p);
+				list.add(p);
+			} else if(operation < 7) {
+				// Remove the first process that fits, as backfilling does
+				long limit = 100+random.nextInt(1000);
+				int leaf = index.findFirst(limit);
+				Process expected = null;
+				for(Process p : list) {
+					if(p.getMemoryNeeded() <= limit) {
+						expected = p;
+						break;
+					}
+				}
+				if(expected == null) {
+					assertEquals(-1, leaf);
+				} else {
+					assertSame(expected, index.remove(leaf));
+					list.remove(expected);
+				}
+			} else if(operation < 8) {
+				assertSame(list.remove(0), index.remove(index.findHead()));
+			} else {
+				// Remove from any position, found by counting
+				int position = random.nextInt(list.size());
+				assertSame(list.remove(position), index.remove(index.select(position)));
+			}
+			assertEquals(list.size(), index.size());
+		}
+		for(int position = 0; position < list.size(); position++) {
+			assertSame(list.get(position), index.get(index.select(position)));
+		}
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void selectBeyondTheTailFails() {
+		MemoryQueueIndex index = new MemoryQueueIndex();
+		index.add(process(1, 100));
+		index.select(1);
+	}
+}
@@ -0,0 +1,160 @@
+package p3;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+import org.junit.Test;
+
+/**
+ * Tests the multi-level feedback queue scheduler against a model that
+ * boosts by moving every ready process to level 0, level by level. The
+ * scheduler only hands whole queues over, so the two must pick the same
+ * processes in the same order and give them the same time quanta.
+ */
+public class MultilevelFeedbackSchedulerTest
+{
+	/** The time quant of each level (ms) */
+	private static final long[] QUANTA = {50, 200, 800, 3200};
+	/** The time between priority boosts (ms) */
+	private static final long BOOST_INTERVAL = 500;
+
+	/**
+	 * A multi-level feedback queue that boosts by moving the processes.
+	 */
+	private static class Model
+	{
+		/** The ready processes on each level */
+		List<ArrayDeque<Process>> levels = new ArrayList<ArrayDeque<Process>>();
+		/** The level of every process that has been enqueued */
+		Map<Process, Integer> level = new HashMap<Process, Integer>();
+		/** The boost count when the level of every process was set */
+		Map<Process, Long> epoch = new HashMap<Process, Long>();
+		/** The number of boosts done */
+		long boosts;
+		/** The time of the next boost */
+		long nextBoost = BOOST_INTERVAL;
+
+		/**
+		 * Creates a model with empty levels.
+		 */
+		Model() {
+			for(int i = 0; i < QUANTA.length; i++) {
+				levels.add(new ArrayDeque<Process>());
+			}
+		}
+
+		/**
+		 * Moves all ready processes to level 0 if a boost is due.
+		 * @param clock	The current time.
+		 */
+		void boostIfDue(long clock) {
+			if(clock < nextBoost) {
+				return;
+			}
+			boosts++;
+			nextBoost = clock+BOOST_INTERVAL;
+			for(int i = 1; i < levels.size(); i++) {
+				levels.get(0).addAll(levels.get(i));
+				levels.get(i).clear();
+			}
+			for(Process p : levels.get(0)) {
+				level.put(p, 0);
+				epoch.put(p, boosts);
+			}
+		}
+
+		/**
+		 * Adds a ready process, as MultilevelFeedbackScheduler.enqueue.
+		 * @param p			The process.
+		 * @param clock		The current time.
+		 * @param preempted	true if the process used its whole time quant.
+		 */
+		void enqueue(Process p, long clock, boolean preempted) {
+			boostIfDue(clock);
+			int l = level.containsKey(p) ? level.get(p) : 0;
+			if(epoch.containsKey(p) && epoch.get(p) != boosts) {
+				l = 0;
+			} else if(preempted) {
+				l = Math.min(l+1, QUANTA.length-1);
+			} else {
+				l = Math.max(l-1, 0);
+			}
+			level.put(p, l);
+			epoch.put(p, boosts);
+			levels.get(l).add(p);
+		}
+
+		/**
+		 * Removes the process that should run next.
+		 * @param clock	The current time.
+		 * @return		The process, or null if none is ready.
+		 */
+		Process pickNext(long clock) {
+			boostIfDue(clock);
+			for(ArrayDeque<Process> queue : levels) {
+				if(!queue.isEmpty()) {
+					return queue.poll();
+				}
+			}
+			return null;
+		}
+	}
+
+	@Test
+	public void lazyBoostPicksLikeMovingEveryProcess() {
+		MultilevelFeedbackScheduler scheduler = new MultilevelFeedbackScheduler(QUANTA, BOOST_INTERVAL, new Statistics());
+		Model model = new Model();
+		RandomStreams streams = new RandomStreams(1);
+		List<Process> running = new ArrayList<Process>();
+		Random random = new Random(6);
+		long clock = 0;
+		long nextId = 1;
+		for(int i = 0; i < 100000; i++) {
+			clock += random.nextInt(30);
+			int operation = random.nextInt(10);
+			if(operation < 2) {
+				Process p = new Process(nextId++, 100, 1000, 100, clock, streams);
+				scheduler.enqueue(p, clock, false);
+				model.enqueue(p, clock, false);
+			} else if(operation < 6 && !running.isEmpty()) {
+				Process p = running.remove(random.nextInt(running.size()));
+				boolean preempted = random.nextBoolean();
+				scheduler.enqueue(p, clock, preempted);
+				model.enqueue(p, clock, preempted);
+			} else {
+				Process expected = model.pickNext(clock);
+				Process p = scheduler.pickNext(clock);
+				assertSame("pick at "+clock, expected, p);
+				if(p != null) {
+					assertEquals(QUANTA[model.level.get(p)], scheduler.quantumFor(p));
+					running.add(p);
+				}
+			}
+			int ready = 0;
+			for(ArrayDeque<Process> queue : model.levels) {
+				ready += queue.size();
+			}
+			assertEquals(ready, scheduler.size());
+		}
+	}
+
+	@Test
+	public void preemptedProcessesSinkAndReturnAfterABoost() {
+		MultilevelFeedbackScheduler scheduler = new MultilevelFeedbackScheduler(QUANTA, BOOST_INTERVAL, new Statistics());
+		RandomStreams streams = new RandomStreams(1);
+		Process cpuBound = new Process(1, 100, 10000, 0, 0, streams);
+		scheduler.enqueue(cpuBound, 0, false);
+		for(int level = 0; level < QUANTA.length; level++) {
+			assertSame(cpuBound, scheduler.pickNext(level));
+			assertEquals(QUANTA[level], scheduler.quantumFor(cpuBound));
+			scheduler.enqueue(cpuBound, level, true);
+		}
+		Process interactive = new Process(2, 100, 1000, 10, 10, streams);
+		scheduler.enqueue(interactive, 10, false);
+		assertSame(interactive, scheduler.pickNext(20));
+		// After the boost the process that sank is back on the top level
+		assertSame(cpuBound, scheduler.pickNext(BOOST_INTERVAL));
+		assertEquals(QUANTA[0], scheduler.quantumFor(cpuBound));
+		assertNull(scheduler.pickNext(BOOST_INTERVAL));
+	}
+}
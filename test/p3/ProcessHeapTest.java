@@ -0,0 +1,90 @@
+package p3;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+import org.junit.Test;
+
+/**
+ * Tests ProcessHeap against a sorted list of the processes it holds, with
+ * few distinct keys so that ties between equal keys are common.
+ */
+public class ProcessHeapTest
+{
+	/** The random streams given to the created processes, which draw nothing from them here */
+	private static final RandomStreams RANDOM = new RandomStreams(1);
+
+	/**
+	 * Creates a process.
+	 * @param id	The ID of the process.
+	 * @return		The process.
+	 */
+	private static Process process(long id) {
+		return new Process(id, 100, 1000, 100, 0, RANDOM);
+	}
+
+	@Test
+	public void pollsInKeyOrderThenInsertionOrder() {
+		ProcessHeap heap = new ProcessHeap();
+		// Each entry is {key, insertion number, index in processes}
+		TreeSet<long[]> expected = new TreeSet<long[]>(new Comparator<long[]>() {
+			public int compare(long[] a, long[] b) {
+				return a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]);
+			}
+		});
+		List<Process> processes = new ArrayList<Process>();
+		Map<Process, long[]> entries = new HashMap<Process, long[]>();
+		Random random = new Random(4);
+		long added = 0;
+		for(int i = 0; i < 50000; i++) {
+			int operation = random.nextInt(10);
+			if(expected.isEmpty() || operation < 5) {
+				Process p = process(added);
+				long[] entry = {random.nextInt(20), added++};
+				heap.add(p, entry[0]);
+				expected.add(entry);
+				entries.put(p, entry);
+				processes.add(p);
+			} else if(operation < 8) {
+				long[] first = expected.pollFirst();
+				assertEquals(first[0], heap.peekKey());
+				Process p = heap.poll();
+				assertSame(entries.remove(p), first);
+				processes.remove(p);
+			} else {
+				// Remove a process from anywhere in the heap
+				Process p = processes.remove(random.nextInt(processes.size()));
+				assertTrue(heap.remove(p));
+				assertFalse(heap.remove(p));
+				expected.remove(entries.remove(p));
+			}
+			assertEquals(expected.size(), heap.size());
+		}
+		while(!expected.isEmpty()) {
+			assertSame(entries.get(heap.poll()), expected.pollFirst());
+		}
+		assertTrue(heap.isEmpty());
+		assertNull(heap.poll());
+	}
+
+	@Test
+	public void removedProcessCanBeAddedToAnotherHeap() {
+		ProcessHeap first = new ProcessHeap();
+		ProcessHeap second = new ProcessHeap();
+		Process p = process(1);
+		first.add(p, 5);
+		first.add(process(2), 3);
+		assertFalse(second.remove(p));
+		assertTrue(first.remove(p));
+		second.add(p, 7);
+		assertSame(p, second.peek());
+		assertEquals(1, first.size());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void processCanOnlyBeInOneHeap() {
+		Process p = process(1);
+		new ProcessHeap().add(p, 1);
+		new ProcessHeap().add(p, 1);
+	}
+}
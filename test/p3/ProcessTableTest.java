@@ -0,0 +1,94 @@
+package p3;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+import org.junit.Test;
+
+/**
+ * Tests the process table and the int queue that hold the processes
+ * waiting for memory when processStore=table is configured.
+ */
+public class ProcessTableTest
+{
+	/** The size of the memory the processes are created for (KB) */
+	private static final long MEMORY_SIZE = 2048;
+
+	@Test
+	public void tableProcessesMatchProcessObjects() {
+		RandomStreams tableRandom = new RandomStreams(5);
+		RandomStreams objectRandom = new RandomStreams(5);
+		ProcessTable table = new ProcessTable(tableRandom);
+		IntQueue slots = new IntQueue();
+		ArrayDeque<Process> objects = new ArrayDeque<Process>();
+		Random random = new Random(5);
+		long nextId = 1;
+		for(int i = 0; i < 20000; i++) {
+			if(objects.isEmpty() || random.nextInt(10) < 6) {
+				int slot = table.create(nextId, MEMORY_SIZE, i);
+				Process p = new Process(nextId, MEMORY_SIZE, i, objectRandom);
+				assertEquals(p.getProcessId(), table.getProcessId(slot));
+				assertEquals(p.getMemoryNeeded(), table.getMemoryNeeded(slot));
+				slots.insert(slot);
+				objects.add(p);
+				nextId++;
+			} else {
+				Process expected = objects.poll();
+				Process p = table.takeProcess(slots.removeNext());
+				assertEquals(expected.getProcessId(), p.getProcessId());
+				assertEquals(expected.getMemoryNeeded(), p.getMemoryNeeded());
+				assertEquals(expected.getCpuTimeNeeded(), p.getCpuTimeNeeded());
+			}
+			assertEquals(objects.size(), table.getNofProcesses());
+			assertEquals(objects.size(), slots.getQueueLength());
+		}
+	}
+
+	@Test
+	public void freedSlotsAreReusedBeforeTheTableGrows() {
+		ProcessTable table = new ProcessTable(new RandomStreams(1));
+		IntQueue slots = new IntQueue();
+		for(int i = 0; i < 5000; i++) {
+			slots.insert(table.create(i, MEMORY_SIZE, 0));
+		}
+		int capacity = table.getCapacity();
+		assertTrue(capacity >= 5000);
+		while(!slots.isEmpty()) {
+			table.takeProcess(slots.removeNext());
+		}
+		assertEquals(0, table.getNofProcesses());
+		Set<Integer> used = new HashSet<Integer>();
+		for(int i = 0; i < 5000; i++) {
+			assertTrue(used.add(table.create(i, MEMORY_SIZE, 0)));
+		}
+		assertEquals(capacity, table.getCapacity());
+		assertEquals(5000, table.getNofProcesses());
+	}
+
+	@Test
+	public void intQueueMatchesADequeAcrossGrowth() {
+		IntQueue queue = new IntQueue(4);
+		ArrayDeque<Integer> deque = new ArrayDeque<Integer>();
+		Random random = new Random(2);
+		for(int i = 0; i < 50000; i++) {
+			if(deque.isEmpty() || random.nextInt(10) < 6) {
+				queue.insert(i);
+				deque.add(i);
+			} else {
+				assertEquals(deque.peek().intValue(), queue.getNext());
+				assertEquals(deque.poll().intValue(), queue.removeNext());
+			}
+			assertEquals(deque.size(), queue.getQueueLength());
+			assertEquals(deque.isEmpty(), queue.isEmpty());
+		}
+		int index = 0;
+		for(int value : deque) {
+			assertEquals(value, queue.get(index++));
+		}
+	}
+
+	@Test(expected = NoSuchElementException.class)
+	public void emptyIntQueueHasNoNext() {
+		new IntQueue().removeNext();
+	}
+}
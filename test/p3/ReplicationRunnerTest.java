@@ -0,0 +1,99 @@
+package p3;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+import org.junit.Test;
+
+/**
+ * Tests the confidence intervals of ReplicationRunner: the Student-t
+ * quantiles against published table values, and the half-widths against
+ * the same replications summarized with the textbook two-pass formula.
+ */
+public class ReplicationRunnerTest
+{
+	/** The length of the replications (ms), short to keep the tests fast */
+	private static final long LENGTH = 20000;
+	/** The metric used as the stopping target */
+	private static final String TARGET = "avgTimeInSystem";
+
+	/**
+	 * Creates the configuration of the replications.
+	 * @return	The configuration.
+	 */
+	private static SimulationConfig config() {
+		SimulationConfig config = new SimulationConfig();
+		config.seed = 7;
+		config.simulationLength = LENGTH;
+		return config;
+	}
+
+	@Test
+	public void studentTQuantilesMatchTheTables() {
+		double[][] table = {
+			{0.975, 1, 12.7062}, {0.975, 2, 4.3027}, {0.975, 5, 2.5706}, {0.975, 10, 2.2281},
+			{0.975, 30, 2.0423}, {0.95, 9, 1.8331}, {0.995, 4, 4.6041}, {0.975, 100000, 1.9600}};
+		for(double[] row : table) {
+			assertEquals("t("+row[0]+", "+(int)row[1]+")", row[2],
+				ReplicationRunner.studentTQuantile(row[0], (int)row[1]), 1e-4);
+		}
+	}
+
+	@Test
+	public void halfWidthsMatchTheTwoPassFormula() throws Exception {
+		int replications = 6;
+		ReplicationRunner runner = new ReplicationRunner(config(), TARGET, 1e-9, 0.95, replications, replications, 0);
+		assertFalse(runner.run(2, null));
+		assertEquals(replications, runner.getNofReplications());
+		// Run the same replications again, in order, and keep every metric
+		SplittableRandom seeds = new SplittableRandom(config().seed);
+		double[][] metrics = new double[replications][];
+		for(int r = 0; r < replications; r++) {
+			SimulationConfig config = config();
+			config.seed = seeds.nextLong();
+			metrics[r] = config.runHeadless().getMetrics(LENGTH);
+		}
+		double t = ReplicationRunner.studentTQuantile(0.975, replications-1);
+		for(int i = 0; i < metrics[0].length; i++) {
+			double sum = 0;
+			for(double[] m : metrics) {
+				sum += m[i];
+			}
+			double mean = sum/replications;
+			double squares = 0;
+			for(double[] m : metrics) {
+				squares += (m[i]-mean)*(m[i]-mean);
+			}
+			double expected = t*Math.sqrt(squares/(replications-1)/replications);
+			assertEquals(Statistics.getMetricNames()[i], expected, runner.getHalfWidth(i), 1e-9*Math.max(1, expected));
+		}
+	}
+
+	@Test
+	public void resultDoesNotDependOnTheNumberOfThreads() throws Exception {
+		int target = Arrays.asList(Statistics.getMetricNames()).indexOf(TARGET);
+		ReplicationRunner one = new ReplicationRunner(config(), TARGET, 0.1, 0.95, 3, 40, 0);
+		ReplicationRunner three = new ReplicationRunner(config(), TARGET, 0.1, 0.95, 3, 40, 0);
+		assertEquals(one.run(1, null), three.run(3, null));
+		assertEquals(one.getNofReplications(), three.getNofReplications());
+		assertEquals(one.getHalfWidth(target), three.getHalfWidth(target), 0);
+	}
+
+	@Test
+	public void metricThatDoesNotVaryStopsAtTheMinimum() throws Exception {
+		// Without paging there are never any page faults
+		ReplicationRunner runner = new ReplicationRunner(config(), "nofPageFaults", 0.01, 0.95, 3, 10, 0);
+		assertTrue(runner.run(1, null));
+		assertEquals(3, runner.getNofReplications());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void unknownTargetIsRejected() {
+		new ReplicationRunner(config(), "noSuchMetric", 0.01, 0.95, 3, 10, 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void singleReplicationIsRejected() {
+		new ReplicationRunner(config(), TARGET, 0.01, 0.95, 1, 10, 0);
+	}
+}
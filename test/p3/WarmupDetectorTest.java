@@ -0,0 +1,76 @@
+package p3;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * Tests the MSER-5 warm-up detection on queue lengths that start high and
+ * then stay at a constant level, so that the truncation point is known.
+ */
+public class WarmupDetectorTest
+{
+	/** The simulated time between two observations (ms) */
+	private static final long INTERVAL = 100;
+	/** The time covered by a batch of observations (ms) */
+	private static final long BATCH_TIME = INTERVAL*WarmupDetector.BATCH_SIZE;
+
+	/**
+	 * Feeds observations to a detector until it detects the warm-up or a
+	 * number of batches have been observed. The memory queue is 100 long in
+	 * the warm-up batches and 1 long after them.
+	 * @param statistics	The statistics observed by the detector.
+	 * @param warmupBatches	The number of batches with the long queue.
+	 * @param maxBatches	The number of batches to observe at most.
+	 */
+	private static void feed(Statistics statistics, int warmupBatches, int maxBatches) {
+		WarmupDetector detector = new WarmupDetector(INTERVAL, statistics);
+		for(long clock = INTERVAL; clock <= maxBatches*BATCH_TIME; clock += INTERVAL) {
+			assertEquals(clock, detector.getNextObservationTime());
+			long queueLength = clock <= warmupBatches*BATCH_TIME ? 100 : 1;
+			statistics.memoryQueueLengthTime += queueLength*INTERVAL;
+			detector.observe(clock);
+			if(detector.getNextObservationTime() == Long.MAX_VALUE) {
+				return;
+			}
+		}
+	}
+
+	@Test
+	public void warmupEndsWhereTheQueueSettles() {
+		Statistics statistics = new Statistics();
+		feed(statistics, 3, 100);
+		assertEquals(3*BATCH_TIME, statistics.warmupTime);
+		// Detection waits for the least number of batches, 10
+		assertEquals(10*BATCH_TIME, statistics.warmupDetectionTime);
+		// Only the 7 batches after the warm-up are left in the statistics
+		assertEquals(7*BATCH_TIME, statistics.memoryQueueLengthTime);
+	}
+
+	@Test
+	public void warmupInTheSecondHalfWaitsForMoreBatches() {
+		Statistics statistics = new Statistics();
+		feed(statistics, 7, 100);
+		assertEquals(7*BATCH_TIME, statistics.warmupTime);
+		assertEquals(14*BATCH_TIME, statistics.warmupDetectionTime);
+		assertEquals(7*BATCH_TIME, statistics.memoryQueueLengthTime);
+	}
+
+	@Test
+	public void steadyRunHasNoWarmup() {
+		Statistics statistics = new Statistics();
+		feed(statistics, 0, 100);
+		assertEquals(0, statistics.warmupTime);
+		assertEquals(10*BATCH_TIME, statistics.warmupDetectionTime);
+		assertEquals(10*BATCH_TIME, statistics.memoryQueueLengthTime);
+	}
+
+	@Test
+	public void undetectedWarmupLeavesTheStatisticsAlone() {
+		Statistics statistics = new Statistics();
+		feed(statistics, 8, 15);
+		assertEquals(0, statistics.warmupTime);
+		assertEquals(0, statistics.warmupDetectionTime);
+		assertEquals((8*100+7)*BATCH_TIME, statistics.memoryQueueLengthTime);
+	}
+}